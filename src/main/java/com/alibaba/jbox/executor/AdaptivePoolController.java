@@ -0,0 +1,186 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+import com.alibaba.jbox.scheduler.ScheduleTask;
+
+import com.google.common.base.Preconditions;
+
+import static com.alibaba.jbox.executor.ExecutorManager.recorders;
+
+/**
+ * 自适应线程池控制器:
+ * {@code ThreadPoolExecutor}只有在RunnableQueue满时才会创建超过core pool size的线程, 导致线程池长期停留在core size而Queue大量积压.
+ * 控制器由{@code TaskScheduler}周期性触发, 根据 RunnableQueue使用率、周期内平均排队耗时({@code FlightRecorder})以及进程CPU使用率
+ * 在{@link AdaptivePoolPolicy}配置的上下界(同时不超过线程池当前的max pool size)内调节core pool size, 连续多个周期满足条件才会调整(hysteresis),
+ * 每次调整决策都会打印到{@code 'executor-monitor'}这个{@code Logger}下.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/08 10:45:00.
+ */
+public class AdaptivePoolController implements ScheduleTask, ExecutorLoggerInner {
+
+    public static final AdaptivePoolController INSTANCE = new AdaptivePoolController();
+
+    private static final ConcurrentMap<String, AdaptiveState> states = new ConcurrentHashMap<>();
+
+    private static final double GROW_FACTOR = 1.25;
+
+    private static final double SHRINK_FACTOR = 0.8;
+
+    private volatile long period = _10S_INTERVAL;
+
+    private AdaptivePoolController() {
+    }
+
+    static void register(String group, ThreadPoolExecutor executor, AdaptivePoolPolicy policy) {
+        Preconditions.checkArgument(policy.getMinPoolSize() > 0, "minPoolSize must be positive.");
+        Preconditions.checkArgument(policy.getMaxPoolSize() >= policy.getMinPoolSize(),
+            "maxPoolSize can not less than minPoolSize.");
+
+        states.put(group, new AdaptiveState(executor, policy));
+        monitor.info("adaptive executor [{}] registered, core range: [{}, {}]", group, policy.getMinPoolSize(),
+            policy.getMaxPoolSize());
+    }
+
+    static void unregister(String group) {
+        states.remove(group);
+    }
+
+    static boolean isRegistered(String group) {
+        return states.containsKey(group);
+    }
+
+    @Override
+    public void invoke() throws Exception {
+        double cpuLoad = getProcessCpuLoad();
+        states.forEach((group, state) -> {
+            if (!state.executor.isShutdown()) {
+                adjust(group, state, cpuLoad);
+            }
+        });
+    }
+
+    private void adjust(String group, AdaptiveState state, double cpuLoad) {
+        ThreadPoolExecutor executor = state.executor;
+        AdaptivePoolPolicy policy = state.policy;
+
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        int queued = queue.size();
+        int capacity = queued + queue.remainingCapacity();
+        double queueUsage = capacity == 0 ? 0.0 : queued * 1.0 / capacity;
+        double waitMillis = state.periodMeanWaitMillis(recorders.get(group));
+
+        int core = executor.getCorePoolSize();
+        int active = executor.getActiveCount();
+        // max pool size可能被ExecutorReconfigurer调小, core不能超过它
+        int maxCore = Math.min(policy.getMaxPoolSize(), executor.getMaximumPoolSize());
+
+        boolean overloaded = queueUsage >= policy.getQueueHighWatermark() || waitMillis >= policy.getTargetWaitMillis();
+        boolean idle = queued == 0 && active < core * policy.getShrinkActiveRatio();
+
+        if (overloaded && core < maxCore) {
+            state.shrinkVotes = 0;
+            if (++state.growVotes < policy.getGrowAfterPeriods()) {
+                return;
+            }
+            state.growVotes = 0;
+
+            if (cpuLoad >= policy.getMaxCpuLoad()) {
+                monitor.warn("adaptive executor [{}] hold core:[{}], cpu:[{}] reached limit [{}], "
+                        + "queued:[{}/{}], wait:[{}ms], active:[{}]",
+                    group, core, format(cpuLoad), policy.getMaxCpuLoad(), queued, capacity, format(waitMillis), active);
+                return;
+            }
+
+            int newCore = Math.min(maxCore, Math.max(core + 1, (int)Math.ceil(core * GROW_FACTOR)));
+            resize(group, executor, core, newCore, "grow", queued, capacity, waitMillis, active, cpuLoad);
+        } else if (idle && core > policy.getMinPoolSize()) {
+            state.growVotes = 0;
+            if (++state.shrinkVotes < policy.getShrinkAfterPeriods()) {
+                return;
+            }
+            state.shrinkVotes = 0;
+
+            int newCore = Math.max(policy.getMinPoolSize(), Math.min(core - 1, (int)(core * SHRINK_FACTOR)));
+            resize(group, executor, core, newCore, "shrink", queued, capacity, waitMillis, active, cpuLoad);
+        } else {
+            state.growVotes = 0;
+            state.shrinkVotes = 0;
+        }
+    }
+
+    private void resize(String group, ThreadPoolExecutor executor, int oldCore, int newCore, String action,
+                        int queued, int capacity, double waitMillis, int active, double cpuLoad) {
+        executor.setCorePoolSize(newCore);
+        monitor.info("adaptive executor [{}] {} core:[{}] -> [{}], queued:[{}/{}], wait:[{}ms], active:[{}], cpu:[{}]",
+            group, action, oldCore, newCore, queued, capacity, format(waitMillis), active, format(cpuLoad));
+    }
+
+    /**
+     * @return 0.0~1.0, 无法获取时返回0.0
+     */
+    private static double getProcessCpuLoad() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean)osBean).getProcessCpuLoad();
+            return load < 0 ? 0.0 : load;
+        }
+        return 0.0;
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    @Override
+    public long period() {
+        return period;
+    }
+
+    public void setPeriod(long period) {
+        this.period = period;
+    }
+
+    private static final class AdaptiveState {
+
+        private final ThreadPoolExecutor executor;
+
+        private final AdaptivePoolPolicy policy;
+
+        private int growVotes;
+
+        private int shrinkVotes;
+
+        private long beforeTotalWait;
+
+        private long beforeWaited;
+
+        AdaptiveState(ThreadPoolExecutor executor, AdaptivePoolPolicy policy) {
+            this.executor = executor;
+            this.policy = policy;
+        }
+
+        double periodMeanWaitMillis(FlightRecorder recorder) {
+            if (recorder == null) {
+                return 0.0;
+            }
+
+            long totalWait = recorder.getTotalWait().sum();
+            long waited = recorder.getWaited().sum();
+            long deltaWaited = waited - beforeWaited;
+            double mean = deltaWaited <= 0 ? 0.0 : (totalWait - beforeTotalWait) / 1_000_000.0 / deltaWaited;
+
+            beforeTotalWait = totalWait;
+            beforeWaited = waited;
+            return mean;
+        }
+    }
+}
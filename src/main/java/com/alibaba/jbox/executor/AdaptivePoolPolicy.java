@@ -0,0 +1,73 @@
+package com.alibaba.jbox.executor;
+
+import java.io.Serializable;
+
+import com.alibaba.jbox.scheduler.ScheduleTask;
+
+import lombok.Data;
+
+/**
+ * {@code ExecutorManager.newAdaptiveThreadPool()}的自适应调节配置, 由{@link AdaptivePoolController}使用.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/08 10:20:00.
+ */
+@Data
+public class AdaptivePoolPolicy implements Serializable {
+
+    private static final long serialVersionUID = -2750342173526624018L;
+
+    /**
+     * core pool size下界, 也是线程池初始的core pool size
+     */
+    private int minPoolSize;
+
+    /**
+     * core pool size上界, 同时作为线程池的max pool size
+     */
+    private int maxPoolSize;
+
+    /**
+     * 超过core pool size的空闲线程存活时间
+     */
+    private long keepAliveMillis = ScheduleTask._1M_INTERVAL;
+
+    /**
+     * RunnableQueue使用率达到该比例时认为需要扩容
+     */
+    private double queueHighWatermark = 0.5;
+
+    /**
+     * 周期内平均排队耗时达到该值(ms)时认为需要扩容
+     */
+    private double targetWaitMillis = 10.0;
+
+    /**
+     * 进程CPU使用率(0.0~1.0)达到该值时不再扩容
+     */
+    private double maxCpuLoad = 0.85;
+
+    /**
+     * RunnableQueue为空且active线程数低于core pool size的该比例时认为需要缩容
+     */
+    private double shrinkActiveRatio = 0.5;
+
+    /**
+     * 连续满足扩容条件的周期数, 达到后才扩容
+     */
+    private int growAfterPeriods = 2;
+
+    /**
+     * 连续满足缩容条件的周期数, 达到后才缩容(通常大于{@code growAfterPeriods}, 避免来回抖动)
+     */
+    private int shrinkAfterPeriods = 6;
+
+    public AdaptivePoolPolicy() {
+    }
+
+    public AdaptivePoolPolicy(int minPoolSize, int maxPoolSize) {
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+    }
+}
@@ -0,0 +1,121 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 基于CoDel(Controlled Delay)思路的分组准入控制:
+ * - 以{@code interval}为窗口统计排队耗时(submit -> start)的最小值, 窗口内最小值仍超过{@code targetWait},
+ * 说明RunnableQueue中存在消化不掉的积压(standing queue)而非瞬时突发, 进入shedding状态;
+ * - 可选地同时统计执行耗时的最小值, 超过{@code targetExec}说明下游整体变慢, 同样进入shedding状态;
+ * - shedding期间新提交的task直接抛出{@link LoadSheddingException}快速失败, 不再进入RunnableQueue,
+ * 积压被消化后(或窗口内没有task开始执行)下一个窗口自动恢复;
+ * - 只在提交时读取一次已有的时钟值并判断一个volatile标记, 窗口切换由提交线程CAS完成, 不需要额外的调度线程.
+ * 与CoDel在出队时按控制律逐步加大丢弃频率不同, 这里在入队时丢弃, shedding状态下拒绝全部新提交, 以窗口粒度恢复.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/01 10:00:00.
+ */
+public class AdmissionController implements ExecutorLoggerInner {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 100L;
+
+    private final String group;
+
+    private final long targetWaitNanos;
+
+    /**
+     * 0表示不按执行耗时控制
+     */
+    private final long targetExecNanos;
+
+    private final long intervalNanos;
+
+    private final LongAccumulator minWait = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator minExec = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+
+    private final LongAdder shed = new LongAdder();
+
+    private volatile boolean shedding;
+
+    /**
+     * 进入shedding状态时生成, 避免过载时每次拒绝都格式化异常信息
+     */
+    private volatile String shedMessage;
+
+    public AdmissionController(String group, long targetWaitMillis, long targetExecMillis, long intervalMillis) {
+        Preconditions.checkArgument(targetWaitMillis > 0, "targetWaitMillis must be positive.");
+        Preconditions.checkArgument(targetExecMillis >= 0, "targetExecMillis can not be negative.");
+        Preconditions.checkArgument(intervalMillis > 0, "intervalMillis must be positive.");
+        this.group = group;
+        this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMillis);
+        this.targetExecNanos = TimeUnit.MILLISECONDS.toNanos(targetExecMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * @param nowNanos : 提交时读取的{@code System.nanoTime()}
+     * @throws LoadSheddingException shedding状态下
+     */
+    void admit(long nowNanos) {
+        long start = intervalStart.get();
+        if (nowNanos - start >= intervalNanos && intervalStart.compareAndSet(start, nowNanos)) {
+            evaluate();
+        }
+
+        if (shedding) {
+            shed.increment();
+            throw new LoadSheddingException(group, shedMessage);
+        }
+    }
+
+    void onWait(long waitNanos) {
+        minWait.accumulate(waitNanos);
+    }
+
+    void onExec(long rtNanos) {
+        if (targetExecNanos > 0) {
+            minExec.accumulate(rtNanos);
+        }
+    }
+
+    private void evaluate() {
+        long wait = minWait.getThenReset();
+        long exec = minExec.getThenReset();
+
+        // 窗口内没有task开始执行: 积压已消化或没有流量
+        boolean overloaded = (wait != Long.MAX_VALUE && wait > targetWaitNanos)
+            || (targetExecNanos > 0 && exec != Long.MAX_VALUE && exec > targetExecNanos);
+
+        if (overloaded) {
+            shedMessage = String.format("executor [%s] is shedding load, min wait:[%s]/target:[%s], "
+                    + "min exec:[%s]/target:[%s]", group, format(wait), format(targetWaitNanos), format(exec),
+                targetExecNanos == 0 ? "-" : format(targetExecNanos));
+        }
+        if (overloaded != shedding) {
+            shedding = overloaded;
+            monitor.warn("executor [{}] {} shedding load, min wait:[{}], min exec:[{}], shed:[{}]", group,
+                overloaded ? "start" : "stop", format(wait), format(exec), shed.sum());
+        }
+    }
+
+    private static String format(long nanos) {
+        return nanos == Long.MAX_VALUE ? "-" : String.format("%.3fms", nanos / 1_000_000.0);
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
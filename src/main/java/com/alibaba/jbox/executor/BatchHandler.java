@@ -0,0 +1,34 @@
+package com.alibaba.jbox.executor;
+
+import java.util.List;
+
+/**
+ * {@link BatchingExecutor}攒批后的处理逻辑, 在分组的线程池中执行.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/21 10:10:00.
+ */
+@FunctionalInterface
+public interface BatchHandler<T> {
+
+    /**
+     * @param batch : 按提交顺序排列, 大小不超过{@code maxBatch}
+     */
+    void handle(List<T> batch) throws Exception;
+
+    /**
+     * 逐个执行batch内的task, 单个task异常不影响其他task
+     */
+    BatchHandler<Runnable> RUN_ALL = batch -> {
+        for (Runnable runnable : batch) {
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                String taskInfo = runnable instanceof AsyncRunnable ? ((AsyncRunnable)runnable).taskInfo()
+                    : runnable.getClass().getName();
+                ExecutorLoggerInner.monitor.error("batch task: '{}' execute failed:", taskInfo, t);
+            }
+        }
+    };
+}
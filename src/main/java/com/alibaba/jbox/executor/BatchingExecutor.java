@@ -0,0 +1,238 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.alibaba.jbox.executor.queue.MpscArrayBlockingQueue;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 攒批执行器, 由{@code ExecutorManager.newBatchingExecutor()}创建:
+ * - {@code add()}只将item放入无锁的缓冲队列, 不经过线程池的RunnableQueue与Decorator;
+ * - 缓冲的item数达到{@code maxBatch}(size触发), 或每隔{@code maxLingerMillis}(time触发)时,
+ * 向分组的线程池提交一次flush, 每次flush将item按{@code maxBatch}切分后交给{@link BatchHandler};
+ * - 同一时刻只有一个flush在执行, 因此缓冲队列是单消费者的{@link MpscArrayBlockingQueue};
+ * - 缓冲队列满时{@code add()}阻塞等待, 对提交方形成背压; 但在flush线程内(如{@code BatchHandler}中)调用{@code add()}时,
+ * 当前线程就是唯一的消费者, 改为在当前线程内先处理一批item腾出空间, 避免自己等待自己;
+ * - flush作为一个task执行, 享有与普通task相同的上下文透传与{@code FlightRecorder}统计(即per-batch耗时),
+ * 另外统计batch数、item数以及batch大小分布, 由{@code ExecutorMonitor}输出.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/21 10:30:00.
+ */
+public class BatchingExecutor<T> implements ExecutorLoggerInner {
+
+    private final String group;
+
+    private final int maxBatch;
+
+    private final long maxLingerMillis;
+
+    private final BatchHandler<T> handler;
+
+    private final ExecutorService executor;
+
+    private final BlockingQueue<T> buffer;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * 正在执行flush的线程
+     */
+    private volatile Thread flushThread;
+
+    private final ScheduledFuture<?> lingerFuture;
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder items = new LongAdder();
+
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+
+    private volatile boolean shutdown;
+
+    BatchingExecutor(String group, int maxBatch, long maxLingerMillis, int bufferCapacity, BatchHandler<T> handler,
+                     ExecutorService executor) {
+        Preconditions.checkArgument(maxBatch > 0, "maxBatch must be positive.");
+        Preconditions.checkArgument(maxLingerMillis > 0, "maxLingerMillis must be positive.");
+        Preconditions.checkArgument(bufferCapacity >= maxBatch, "bufferCapacity can not less than maxBatch.");
+
+        this.group = group;
+        this.maxBatch = maxBatch;
+        this.maxLingerMillis = maxLingerMillis;
+        this.handler = Preconditions.checkNotNull(handler);
+        this.executor = executor;
+        this.buffer = new MpscArrayBlockingQueue<>(bufferCapacity);
+        this.lingerFuture = ExecutorTimer.TIMER.scheduleAtFixedRate(this::onLinger,
+            maxLingerMillis, maxLingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 缓冲队列满时阻塞, 直到flush腾出空间.
+     */
+    public void add(T item) {
+        Preconditions.checkState(!shutdown, "batching executor [%s] has been shutdown.", group);
+        Preconditions.checkNotNull(item);
+
+        if (!buffer.offer(item)) {
+            if (Thread.currentThread() == flushThread) {
+                // 重入: 阻塞会使唯一的消费者等待自己
+                do {
+                    drainBatch();
+                } while (!buffer.offer(item));
+            } else {
+                scheduleFlush();
+                try {
+                    buffer.put(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExecutorException(e);
+                }
+            }
+        }
+
+        if (buffer.size() >= maxBatch) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 立即提交一次flush(异步)
+     */
+    public void flush() {
+        if (!buffer.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    private void onLinger() {
+        if (!buffer.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                flushScheduled.set(false);
+                monitor.error("batching executor [{}] schedule flush failed", group, e);
+            }
+        }
+    }
+
+    private void drain() {
+        flushThread = Thread.currentThread();
+        try {
+            int drained;
+            do {
+                drained = drainBatch();
+                // 只继续处理满的batch, 不足maxBatch的留给linger触发
+            } while (drained == maxBatch && buffer.size() >= maxBatch);
+        } finally {
+            flushThread = null;
+            flushScheduled.set(false);
+        }
+
+        // 释放flag与add()之间的竞争: 期间可能已攒满一批
+        if (buffer.size() >= maxBatch) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * @return 本次处理的item数
+     */
+    private int drainBatch() {
+        // handler可能持有batch的引用, 每次新建
+        List<T> batch = new ArrayList<>(Math.min(maxBatch, buffer.size()));
+        buffer.drainTo(batch, maxBatch);
+        if (!batch.isEmpty()) {
+            handle(batch);
+        }
+        return batch.size();
+    }
+
+    private void handle(List<T> batch) {
+        batches.increment();
+        items.add(batch.size());
+        batchSizes.record(batch.size());
+        try {
+            handler.handle(batch);
+        } catch (Throwable t) {
+            monitor.error("batching executor [{}] handle batch of size [{}] failed", group, batch.size(), t);
+        }
+    }
+
+    private void drainAll() {
+        while (!buffer.isEmpty()) {
+            List<T> batch = new ArrayList<>(maxBatch);
+            if (buffer.drainTo(batch, maxBatch) > 0) {
+                handle(batch);
+            } else {
+                // 另一个flush正在消费
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * 停止攒批, 剩余item作为最后一次flush提交(排在已提交的flush之后), 随后关闭线程池.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        lingerFuture.cancel(false);
+
+        try {
+            executor.execute(this::drainAll);
+        } catch (RejectedExecutionException e) {
+            drainAll();
+        }
+        executor.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    public long getMaxLingerMillis() {
+        return maxLingerMillis;
+    }
+
+    int getBuffered() {
+        return buffer.size();
+    }
+
+    long getBatchCount() {
+        return batches.sum();
+    }
+
+    long getItemCount() {
+        return items.sum();
+    }
+
+    LatencyHistogram getBatchSizes() {
+        return batchSizes;
+    }
+}
@@ -0,0 +1,55 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * 一个分组在{@link ShutdownCoordinator}关闭过程中的排空结果.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/27 10:20:00.
+ */
+@Data
+public class DrainReport {
+
+    private String group;
+
+    private int order;
+
+    /**
+     * 是否在deadline前全部执行完毕
+     */
+    private boolean terminated;
+
+    /**
+     * 关闭期间执行完成(成功+失败)的task数
+     */
+    private long completed;
+
+    /**
+     * deadline到达时仍在RunnableQueue中, 被丢弃的task数(不含已持久化的)
+     */
+    private int dropped;
+
+    /**
+     * 被持久化, 可在下次启动时重放的task数
+     */
+    private int persisted;
+
+    /**
+     * deadline到达时仍在执行中的task数
+     */
+    private int running;
+
+    private List<String> runningTasks = new ArrayList<>();
+
+    /**
+     * 被丢弃的task的{@code taskInfo()}, 最多{@code ShutdownCoordinator.MAX_REPORTED_TASKS}个
+     */
+    private List<String> droppedTasks = new ArrayList<>();
+
+    private long costMillis;
+}
@@ -0,0 +1,166 @@
+package com.alibaba.jbox.executor;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/17 11:40:00.
+ */
+class ExecutorGroupMBean implements ExecutorGroupMXBean {
+
+    private static final GroupMetrics EMPTY = new GroupMetrics();
+
+    private final String group;
+
+    private final ExecutorMetricsRegistry registry;
+
+    ExecutorGroupMBean(String group, ExecutorMetricsRegistry registry) {
+        this.group = group;
+        this.registry = registry;
+    }
+
+    private GroupMetrics metrics() {
+        GroupMetrics metrics = registry.get(group);
+        return metrics == null ? EMPTY : metrics;
+    }
+
+    private int intValue(ToIntFunction<GroupMetrics> getter) {
+        return getter.applyAsInt(metrics());
+    }
+
+    private long longValue(ToLongFunction<GroupMetrics> getter) {
+        return getter.applyAsLong(metrics());
+    }
+
+    private double doubleValue(ToDoubleFunction<GroupMetrics> getter) {
+        return getter.applyAsDouble(metrics());
+    }
+
+    @Override
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public String getKind() {
+        return metrics().getKind();
+    }
+
+    @Override
+    public long getCollectTime() {
+        return longValue(GroupMetrics::getCollectTime);
+    }
+
+    @Override
+    public int getPoolSize() {
+        return intValue(GroupMetrics::getPoolSize);
+    }
+
+    @Override
+    public int getActiveCount() {
+        return intValue(GroupMetrics::getActiveCount);
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return intValue(GroupMetrics::getCorePoolSize);
+    }
+
+    @Override
+    public int getMaxPoolSize() {
+        return intValue(GroupMetrics::getMaxPoolSize);
+    }
+
+    @Override
+    public int getQueued() {
+        return intValue(GroupMetrics::getQueued);
+    }
+
+    @Override
+    public int getRemains() {
+        return intValue(GroupMetrics::getRemains);
+    }
+
+    @Override
+    public double getOldestQueuedMillis() {
+        return doubleValue(GroupMetrics::getOldestQueuedMillis);
+    }
+
+    @Override
+    public long getInFlight() {
+        return longValue(GroupMetrics::getInFlight);
+    }
+
+    @Override
+    public long getSuccess() {
+        return longValue(GroupMetrics::getSuccess);
+    }
+
+    @Override
+    public long getFailure() {
+        return longValue(GroupMetrics::getFailure);
+    }
+
+    @Override
+    public long getExpired() {
+        return longValue(GroupMetrics::getExpired);
+    }
+
+    @Override
+    public long getBlocked() {
+        return longValue(GroupMetrics::getBlocked);
+    }
+
+    @Override
+    public double getBlockedMillis() {
+        return doubleValue(GroupMetrics::getBlockedMillis);
+    }
+
+    @Override
+    public long getRejected() {
+        return longValue(GroupMetrics::getRejected);
+    }
+
+    @Override
+    public long getTps() {
+        return longValue(GroupMetrics::getTps);
+    }
+
+    @Override
+    public double getRtMillis() {
+        return doubleValue(GroupMetrics::getRtMillis);
+    }
+
+    @Override
+    public double getWaitMillis() {
+        return doubleValue(GroupMetrics::getWaitMillis);
+    }
+
+    @Override
+    public double getWaitP50Millis() {
+        return metrics().waitPercentileMillis(50);
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return metrics().waitPercentileMillis(99);
+    }
+
+    @Override
+    public double getExecP50Millis() {
+        return metrics().execPercentileMillis(50);
+    }
+
+    @Override
+    public double getExecP99Millis() {
+        return metrics().execPercentileMillis(99);
+    }
+
+    @Override
+    public double getExecP999Millis() {
+        return metrics().execPercentileMillis(99.9);
+    }
+}
@@ -0,0 +1,62 @@
+package com.alibaba.jbox.executor;
+
+/**
+ * 线程池分组的JMX视图, 数据来自{@link ExecutorMetricsRegistry}最近一次采集的{@link GroupMetrics},
+ * 不适用于当前分组类型的指标值为{@code -1}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/17 11:30:00.
+ */
+public interface ExecutorGroupMXBean {
+
+    String getGroup();
+
+    String getKind();
+
+    long getCollectTime();
+
+    int getPoolSize();
+
+    int getActiveCount();
+
+    int getCorePoolSize();
+
+    int getMaxPoolSize();
+
+    int getQueued();
+
+    int getRemains();
+
+    double getOldestQueuedMillis();
+
+    long getInFlight();
+
+    long getSuccess();
+
+    long getFailure();
+
+    long getExpired();
+
+    long getBlocked();
+
+    double getBlockedMillis();
+
+    long getRejected();
+
+    long getTps();
+
+    double getRtMillis();
+
+    double getWaitMillis();
+
+    double getWaitP50Millis();
+
+    double getWaitP99Millis();
+
+    double getExecP50Millis();
+
+    double getExecP99Millis();
+
+    double getExecP999Millis();
+}
@@ -1,25 +1,34 @@
 package com.alibaba.jbox.executor;
 
 import java.io.Serializable;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.PreDestroy;
 
+import com.alibaba.jbox.executor.context.ContextPropagators;
+import com.alibaba.jbox.executor.policy.BulkheadPolicy;
 import com.alibaba.jbox.executor.policy.CallerRunsPolicy;
+import com.alibaba.jbox.executor.policy.DiscardExpiredPolicy;
+import com.alibaba.jbox.executor.policy.ExpiredTaskHandler;
 import com.alibaba.jbox.scheduler.ScheduleTask;
 
+import com.google.common.collect.MapMaker;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -32,28 +41,56 @@ import lombok.Data;
  * - 4) 提供{@code com.alibaba.jbox.executor.policy}线程拒绝策略, 在{@code RunnableQueue}满时打印日志;
  * - 5) 添加{@code ExecutorMonitor}监控: 将线程池监控日志打印到{@code 'executor-monitor'}这个{@code Logger}下, 打印内容包含:
  * * -> 5.a) 线程组信息: 'group', 'pool count', 'active count', 'core pool count', 'max pool count'
- * * -> 5.b) 线程组执行信息: 'success', 'failure', 'rt', 'tps'
+ * * -> 5.b) 线程组执行信息: 'success', 'failure', 'rt', 'tps', 排队耗时/执行耗时的'p50/p90/p99/p999/max'
  * * -> 5.c) RunnableQueue信息: 'queues:被阻塞在Queue内任务数量', 'remains:Queue尚余空间'
  * * -> 5.d) 被阻塞的任务detail信息: 'taskInfo()', 实例id
  *
  * 2. 封装{@code java.lang.Runnable}为{@code AsyncRunnable}, 描述信息详见{@link AsyncRunnable};
  * 3. 封装{@code java.util.concurrent.Callable}为{@code AsyncCallable}, 描述信息详见{@link AsyncCallable};
  * 4. 可通过{@code setSyncInvoke()}方法将提交到线程池内的task在主线程中同步执行, 便于debug业务逻辑或其他场景, 详见{@link SyncInvokeExecutorService},
- * 目前暂时不支持{@code ScheduledExecutorService}实现;
+ * {@code ScheduledExecutorService}仅在分组自身开启sync时返回基于虚拟时钟的{@link VirtualTimeScheduledExecutorService}(不受{@code sync-all}影响);
  * 5. 如果将{@code ExecutorManager}注册为SpringBean, 会在应用关闭时自动将线程池关闭掉, 防止线程池未关导致应用下线不成功的bug;
+ * 6. 返回的线程池为{@link ManagedExecutorService}/{@link ManagedScheduledExecutorService}, 直接委托而非JDK动态代理实现;
+ * 7. 开放{@code newAdaptiveThreadPool()}方法, 由{@link AdaptivePoolController}根据负载在上下界内自动调节core pool size;
+ * 8. 开放{@code newVirtualThreadExecutor()}方法, 也可通过{@code setVirtualThread()}将分组切换为虚拟线程实现;
+ * 9. 开放{@code newWorkStealingPool()}方法, 返回命名、受监控的{@link ManagedForkJoinPool}(sync模式下为{@link SyncInvokeExecutorService});
+ * 10. 可通过{@link RunnableQueueType}指定RunnableQueue实现, 如无锁的MPMC/MPSC有界队列;
+ * 11. 开放{@code newPriorityThreadPool()}方法, 按{@link PriorityTask}的优先级与deadline调度, 丢弃过期task;
+ * 12. 提供{@link BulkheadPolicy}拒绝策略: 提交线程限时等待RunnableQueue空间, 超时后快速失败;
+ * 13. 开放{@code newBatchingExecutor()}方法, 将大量细小的task攒批后在分组线程池中执行, 详见{@link BatchingExecutor};
+ * 14. 开放{@code newKeyedSerialExecutor()}方法, 同一key的task按FIFO串行、不同key并行, 详见{@link KeyedSerialExecutor};
+ * 15. 上下文透传可通过{@link ContextPropagators}扩展, 并可通过{@code setContextPropagation()}按分组关闭;
+ * 16. {@link ManagedExecutorService#supplyAsync}/{@code runAsync()}返回绑定在分组上的{@link ManagedCompletableFuture};
+ * 17. 应用关闭时由{@link ShutdownCoordinator}按{@code setShutdownOrder()}的顺序在全局deadline内排空各分组, 并输出{@link DrainReport};
+ * 18. 线程数、keepAlive、拒绝策略、RunnableQueue容量可通过Diamond配置热更新, 详见{@link ExecutorReconfigurer};
+ * 19. 抽样统计各分组task消耗的CPU时间与分配的内存, 可通过{@code setResourceSampleInterval()}调整抽样频率;
+ * 20. 由{@link StuckTaskDetector}检测执行超时的task并打印线程栈, 可通过{@code setStuckThreshold()}按分组配置阈值与interrupt;
+ * 21. 可通过{@code setAdmissionControl()}开启基于排队/执行耗时的准入控制, 过载时快速失败, 详见{@link AdmissionController};
  *
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.3
+ * @version 1.19
  * @since 2017/1/16 14:15:00.
  */
 public class ExecutorManager implements ExecutorLoggerInner {
 
     private static final String SYNC_PATTERN = "sync-%s";
 
+    private static final String VIRTUAL_PATTERN = "virtual-%s";
+
+    private static final int BATCH_BUFFER_FACTOR = 16;
+
     static ConcurrentMap<String, FlightRecorder> recorders = new ConcurrentHashMap<>();
 
     static ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<>();
 
+    static ConcurrentMap<String, BatchingExecutor<?>> batchingExecutors = new ConcurrentHashMap<>();
+
+    static ConcurrentMap<String, KeyedSerialExecutor> keyedExecutors = new ConcurrentHashMap<>();
+
+    private long shutdownTimeoutMillis = ShutdownCoordinator.DEFAULT_TIMEOUT_MILLIS;
+
+    private String undrainedFile;
+
     // ---- * ThreadPoolExecutor * ---- //
 
     public static ExecutorService newFixedMinMaxThreadPool(String group, int minPoolSize, int maxPoolSize,
@@ -66,8 +103,29 @@ public class ExecutorManager implements ExecutorLoggerInner {
     public static ExecutorService newFixedMinMaxThreadPool(String group, int minPoolSize, int maxPoolSize,
                                                            int runnableQueueSize,
                                                            RejectedExecutionHandler rejectHandler) {
+        return newFixedMinMaxThreadPool(group, minPoolSize, maxPoolSize, runnableQueueSize, RunnableQueueType.ARRAY,
+            rejectHandler);
+    }
+
+    /**
+     * @param queueType : RunnableQueue实现, 高并发提交时可使用{@code RunnableQueueType.MPMC}降低队列锁竞争.
+     * @since 1.8
+     */
+    public static ExecutorService newFixedMinMaxThreadPool(String group, int minPoolSize, int maxPoolSize,
+                                                           int runnableQueueSize, RunnableQueueType queueType) {
+        return newFixedMinMaxThreadPool(group, minPoolSize, maxPoolSize, runnableQueueSize, queueType,
+            new CallerRunsPolicy(group));
+    }
+
+    public static ExecutorService newFixedMinMaxThreadPool(String group, int minPoolSize, int maxPoolSize,
+                                                           int runnableQueueSize, RunnableQueueType queueType,
+                                                           RejectedExecutionHandler rejectHandler) {
         return executors.computeIfAbsent(group, (key) -> {
-            BlockingQueue<Runnable> runnableQueue = new ArrayBlockingQueue<>(runnableQueueSize);
+            if (isVirtualThread(group)) {
+                return createManagedExecutor(group, new VirtualThreadExecutorService(group, maxPoolSize));
+            }
+
+            BlockingQueue<Runnable> runnableQueue = queueType.newQueue(runnableQueueSize);
 
             ThreadFactory threadFactory = new NamedThreadFactory(group);
 
@@ -77,26 +135,181 @@ public class ExecutorManager implements ExecutorLoggerInner {
                 threadFactory,
                 rejectHandler);
 
-            return createExecutorProxy(group, threadPoolExecutor, ExecutorService.class);
+            return createManagedExecutor(group, threadPoolExecutor);
+        });
+    }
+
+    // ---- * adaptive ThreadPoolExecutor * ---- //
+
+    /**
+     * 创建一个core pool size可由{@link AdaptivePoolController}根据负载自动调节的线程池,
+     * 需要{@code TaskScheduler}中注册了{@code AdaptivePoolController.INSTANCE}(注册{@code ExecutorMonitor}时会自动注册).
+     *
+     * @since 1.5
+     */
+    public static ExecutorService newAdaptiveThreadPool(String group, AdaptivePoolPolicy policy,
+                                                        int runnableQueueSize) {
+        return newAdaptiveThreadPool(group, policy, runnableQueueSize, new CallerRunsPolicy(group));
+    }
+
+    public static ExecutorService newAdaptiveThreadPool(String group, AdaptivePoolPolicy policy,
+                                                        int runnableQueueSize,
+                                                        RejectedExecutionHandler rejectHandler) {
+        return executors.computeIfAbsent(group, (key) -> {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                policy.getMinPoolSize(), policy.getMaxPoolSize(),
+                policy.getKeepAliveMillis(), TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(runnableQueueSize),
+                new NamedThreadFactory(group),
+                rejectHandler);
+
+            ExecutorService executor = createManagedExecutor(group, threadPoolExecutor);
+            if (executor instanceof ManagedExecutorService) {
+                AdaptivePoolController.register(group, threadPoolExecutor, policy);
+            }
+            return executor;
+        });
+    }
+
+    // ---- * priority ThreadPoolExecutor * ---- //
+
+    /**
+     * 创建一个按{@link PriorityTask}的优先级与deadline调度task的线程池, 详见{@link PriorityThreadPoolExecutor}.
+     *
+     * @since 1.9
+     */
+    public static ExecutorService newPriorityThreadPool(String group, int minPoolSize, int maxPoolSize,
+                                                        int runnableQueueSize) {
+        return newPriorityThreadPool(group, minPoolSize, maxPoolSize, runnableQueueSize,
+            new CallerRunsPolicy(group), new DiscardExpiredPolicy(group));
+    }
+
+    public static ExecutorService newPriorityThreadPool(String group, int minPoolSize, int maxPoolSize,
+                                                        int runnableQueueSize,
+                                                        RejectedExecutionHandler rejectHandler,
+                                                        ExpiredTaskHandler expiredHandler) {
+        return executors.computeIfAbsent(group, (key) -> {
+            ThreadPoolExecutor threadPoolExecutor = new PriorityThreadPoolExecutor(group, minPoolSize, maxPoolSize,
+                ScheduleTask.HALF_AN_HOUR_INTERVAL, runnableQueueSize,
+                new NamedThreadFactory(group),
+                rejectHandler, expiredHandler);
+
+            return createManagedExecutor(group, threadPoolExecutor);
         });
     }
 
     // ---- * newCachedThreadPool * ---- //
     public static ExecutorService newCachedThreadPool(String group) {
         return executors.computeIfAbsent(group, (key) -> {
+            if (isVirtualThread(group)) {
+                return createManagedExecutor(group, new VirtualThreadExecutorService(group, 0));
+            }
+
             ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory(group));
-            return createExecutorProxy(group, executor, ExecutorService.class);
+            return createManagedExecutor(group, executor);
         });
     }
 
     // ---- * newFixedThreadPool * ---- //
     public static ExecutorService newFixedThreadPool(String group, int poolSize) {
         return executors.computeIfAbsent(group, (key) -> {
+            if (isVirtualThread(group)) {
+                return createManagedExecutor(group, new VirtualThreadExecutorService(group, poolSize));
+            }
+
             ExecutorService executor = Executors.newFixedThreadPool(poolSize, new NamedThreadFactory(group));
-            return createExecutorProxy(group, executor, ExecutorService.class);
+            return createManagedExecutor(group, executor);
         });
     }
 
+    // ---- * newVirtualThreadExecutor * ---- //
+
+    /**
+     * 每个task一个虚拟线程(JDK不支持时退化为平台线程), 详见{@link VirtualThreadExecutorService}.
+     *
+     * @since 1.6
+     */
+    public static ExecutorService newVirtualThreadExecutor(String group) {
+        return newVirtualThreadExecutor(group, 0);
+    }
+
+    /**
+     * @param maxConcurrency : 同时运行的task数上限, 0表示不限制.
+     * @since 1.6
+     */
+    public static ExecutorService newVirtualThreadExecutor(String group, int maxConcurrency) {
+        return executors.computeIfAbsent(group,
+            (key) -> createManagedExecutor(group, new VirtualThreadExecutorService(group, maxConcurrency)));
+    }
+
+    // ---- * newWorkStealingPool * ---- //
+
+    /**
+     * 创建一个{@code ForkJoinPool}(LIFO模式, 适合递归拆分的task), 非sync模式下返回{@link ManagedForkJoinPool},
+     * 可通过其{@code invoke()}/{@code submit()}提交{@code ForkJoinTask}.
+     * - 分组开启sync(含{@code sync-all})时返回的是{@link SyncInvokeExecutorService}, 并非{@link ManagedForkJoinPool},
+     * 需要提交{@code ForkJoinTask}的调用方应先以{@code instanceof}判断, 不能直接强转;
+     * - 同一分组已创建过其他类型的线程池时, 直接返回已有实例, 同样不是{@link ManagedForkJoinPool}.
+     *
+     * @since 1.7
+     */
+    public static ExecutorService newWorkStealingPool(String group, int parallelism) {
+        return executors.computeIfAbsent(group, (key) -> {
+            ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism,
+                new ManagedForkJoinPool.NamedForkJoinWorkerThreadFactory(group),
+                NamedThreadFactory.exceptionHandler, false);
+
+            if (isSyncInvoke(group)) {
+                return createManagedExecutor(group, forkJoinPool);
+            }
+            return new ManagedForkJoinPool(group, forkJoinPool);
+        });
+    }
+
+    // ---- * newBatchingExecutor * ---- //
+
+    /**
+     * 攒批执行{@code Runnable}: 每批task在分组的线程池中由同一个线程依次执行.
+     *
+     * @param maxBatch        : 每批最多的task数, 攒满即触发flush
+     * @param maxLingerMillis : task在缓冲中的最长等待时间
+     * @since 1.11
+     */
+    public static BatchingExecutor<Runnable> newBatchingExecutor(String group, int maxBatch, long maxLingerMillis) {
+        return newBatchingExecutor(group, maxBatch, maxLingerMillis, BatchHandler.RUN_ALL);
+    }
+
+    /**
+     * 攒批后的item交给{@code handler}批量处理, 如批量写DB、批量RPC.
+     * 缓冲容量为{@code maxBatch * BATCH_BUFFER_FACTOR}, 满时提交线程阻塞.
+     *
+     * @since 1.11
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BatchingExecutor<T> newBatchingExecutor(String group, int maxBatch, long maxLingerMillis,
+                                                              BatchHandler<T> handler) {
+        return (BatchingExecutor<T>)batchingExecutors.computeIfAbsent(group, (key) -> {
+            // 同一时刻只有一个flush在执行, 单线程足够
+            ExecutorService executor = newSingleThreadExecutor(group);
+            return new BatchingExecutor<>(group, maxBatch, maxLingerMillis, maxBatch * BATCH_BUFFER_FACTOR, handler,
+                executor);
+        });
+    }
+
+    // ---- * newKeyedSerialExecutor * ---- //
+
+    /**
+     * 同一key的task按提交顺序串行执行, 不同key的task在{@code poolSize}个线程中并行,
+     * 用于替代为每个实体创建{@code newSingleThreadExecutor()}分组的写法.
+     *
+     * @param maxQueuePerKey : 每个key最多积压的task数, 超过时抛出{@code RejectedExecutionException}
+     * @since 1.12
+     */
+    public static KeyedSerialExecutor newKeyedSerialExecutor(String group, int poolSize, int maxQueuePerKey) {
+        return keyedExecutors.computeIfAbsent(group,
+            (key) -> new KeyedSerialExecutor(group, maxQueuePerKey, newFixedThreadPool(group, poolSize)));
+    }
+
     // ---- * newScheduledThreadPool * ---- //
     public static ScheduledExecutorService newScheduledThreadPool(String group, int corePoolSize) {
         return (ScheduledExecutorService)executors.computeIfAbsent(group, (key) -> {
@@ -104,7 +317,7 @@ public class ExecutorManager implements ExecutorLoggerInner {
             ScheduledExecutorService executor = Executors.newScheduledThreadPool(corePoolSize,
                 new NamedThreadFactory(group));
 
-            return createExecutorProxy(group, executor, ScheduledExecutorService.class);
+            return createManagedScheduledExecutor(group, executor);
         });
     }
 
@@ -112,7 +325,24 @@ public class ExecutorManager implements ExecutorLoggerInner {
     public static ExecutorService newSingleThreadExecutor(String group) {
         return executors.computeIfAbsent(group, (key) -> {
             ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory(group));
-            return createExecutorProxy(group, executor, ExecutorService.class);
+            return createManagedExecutor(group, executor);
+        });
+    }
+
+    /**
+     * 有界RunnableQueue的单线程分组, 可使用{@code RunnableQueueType.MPSC}.
+     *
+     * @since 1.8
+     */
+    public static ExecutorService newSingleThreadExecutor(String group, int runnableQueueSize,
+                                                          RunnableQueueType queueType) {
+        return executors.computeIfAbsent(group, (key) -> {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                queueType.newQueue(runnableQueueSize),
+                new NamedThreadFactory(group),
+                new CallerRunsPolicy(group));
+            return createManagedExecutor(group, executor);
         });
     }
 
@@ -123,23 +353,30 @@ public class ExecutorManager implements ExecutorLoggerInner {
             ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
                 new NamedThreadFactory(group));
 
-            return createExecutorProxy(group, executor, ScheduledExecutorService.class);
+            return createManagedScheduledExecutor(group, executor);
         });
     }
 
-    private static <T> T createExecutorProxy(String group, ExecutorService target, Class<T> interfaceType) {
-        if (isSyncInvoke(group) && !(target instanceof ScheduledExecutorService)) {
+    private static ExecutorService createManagedExecutor(String group, ExecutorService target) {
+        if (isSyncInvoke(group)) {
             target.shutdownNow();
-            return interfaceType.cast(new SyncInvokeExecutorService());
+            return new SyncInvokeExecutorService();
         }
 
-        return interfaceType.cast(
-            Proxy.newProxyInstance(
-                interfaceType.getClass().getClassLoader(),
-                new Class[] {interfaceType},
-                new RunnableDecoratorInterceptor(group, target)
-            )
-        );
+        ManagedExecutorService executor = new ManagedExecutorService(group, target);
+        ExecutorReconfigurer.onCreated(group, executor);
+        return executor;
+    }
+
+    private static ScheduledExecutorService createManagedScheduledExecutor(String group,
+                                                                           ScheduledExecutorService target) {
+        // @since 1.19: 只响应分组自身的sync开关, sync-all下jbox内部的TaskScheduler等仍需真实时钟驱动
+        if (isGroupSyncInvoke(group)) {
+            target.shutdownNow();
+            return new VirtualTimeScheduledExecutorService();
+        }
+
+        return new ManagedScheduledExecutorService(group, target);
     }
 
     private static boolean isSyncInvoke(String group) {
@@ -148,6 +385,10 @@ public class ExecutorManager implements ExecutorLoggerInner {
             return true;
         }
 
+        return isGroupSyncInvoke(group);
+    }
+
+    private static boolean isGroupSyncInvoke(String group) {
         return Boolean.getBoolean(String.format(SYNC_PATTERN, group));
     }
 
@@ -155,15 +396,130 @@ public class ExecutorManager implements ExecutorLoggerInner {
         System.setProperty(String.format(SYNC_PATTERN, group), String.valueOf(sync));
     }
 
+    private static boolean isVirtualThread(String group) {
+        boolean virtualAll = Boolean.getBoolean(String.format(VIRTUAL_PATTERN, "all"));
+        if (virtualAll) {
+            return true;
+        }
+
+        return Boolean.getBoolean(String.format(VIRTUAL_PATTERN, group));
+    }
+
+    /**
+     * 开启后该分组通过{@code newFixedMinMaxThreadPool()}/{@code newFixedThreadPool()}/{@code newCachedThreadPool()}
+     * 创建的线程池改为使用虚拟线程, 原max pool size作为并发上限, 需在线程池创建前设置.
+     *
+     * @since 1.6
+     */
+    public static void setVirtualThread(String group, boolean virtual) {
+        System.setProperty(String.format(VIRTUAL_PATTERN, group), String.valueOf(virtual));
+    }
+
+    /**
+     * 关闭后该分组的task不再透传RpcContext/MDC traceId等上下文, 对已创建的线程池同样生效.
+     *
+     * @since 1.13
+     */
+    public static void setContextPropagation(String group, boolean enabled) {
+        ContextPropagators.setEnabled(group, enabled);
+    }
+
+    /**
+     * 供{@code com.alibaba.jbox.executor.policy}中的拒绝策略记录提交线程被阻塞的耗时.
+     *
+     * @since 1.10
+     */
+    public static void recordBlocked(String group, long blockedNanos) {
+        recorders.computeIfAbsent(group, (k) -> new FlightRecorder()).recordBlocked(blockedNanos);
+    }
+
+    /**
+     * @since 1.10
+     */
+    public static void recordRejected(String group) {
+        recorders.computeIfAbsent(group, (k) -> new FlightRecorder()).recordRejected();
+    }
+
+    /**
+     * 每个task以{@code 1/interval}的概率被抽样, 统计其消耗的CPU时间与分配的内存, 0表示关闭,
+     * 默认{@code ThreadResourceSampler.DEFAULT_INTERVAL}, 详见{@link ThreadResourceSampler}.
+     *
+     * @since 1.16
+     */
+    public static void setResourceSampleInterval(int interval) {
+        ThreadResourceSampler.setInterval(interval);
+    }
+
+    /**
+     * 执行时长超过{@code thresholdMillis}的task会连同线程栈打印到{@code 'executor-monitor'}, 0表示该分组不检测,
+     * 默认{@code StuckTaskDetector.DEFAULT_THRESHOLD_MILLIS}, 详见{@link StuckTaskDetector}.
+     *
+     * @param interrupt : 是否interrupt超时task的执行线程
+     * @since 1.17
+     */
+    public static void setStuckThreshold(String group, long thresholdMillis, boolean interrupt) {
+        StuckTaskDetector.setThreshold(group, thresholdMillis, interrupt);
+    }
+
+    /**
+     * 开启分组的准入控制: 窗口内的最小排队耗时超过{@code targetWaitMillis}(或最小执行耗时超过{@code targetExecMillis})时,
+     * 新提交的task抛出{@link LoadSheddingException}快速失败, 详见{@link AdmissionController}.
+     *
+     * @param targetExecMillis : 0表示不按执行耗时控制
+     * @since 1.18
+     */
+    public static void setAdmissionControl(String group, long targetWaitMillis, long targetExecMillis) {
+        setAdmissionControl(group, targetWaitMillis, targetExecMillis, AdmissionController.DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public static void setAdmissionControl(String group, long targetWaitMillis, long targetExecMillis,
+                                           long intervalMillis) {
+        AdmissionController admission = new AdmissionController(group, targetWaitMillis, targetExecMillis,
+            intervalMillis);
+        recorders.computeIfAbsent(group, (k) -> new FlightRecorder()).setAdmission(admission);
+    }
+
+    /**
+     * @since 1.18
+     */
+    public static void removeAdmissionControl(String group) {
+        FlightRecorder recorder = recorders.get(group);
+        if (recorder != null) {
+            recorder.setAdmission(null);
+        }
+    }
+
+    /**
+     * 应用关闭时分组的关闭顺序, 小的先关, 同一顺序的分组并行排空, 默认{@code ShutdownCoordinator.DEFAULT_ORDER}.
+     *
+     * @since 1.14
+     */
+    public static void setShutdownOrder(String group, int order) {
+        ShutdownCoordinator.setOrder(group, order);
+    }
+
+    /**
+     * @param shutdownTimeoutMillis : 所有分组共享的排空deadline, 超时后未执行的task被丢弃(或持久化)
+     * @since 1.14
+     */
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    /**
+     * @param undrainedFile : 超时未执行的{@code Serializable} AsyncRunnable的持久化文件, 通过{@code ShutdownCoordinator.replay()}重放
+     * @since 1.14
+     */
+    public void setUndrainedFile(String undrainedFile) {
+        this.undrainedFile = undrainedFile;
+    }
+
     @PreDestroy
     public void destroy() {
-        executors.entrySet().stream()
-            .filter(entry -> !entry.getValue().isShutdown())
-            .forEach(entry -> {
-                entry.getValue().shutdown();
-                monitor.info("executor [{}] is shutdown", entry.getKey());
-                logger.info("executor [{}] is shutdown", entry.getKey());
-            });
+        // 先将缓冲中的item flush到线程池, 再关闭线程池
+        batchingExecutors.values().forEach(BatchingExecutor::shutdown);
+
+        new ShutdownCoordinator(shutdownTimeoutMillis, undrainedFile).shutdown(executors);
     }
 
     @Data
@@ -172,16 +528,322 @@ public class ExecutorManager implements ExecutorLoggerInner {
 
         private static final long serialVersionUID = -8342765829706151410L;
 
-        private AtomicLong success;
+        /*
+         * 每个task完成时都会更新下面的计数器, 在大线程数的线程池中使用AtomicLong会使所在的cache line成为热点,
+         * 因此使用分段累加的LongAdder(其Cell已做padding, 避免false sharing), 由ExecutorMonitor周期性地sum().
+         */
+        private LongAdder success;
+
+        private LongAdder failure;
+
+        /**
+         * task执行总耗时(ns)
+         */
+        private LongAdder totalRt;
+
+        /**
+         * task排队总耗时(ns)
+         */
+        private LongAdder totalWait;
+
+        /**
+         * 统计了排队耗时的task数
+         */
+        private LongAdder waited;
+
+        /**
+         * 开始执行时已超过deadline而被丢弃的task数, 详见{@link PriorityTask}
+         */
+        private LongAdder expired;
+
+        /**
+         * RunnableQueue满时提交线程被阻塞的次数与总耗时(ns), 详见{@link BulkheadPolicy}
+         */
+        private LongAdder blocked;
+
+        private LongAdder totalBlocked;
+
+        /**
+         * 等待超时后被拒绝的task数
+         */
+        private LongAdder rejected;
+
+        /**
+         * task排队耗时分布(us): submit -> start
+         */
+        private LatencyHistogram waitHistogram;
+
+        /**
+         * task执行耗时分布(us): start -> end
+         */
+        private LatencyHistogram rtHistogram;
+
+        /**
+         * 被{@link StuckTaskDetector}判定为执行超时的task数, 及其中被interrupt的task数
+         */
+        private LongAdder stuck;
+
+        private LongAdder interrupted;
+
+        /**
+         * 抽样统计的task数, 以及这些task消耗的CPU时间(ns)与分配的内存(bytes), 详见{@link ThreadResourceSampler}
+         */
+        private LongAdder resourceSampled;
+
+        private LongAdder cpuTime;
+
+        private LongAdder allocated;
+
+        /**
+         * 分组的准入控制, 未开启时为null, 详见{@link AdmissionController}
+         */
+        private transient volatile AdmissionController admission;
 
-        private AtomicLong failure;
+        /**
+         * 各工作线程的执行槽位, 记录正在执行的task(Decorator)及资源抽样起点:
+         * 每个线程只在第一次执行task时分配一个槽位, 之后只修改槽位字段, 不再分配对象.
+         * 槽位挂在线程的ThreadLocal上, 供监控/关闭线程遍历的{@code running}以弱引用持有线程,
+         * 线程结束后槽位随之回收(虚拟线程等每个task一个线程的分组不会使其无限增长).
+         */
+        private transient ThreadLocal<RunningSlot> localSlot;
 
-        private AtomicLong totalRt;
+        private transient ConcurrentMap<Thread, RunningSlot> running;
 
         public FlightRecorder() {
-            this.success = new AtomicLong(0L);
-            this.failure = new AtomicLong(0L);
-            this.totalRt = new AtomicLong(0L);
+            this.success = new LongAdder();
+            this.failure = new LongAdder();
+            this.totalRt = new LongAdder();
+            this.totalWait = new LongAdder();
+            this.waited = new LongAdder();
+            this.expired = new LongAdder();
+            this.blocked = new LongAdder();
+            this.totalBlocked = new LongAdder();
+            this.rejected = new LongAdder();
+            this.waitHistogram = new LatencyHistogram();
+            this.rtHistogram = new LatencyHistogram();
+            this.stuck = new LongAdder();
+            this.interrupted = new LongAdder();
+            this.resourceSampled = new LongAdder();
+            this.cpuTime = new LongAdder();
+            this.allocated = new LongAdder();
+            this.localSlot = new ThreadLocal<>();
+            this.running = new MapMaker().weakKeys().makeMap();
+        }
+
+        /**
+         * @param startNanos : task开始执行的{@code System.nanoTime()}, 嵌套执行的task沿用外层task的开始时间
+         * @return 当前线程之前正在执行的task(如CallerRunsPolicy下的外层task), 需传给{@code recordEnd()}
+         */
+        Object recordStart(Object task, long startNanos) {
+            RunningSlot slot = localSlot.get();
+            if (slot == null) {
+                slot = new RunningSlot();
+                localSlot.set(slot);
+                running.put(Thread.currentThread(), slot);
+            }
+
+            Object outer = slot.task;
+            // 嵌套执行的task已计入外层task
+            if (outer == null) {
+                slot.startNanos = startNanos;
+                slot.startSample();
+            }
+            // volatile写在startNanos之后, 读到task的线程一定能读到对应的startNanos
+            slot.task = task;
+            return outer;
+        }
+
+        void recordEnd(Object outer) {
+            RunningSlot slot = localSlot.get();
+            slot.task = outer;
+            if (outer == null) {
+                slot.awaitInterrupt();
+            }
+            if (outer == null && slot.sampling) {
+                slot.sampling = false;
+                resourceSampled.increment();
+                long cpuEnd = ThreadResourceSampler.currentThreadCpuNanos();
+                if (slot.cpuStart >= 0 && cpuEnd >= 0) {
+                    cpuTime.add(cpuEnd - slot.cpuStart);
+                }
+                long allocatedEnd = ThreadResourceSampler.currentThreadAllocatedBytes();
+                if (slot.allocatedStart >= 0 && allocatedEnd >= 0) {
+                    allocated.add(allocatedEnd - slot.allocatedStart);
+                }
+            }
+        }
+
+        /**
+         * @return 正在执行的task, 同时清理已结束的线程
+         */
+        List<Object> runningTasks() {
+            List<Object> tasks = new ArrayList<>();
+            forEachRunning((thread, task, startNanos) -> tasks.add(task));
+            return tasks;
+        }
+
+        /**
+         * 遍历正在执行的task, 同时清理已结束的线程
+         */
+        void forEachRunning(RunningVisitor visitor) {
+            running.forEach((thread, slot) -> {
+                Object task = slot.task;
+                if (!thread.isAlive()) {
+                    running.remove(thread, slot);
+                } else if (task != null) {
+                    visitor.visit(thread, task, slot.startNanos);
+                }
+            });
+        }
+
+        /**
+         * 仅当{@code thread}仍在执行{@code startNanos}时开始的这个{@code task}时interrupt该线程:
+         * 与所属线程的{@code recordEnd()}通过槽位上的状态握手, task已结束时不会误中断线程接下来执行的task,
+         * 在task结束前一刻送达的interrupt会在{@code recordEnd()}中清除.
+         *
+         * @return 是否interrupt了该线程
+         */
+        boolean interruptIfRunning(Thread thread, Object task, long startNanos) {
+            RunningSlot slot = running.get(thread);
+            return slot != null && slot.interruptIfRunning(thread, task, startNanos);
+        }
+
+        void recordStuck(boolean interrupt) {
+            stuck.increment();
+            if (interrupt) {
+                interrupted.increment();
+            }
+        }
+
+        /**
+         * @throws LoadSheddingException 开启了准入控制且处于shedding状态
+         */
+        void admit(long submitNanos) {
+            AdmissionController admission = this.admission;
+            if (admission != null) {
+                admission.admit(submitNanos);
+            }
+        }
+
+        void recordWait(long waitNanos) {
+            totalWait.add(waitNanos);
+            waited.increment();
+            waitHistogram.record(waitNanos / 1000);
+
+            AdmissionController admission = this.admission;
+            if (admission != null) {
+                admission.onWait(waitNanos);
+            }
+        }
+
+        void recordExpired() {
+            expired.increment();
+        }
+
+        void recordBlocked(long blockedNanos) {
+            totalBlocked.add(blockedNanos);
+            blocked.increment();
+        }
+
+        void recordRejected() {
+            rejected.increment();
+        }
+
+        void recordSuccess(long rtNanos) {
+            totalRt.add(rtNanos);
+            rtHistogram.record(rtNanos / 1000);
+
+            AdmissionController admission = this.admission;
+            if (admission != null) {
+                admission.onExec(rtNanos);
+            }
+            success.increment();
+        }
+
+        void recordFailure(long rtNanos) {
+            totalRt.add(rtNanos);
+            rtHistogram.record(rtNanos / 1000);
+
+            AdmissionController admission = this.admission;
+            if (admission != null) {
+                admission.onExec(rtNanos);
+            }
+            failure.increment();
+        }
+
+        @FunctionalInterface
+        interface RunningVisitor {
+
+            void visit(Thread thread, Object task, long startNanos);
+        }
+
+        /**
+         * 只由所属线程修改, {@code task}/{@code startNanos}会被关闭/监控线程读取, {@code interruptState}用于与监控线程握手
+         */
+        private static final class RunningSlot {
+
+            private static final int INTERRUPT_NONE = 0;
+
+            private static final int INTERRUPTING = 1;
+
+            private static final int INTERRUPTED = 2;
+
+            private volatile Object task;
+
+            private volatile long startNanos;
+
+            /**
+             * {@code INTERRUPT_NONE} -> {@code INTERRUPTING} -> {@code INTERRUPTED}, 由所属线程在{@code recordEnd()}中复位
+             */
+            private final AtomicInteger interruptState = new AtomicInteger(INTERRUPT_NONE);
+
+            private boolean sampling;
+
+            private long cpuStart;
+
+            private long allocatedStart;
+
+            private boolean interruptIfRunning(Thread thread, Object task, long startNanos) {
+                if (!interruptState.compareAndSet(INTERRUPT_NONE, INTERRUPTING)) {
+                    return false;
+                }
+                // 占住状态后再校验: 所属线程清除task后会等待INTERRUPTING结束, 之后才能开始下一个task
+                if (this.task == task && this.startNanos == startNanos) {
+                    thread.interrupt();
+                    interruptState.set(INTERRUPTED);
+                    return true;
+                }
+                interruptState.set(INTERRUPT_NONE);
+                return false;
+            }
+
+            /**
+             * 由所属线程在最外层task结束时调用
+             */
+            private void awaitInterrupt() {
+                int state;
+                while ((state = interruptState.get()) == INTERRUPTING) {
+                    Thread.yield();
+                }
+                if (state == INTERRUPTED) {
+                    // 发给已结束task的interrupt不能带到下一个task
+                    Thread.interrupted();
+                    interruptState.set(INTERRUPT_NONE);
+                }
+            }
+
+            /**
+             * 按1/interval的概率随机抽样: 计数器若按线程维护, 只执行少量task的线程(虚拟线程、cached pool中短命的线程)
+             * 永远达不到{@code interval}; 按分组维护又会在所有工作线程间形成竞争.
+             */
+            private void startSample() {
+                int interval = ThreadResourceSampler.interval();
+                if (interval > 0 && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0)) {
+                    sampling = true;
+                    cpuStart = ThreadResourceSampler.currentThreadCpuNanos();
+                    allocatedStart = ThreadResourceSampler.currentThreadAllocatedBytes();
+                }
+            }
         }
     }
 }
@@ -0,0 +1,80 @@
+package com.alibaba.jbox.executor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.base.Preconditions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 基于JDK {@code HttpServer}的轻量级指标端点, {@code GET /metrics}返回{@link ExecutorMetricsRegistry#renderPrometheus()}.
+ * 使用单个daemon线程处理请求, 不计入{@code ExecutorManager}的分组.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/17 14:10:00.
+ */
+public class ExecutorMetricsHttpServer implements ExecutorLoggerInner {
+
+    static final String METRICS_PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ExecutorMetricsRegistry registry;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public ExecutorMetricsHttpServer(ExecutorMetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public synchronized void start(int port) throws IOException {
+        Preconditions.checkState(server == null, "metrics http server already started.");
+
+        executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("executor-metrics-http"));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(METRICS_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        monitor.info("executor metrics http server started at port [{}]", getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+            monitor.info("executor metrics http server stopped");
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+import com.alibaba.jbox.executor.LatencyHistogram.Snapshot;
+import com.alibaba.jbox.executor.policy.BulkheadPolicy;
+import com.alibaba.jbox.utils.JboxUtils;
+
+import static com.alibaba.jbox.executor.ExecutorManager.batchingExecutors;
+import static com.alibaba.jbox.executor.ExecutorManager.executors;
+import static com.alibaba.jbox.executor.ExecutorManager.keyedExecutors;
+import static com.alibaba.jbox.executor.ExecutorManager.recorders;
+
+/**
+ * 线程池指标注册中心:
+ * - {@code collect()}由{@link ExecutorMonitor}每个周期调用一次, 计算所有分组的{@link GroupMetrics}(tps、周期内分位数等有状态的指标只在这里计算);
+ * - 每个分组注册一个{@link ExecutorGroupMXBean}({@code com.alibaba.jbox.executor:type=ExecutorGroup,name=${group}});
+ * - {@code renderPrometheus()}按Prometheus text format(0.0.4)输出, 可由{@link ExecutorMetricsHttpServer}暴露.
+ * JMX/Prometheus读取的都是最近一次{@code collect()}的结果, 不会额外触发计算.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.7
+ * - 1.1: blocked/rejected count of {@link BulkheadPolicy}.
+ * - 1.2: batch count/size of {@link BatchingExecutor}.
+ * - 1.3: active key/backlog/rejected count of {@link KeyedSerialExecutor}.
+ * - 1.4: cpu/allocation rate extrapolated from {@link ThreadResourceSampler} samples.
+ * - 1.5: stuck task count of {@link StuckTaskDetector}.
+ * - 1.6: shed count of {@link AdmissionController}.
+ * - 1.7: period percentiles exported as gauges labelled 'percentile', period max as a separate gauge.
+ * @since 2017/11/17 10:40:00.
+ */
+public class ExecutorMetricsRegistry implements ExecutorLoggerInner {
+
+    public static final ExecutorMetricsRegistry INSTANCE = new ExecutorMetricsRegistry();
+
+    static final String OBJECT_NAME_PATTERN = "com.alibaba.jbox.executor:type=ExecutorGroup,name=%s";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, Long> beforeInvoked = new HashMap<>();
+
+    private final Map<String, Snapshot[]> beforeHistograms = new HashMap<>();
+
+    private final Map<String, Snapshot> beforeBatchSizes = new HashMap<>();
+
+    /**
+     * group -> {invoked, sampled, cpuTime, allocated}
+     */
+    private final Map<String, long[]> beforeResources = new HashMap<>();
+
+    private final ConcurrentMap<String, ObjectName> registeredMBeans = new ConcurrentHashMap<>();
+
+    private volatile Map<String, GroupMetrics> latest = Collections.emptyMap();
+
+    private volatile boolean jmxEnabled = true;
+
+    private ExecutorMetricsRegistry() {
+    }
+
+    /**
+     * @param passedSeconds : 距上次collect的时长, 用于计算tps
+     * @param sampleLimit   : 每个分组最多抽样的排队task数
+     * @return 按分组名长度降序排列的指标快照
+     */
+    synchronized List<GroupMetrics> collect(double passedSeconds, int sampleLimit) {
+        List<Map.Entry<String, ExecutorService>> entries = new ArrayList<>(executors.entrySet());
+        entries.removeIf(entry -> entry.getValue() instanceof SyncInvokeExecutorService);
+        entries.sort((e1, e2) -> e2.getKey().length() - e1.getKey().length());
+
+        long now = System.currentTimeMillis();
+        List<GroupMetrics> metricsList = new ArrayList<>(entries.size());
+        Map<String, GroupMetrics> collected = new LinkedHashMap<>();
+        for (Map.Entry<String, ExecutorService> entry : entries) {
+            GroupMetrics metrics = collect(entry.getKey(), entry.getValue(), passedSeconds, sampleLimit);
+            if (metrics == null) {
+                continue;
+            }
+            metrics.setCollectTime(now);
+            metricsList.add(metrics);
+            collected.put(metrics.getGroup(), metrics);
+
+            if (jmxEnabled) {
+                registerMBean(metrics.getGroup());
+            }
+        }
+
+        this.latest = Collections.unmodifiableMap(collected);
+        return metricsList;
+    }
+
+    private GroupMetrics collect(String group, ExecutorService executorService, double passedSeconds,
+                                 int sampleLimit) {
+        GroupMetrics metrics = new GroupMetrics();
+        metrics.setGroup(group);
+
+        ExecutorService target = getTargetExecutor(executorService);
+        ThreadPoolExecutor executor = getThreadPoolExecutor(executorService, target);
+        if (executor != null) {
+            metrics.setKind(GroupMetrics.KIND_POOL);
+            metrics.setPoolSize(executor.getPoolSize());
+            metrics.setActiveCount(executor.getActiveCount());
+            metrics.setCorePoolSize(executor.getCorePoolSize());
+            metrics.setMaxPoolSize(executor.getMaximumPoolSize());
+            metrics.setQueued(executor.getQueue().size());
+            metrics.setRemains(executor.getQueue().remainingCapacity());
+            metrics.setQueueSample(QueuedTaskSampler.sample(executor.getQueue(), sampleLimit));
+            if (executor instanceof PriorityThreadPoolExecutor) {
+                metrics.setExpired(((PriorityThreadPoolExecutor)executor).getExpiredCount());
+            }
+            if (executor.getRejectedExecutionHandler() instanceof BulkheadPolicy) {
+                FlightRecorder recorder = recorders.computeIfAbsent(group, (k) -> new FlightRecorder());
+                long blocked = recorder.getBlocked().sum();
+                double totalBlocked = nanosToMillis(recorder.getTotalBlocked().sum());
+                metrics.setBlocked(blocked);
+                metrics.setBlockedMillis(blocked == 0 ? 0.0 : totalBlocked / blocked);
+                metrics.setRejected(recorder.getRejected().sum());
+            }
+        } else if (target instanceof VirtualThreadExecutorService) {
+            VirtualThreadExecutorService virtualExecutor = (VirtualThreadExecutorService)target;
+            metrics.setKind(GroupMetrics.KIND_VIRTUAL);
+            metrics.setVirtual(virtualExecutor.isVirtual());
+            metrics.setInFlight(virtualExecutor.getInFlightCount());
+            metrics.setRunning(virtualExecutor.getRunningCount());
+            metrics.setConcurrencyLimit(virtualExecutor.getMaxConcurrency());
+        } else if (target instanceof ForkJoinPool) {
+            ForkJoinPool forkJoinPool = (ForkJoinPool)target;
+            metrics.setKind(GroupMetrics.KIND_FORK_JOIN);
+            metrics.setPoolSize(forkJoinPool.getPoolSize());
+            metrics.setActiveCount(forkJoinPool.getActiveThreadCount());
+            metrics.setRunning(forkJoinPool.getRunningThreadCount());
+            metrics.setParallelism(forkJoinPool.getParallelism());
+            metrics.setStealCount(forkJoinPool.getStealCount());
+            metrics.setQueued((int)Math.min(Integer.MAX_VALUE, forkJoinPool.getQueuedTaskCount()));
+            metrics.setQueuedSubmissions(forkJoinPool.getQueuedSubmissionCount());
+        } else {
+            return null;
+        }
+
+        BatchingExecutor<?> batchingExecutor = batchingExecutors.get(group);
+        if (batchingExecutor != null) {
+            collectBatching(metrics, batchingExecutor);
+        }
+
+        KeyedSerialExecutor keyedExecutor = keyedExecutors.get(group);
+        if (keyedExecutor != null) {
+            metrics.setActiveKeys(keyedExecutor.getActiveKeys());
+            metrics.setKeyBacklog(keyedExecutor.getBacklog());
+            metrics.setKeyRejected(keyedExecutor.getRejectedCount());
+            metrics.setHotKeys(keyedExecutor.hotKeys(QueuedTaskSampler.DEFAULT_TOP_N, sampleLimit));
+        }
+
+        collectRecorder(metrics, passedSeconds);
+        return metrics;
+    }
+
+    private void collectBatching(GroupMetrics metrics, BatchingExecutor<?> batchingExecutor) {
+        metrics.setBatches(batchingExecutor.getBatchCount());
+        metrics.setBatchItems(batchingExecutor.getItemCount());
+        metrics.setBatchBuffered(batchingExecutor.getBuffered());
+
+        Snapshot batchSizes = batchingExecutor.getBatchSizes().snapshot();
+        Snapshot before = beforeBatchSizes.put(metrics.getGroup(), batchSizes);
+        metrics.setBatchSizeHistogram(before == null ? batchSizes : batchSizes.minus(before));
+    }
+
+    private void collectRecorder(GroupMetrics metrics, double passedSeconds) {
+        String group = metrics.getGroup();
+        FlightRecorder recorder = recorders.computeIfAbsent(group, (k) -> new FlightRecorder());
+
+        long success = recorder.getSuccess().sum();
+        long failure = recorder.getFailure().sum();
+        long invoked = success + failure;
+        metrics.setSuccess(success);
+        metrics.setFailure(failure);
+        metrics.setRtMillis(invoked == 0 ? 0.0 : nanosToMillis(recorder.getTotalRt().sum()) / invoked);
+
+        long waited = recorder.getWaited().sum();
+        metrics.setWaitMillis(waited == 0 ? 0.0 : nanosToMillis(recorder.getTotalWait().sum()) / waited);
+
+        Long before = beforeInvoked.put(group, invoked);
+        metrics.setTps((long)((invoked - (before == null ? 0L : before)) / passedSeconds));
+
+        collectResource(metrics, recorder, invoked, passedSeconds);
+
+        metrics.setStuck(StuckTaskDetector.stuckCount(group));
+        metrics.setStuckTotal(recorder.getStuck().sum());
+        metrics.setStuckInterrupted(recorder.getInterrupted().sum());
+
+        AdmissionController admission = recorder.getAdmission();
+        if (admission != null) {
+            metrics.setShed(admission.getShedCount());
+            metrics.setShedding(admission.isShedding());
+        }
+
+        Snapshot wait = recorder.getWaitHistogram().snapshot();
+        Snapshot exec = recorder.getRtHistogram().snapshot();
+        Snapshot[] beforeSnapshots = beforeHistograms.put(group, new Snapshot[] {wait, exec});
+        if (beforeSnapshots == null) {
+            metrics.setWaitHistogram(wait);
+            metrics.setExecHistogram(exec);
+        } else {
+            metrics.setWaitHistogram(wait.minus(beforeSnapshots[0]));
+            metrics.setExecHistogram(exec.minus(beforeSnapshots[1]));
+        }
+    }
+
+    /**
+     * 只有1/interval的task被抽样, 按本周期内执行的task数/抽样的task数外推
+     */
+    private void collectResource(GroupMetrics metrics, FlightRecorder recorder, long invoked,
+                                 double passedSeconds) {
+        long[] current = {invoked, recorder.getResourceSampled().sum(), recorder.getCpuTime().sum(),
+            recorder.getAllocated().sum()};
+        long[] before = beforeResources.put(metrics.getGroup(), current);
+        if (before == null) {
+            before = new long[current.length];
+        }
+
+        long sampled = current[1] - before[1];
+        metrics.setResourceSampled(sampled);
+        if (sampled <= 0) {
+            return;
+        }
+
+        double ratio = (double)Math.max(current[0] - before[0], sampled) / sampled;
+        metrics.setCpuMillisPerSecond(nanosToMillis(current[2] - before[2]) * ratio / passedSeconds);
+        if (ThreadResourceSampler.currentThreadAllocatedBytes() >= 0) {
+            metrics.setAllocMBPerSecond((current[3] - before[3]) * ratio / (1024.0 * 1024.0) / passedSeconds);
+        }
+    }
+
+    /**
+     * @return 最近一次{@code collect()}的结果, 分组不存在时返回null
+     */
+    public GroupMetrics get(String group) {
+        return latest.get(group);
+    }
+
+    public Map<String, GroupMetrics> getAll() {
+        return latest;
+    }
+
+    // ---- * JMX * ---- //
+
+    private void registerMBean(String group) {
+        registeredMBeans.computeIfAbsent(group, (key) -> {
+            try {
+                ObjectName objectName = new ObjectName(String.format(OBJECT_NAME_PATTERN, ObjectName.quote(group)));
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(new ExecutorGroupMBean(group, this), objectName);
+                }
+                return objectName;
+            } catch (Exception e) {
+                monitor.warn("register mbean for executor group [{}] failed", group, e);
+                return null;
+            }
+        });
+    }
+
+    void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        registeredMBeans.forEach((group, objectName) -> {
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (Exception e) {
+                monitor.warn("unregister mbean for executor group [{}] failed", group, e);
+            }
+        });
+        registeredMBeans.clear();
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    // ---- * Prometheus * ---- //
+
+    /**
+     * @return Prometheus text exposition format(version 0.0.4)
+     */
+    public String renderPrometheus() {
+        Map<String, GroupMetrics> snapshot = this.latest;
+        StringBuilder sb = new StringBuilder(1024);
+
+        gauge(sb, snapshot, "jbox_executor_pool_size", "current thread count", GroupMetrics::getPoolSize);
+        gauge(sb, snapshot, "jbox_executor_active_threads", "actively running thread count",
+            GroupMetrics::getActiveCount);
+        gauge(sb, snapshot, "jbox_executor_core_pool_size", "core pool size", GroupMetrics::getCorePoolSize);
+        gauge(sb, snapshot, "jbox_executor_max_pool_size", "maximum pool size", GroupMetrics::getMaxPoolSize);
+        gauge(sb, snapshot, "jbox_executor_queue_depth", "queued task count", GroupMetrics::getQueued);
+        gauge(sb, snapshot, "jbox_executor_queue_remaining", "remaining queue capacity",
+            GroupMetrics::getRemains);
+        gauge(sb, snapshot, "jbox_executor_queue_oldest_ms", "enqueue age of the oldest sampled task",
+            GroupMetrics::getOldestQueuedMillis);
+        gauge(sb, snapshot, "jbox_executor_in_flight", "submitted but not completed task count",
+            GroupMetrics::getInFlight);
+        gauge(sb, snapshot, "jbox_executor_tps", "completed tasks per second in last period", GroupMetrics::getTps);
+        gauge(sb, snapshot, "jbox_executor_rt_avg_ms", "average execution time", GroupMetrics::getRtMillis);
+        gauge(sb, snapshot, "jbox_executor_wait_avg_ms", "average queue wait time", GroupMetrics::getWaitMillis);
+
+        header(sb, "jbox_executor_tasks_total", "completed task count", "counter");
+        snapshot.values().forEach(metrics -> {
+            sample(sb, "jbox_executor_tasks_total", metrics.getGroup(), "result", "success", metrics.getSuccess());
+            sample(sb, "jbox_executor_tasks_total", metrics.getGroup(), "result", "failure", metrics.getFailure());
+        });
+        counter(sb, snapshot, "jbox_executor_expired_total", "tasks discarded for passed deadline",
+            GroupMetrics::getExpired);
+        counter(sb, snapshot, "jbox_executor_steal_total", "fork join steal count", GroupMetrics::getStealCount);
+        counter(sb, snapshot, "jbox_executor_blocked_total", "submissions blocked waiting for queue space",
+            GroupMetrics::getBlocked);
+        gauge(sb, snapshot, "jbox_executor_blocked_avg_ms", "average submitter blocking time",
+            GroupMetrics::getBlockedMillis);
+        counter(sb, snapshot, "jbox_executor_rejected_total", "submissions rejected after blocking timeout",
+            GroupMetrics::getRejected);
+
+        counter(sb, snapshot, "jbox_executor_batches_total", "flushed batch count", GroupMetrics::getBatches);
+        counter(sb, snapshot, "jbox_executor_batch_items_total", "item count delivered in batches",
+            GroupMetrics::getBatchItems);
+        gauge(sb, snapshot, "jbox_executor_batch_buffered", "items buffered but not flushed",
+            GroupMetrics::getBatchBuffered);
+        gauge(sb, snapshot, "jbox_executor_keyed_active_keys", "keys with pending tasks",
+            GroupMetrics::getActiveKeys);
+        gauge(sb, snapshot, "jbox_executor_keyed_backlog", "tasks queued across all keys",
+            GroupMetrics::getKeyBacklog);
+        counter(sb, snapshot, "jbox_executor_keyed_rejected_total", "keyed submissions rejected",
+            GroupMetrics::getKeyRejected);
+        gauge(sb, snapshot, "jbox_executor_batch_size_avg", "average batch size", GroupMetrics::getAvgBatchSize);
+        counter(sb, snapshot, "jbox_executor_shed_total", "submissions shed by admission control",
+            GroupMetrics::getShed);
+        gauge(sb, snapshot, "jbox_executor_shedding", "1 if admission control is shedding load",
+            metrics -> metrics.getShed() < 0 ? -1 : (metrics.isShedding() ? 1 : 0));
+        gauge(sb, snapshot, "jbox_executor_stuck_tasks", "tasks running longer than the stuck threshold",
+            GroupMetrics::getStuck);
+        counter(sb, snapshot, "jbox_executor_stuck_total", "tasks reported as stuck", GroupMetrics::getStuckTotal);
+        gauge(sb, snapshot, "jbox_executor_cpu_ms_per_second", "sampled task cpu time per second in last period",
+            GroupMetrics::getCpuMillisPerSecond);
+        gauge(sb, snapshot, "jbox_executor_alloc_mb_per_second", "sampled task allocation rate in last period",
+            GroupMetrics::getAllocMBPerSecond);
+
+        // 周期内的分位数不是Prometheus summary(没有_sum/_count), 以gauge + 'percentile' label输出, 最大值单独输出
+        percentiles(sb, snapshot, "jbox_executor_wait_ms", "queue wait time percentiles in last period", true);
+        gauge(sb, snapshot, "jbox_executor_wait_ms_max", "max queue wait time in last period",
+            metrics -> metrics.getWaitHistogram() == null ? 0.0 : metrics.getWaitHistogram().getMax() / 1000.0);
+        percentiles(sb, snapshot, "jbox_executor_exec_ms", "execution time percentiles in last period", false);
+        gauge(sb, snapshot, "jbox_executor_exec_ms_max", "max execution time in last period",
+            metrics -> metrics.getExecHistogram() == null ? 0.0 : metrics.getExecHistogram().getMax() / 1000.0);
+
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, Map<String, GroupMetrics> snapshot, String name, String help,
+                              ToDoubleFunction<GroupMetrics> getter) {
+        values(sb, snapshot, name, help, "gauge", getter);
+    }
+
+    private static void counter(StringBuilder sb, Map<String, GroupMetrics> snapshot, String name, String help,
+                                ToDoubleFunction<GroupMetrics> getter) {
+        values(sb, snapshot, name, help, "counter", getter);
+    }
+
+    private static void values(StringBuilder sb, Map<String, GroupMetrics> snapshot, String name, String help,
+                               String type, ToDoubleFunction<GroupMetrics> getter) {
+        boolean headed = false;
+        for (GroupMetrics metrics : snapshot.values()) {
+            double value = getter.applyAsDouble(metrics);
+            // 不适用于该分组的指标
+            if (value < 0) {
+                continue;
+            }
+            if (!headed) {
+                header(sb, name, help, type);
+                headed = true;
+            }
+            sample(sb, name, metrics.getGroup(), null, null, value);
+        }
+    }
+
+    private static void percentiles(StringBuilder sb, Map<String, GroupMetrics> snapshot, String name, String help,
+                                    boolean wait) {
+        header(sb, name, help, "gauge");
+        for (GroupMetrics metrics : snapshot.values()) {
+            for (int i = 0; i < PERCENTILES.length; ++i) {
+                double value = wait ? metrics.waitPercentileMillis(PERCENTILES[i])
+                    : metrics.execPercentileMillis(PERCENTILES[i]);
+                sample(sb, name, metrics.getGroup(), "percentile", PERCENTILE_LABELS[i], value);
+            }
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String group, String labelName, String labelValue,
+                               double value) {
+        sb.append(name).append("{group=\"").append(escape(group)).append('"');
+        if (labelName != null) {
+            sb.append(',').append(labelName).append("=\"").append(escape(labelValue)).append('"');
+        }
+        sb.append("} ");
+        if (value == (long)value) {
+            sb.append((long)value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // ---- * helpers * ---- //
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static ExecutorService getTargetExecutor(ExecutorService executorService) {
+        if (executorService instanceof ManagedExecutorService) {
+            return ((ManagedExecutorService)executorService).getTarget();
+        }
+        return executorService;
+    }
+
+    private static ThreadPoolExecutor getThreadPoolExecutor(ExecutorService executorService,
+                                                            ExecutorService target) {
+        if (target instanceof ThreadPoolExecutor) {
+            return (ThreadPoolExecutor)target;
+        } else if (target != executorService && !(target instanceof VirtualThreadExecutorService)
+            && !(target instanceof ForkJoinPool)) {
+            // Executors.newSingleThreadExecutor()返回的DelegatedExecutorService
+            return (ThreadPoolExecutor)JboxUtils.getFieldValue(target, "e");
+        }
+        return null;
+    }
+}
@@ -1,279 +1,307 @@
 package com.alibaba.jbox.executor;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.BiConsumer;
-import java.util.function.BinaryOperator;
-import java.util.function.Function;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-
-import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import javax.annotation.PreDestroy;
+
+import com.alibaba.jbox.executor.LatencyHistogram.Snapshot;
+import com.alibaba.jbox.executor.QueuedTaskSampler.Sample;
 import com.alibaba.jbox.scheduler.ScheduleTask;
 import com.alibaba.jbox.scheduler.TaskScheduler;
 import com.alibaba.jbox.spring.AbstractApplicationContextAware;
-import com.alibaba.jbox.stream.StreamForker;
-import com.alibaba.jbox.utils.JboxUtils;
-import com.alibaba.jbox.utils.ProxyTargetUtils;
 
-import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
-import org.springframework.util.ReflectionUtils;
 
-import static com.alibaba.jbox.executor.ExecutorManager.executors;
-import static com.alibaba.jbox.executor.ExecutorManager.recorders;
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_SINGLETON;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.5
+ * @version 1.19
+ * - 1.6: append wait/exec 'p50/p90/p99/p999/max'(ms) of current period.
+ * - 1.7: rt/wait measured by nano time, print as ms with 3 decimals.
+ * - 1.8: register {@link AdaptivePoolController} into {@code TaskScheduler}.
+ * - 1.9: append in-flight/running task count of virtual thread executor.
+ * - 1.10: append steal/queued submission/running thread count of fork join pool.
+ * - 1.11: append expired task count of priority thread pool.
+ * - 1.12: replace per-task detail with a bounded, reflection-free sample of queued task types.
+ * - 1.13: metrics collected once by {@link ExecutorMetricsRegistry}, shared by log/JMX/Prometheus.
+ * - 1.14: append blocked/rejected count of {@code BulkheadPolicy}.
+ * - 1.15: append batch count/size of {@code BatchingExecutor}.
+ * - 1.16: append active key/backlog/hot keys of {@code KeyedSerialExecutor}.
+ * - 1.17: append sampled cpu(ms/s)/alloc(MB/s) of tasks.
+ * - 1.18: append stuck task count, register {@link StuckTaskDetector} into {@code TaskScheduler}.
+ * - 1.19: append shed count of {@link AdmissionController}.
  * @since 2017/8/22 15:32:00.
  */
 public class ExecutorMonitor extends AbstractApplicationContextAware
     implements ScheduleTask, ExecutorLoggerInner, BeanDefinitionRegistryPostProcessor {
 
-    private static final Class<?> RUNNABLE_ADAPTER_CLASS = Executors.callable(() -> {
-    }, null).getClass();
-
-    private static Map<String, AtomicLong> beforeInvoked = new HashMap<>();
-
-    private static final String ASYNC_KEY = "async";
+    private long period = _1M_INTERVAL;
 
-    private static final String FUTURE_KEY = "future";
+    private Integer maxGroupSize;
 
-    private static final String CALLABLE_KEY = "callable";
+    private int sampleLimit = QueuedTaskSampler.DEFAULT_SAMPLE_LIMIT;
 
-    private long period = _1M_INTERVAL;
+    private int metricsPort = 0;
 
-    private Integer maxGroupSize;
+    private ExecutorMetricsHttpServer metricsHttpServer;
 
     @Override
     public void invoke() throws Exception {
-        List<Entry<String, ExecutorService>> executorSortedSet = executors.entrySet()
-            .stream()
-            .filter(entry -> !(entry.getValue() instanceof SyncInvokeExecutorService))
-            .sorted((e1, e2) -> e2.getKey().length() - e1.getKey().length())
-            .collect(Collectors.toList());
+        // @since 1.13: 指标统一由ExecutorMetricsRegistry采集, 日志与JMX/Prometheus共享同一份快照
+        List<GroupMetrics> metricsList = ExecutorMetricsRegistry.INSTANCE.collect(passedSeconds(), sampleLimit);
 
         StringBuilder logBuilder = new StringBuilder(128);
         // append group size:
-        logBuilder.append("executor group size [").append(executorSortedSet.size()).append("]:\n");
-
-        for (Map.Entry<String, ExecutorService> entry : executorSortedSet) {
-            String group = entry.getKey();
-            ThreadPoolExecutor executor = getThreadPoolExecutor(entry.getValue());
-            if (executor == null) {
-                continue;
-            }
-
-            Object[] recorder = getFlightRecorder(group);
-
-            // append group detail:
-            BlockingQueue<Runnable> queue = executor.getQueue();
-            logBuilder.append(String.format(
-                "%-" + getMaxGroupSize(executorSortedSet) + "s > pool:[%s], active:[%d], core:[%d], max:[%d], "
-                    + "success:[%s], failure:[%s], "
-                    + "rt:[%s], tps:[%s], "
-                    + "queued:[%d], remains:[%d]\n",
-
-                /*
-                 * group
-                 */
-                "'" + group + "'",
-                /*
-                 *  pool detail
-                 */
-                executor.getPoolSize(),
-                executor.getActiveCount(),
-                executor.getCorePoolSize(),
-                executor.getMaximumPoolSize(),
-
-                /*
-                 * success, failure
-                 */
-                numberFormat(recorder[0]),
-                numberFormat(recorder[1]),
-
-                /*
-                 * rt, tps
-                 */
-                String.format("%.2f", (double)recorder[2]),
-                numberFormat(calcTps(group, (long)recorder[3])),
-
-                /*
-                 * runnable queue
-                 */
-                queue.size(),
-                queue.remainingCapacity()
-            ));
-
-            // append task detail:
-            StringBuilder[] taskDetailBuilder = getTaskDetail(queue);
-            for (StringBuilder sb : taskDetailBuilder) {
-                logBuilder.append(sb);
+        logBuilder.append("executor group size [").append(metricsList.size()).append("]:\n");
+
+        for (GroupMetrics metrics : metricsList) {
+            String groupColumn = String.format("%-" + getMaxGroupSize(metricsList) + "s",
+                "'" + metrics.getGroup() + "'");
+
+            switch (metrics.getKind()) {
+                case GroupMetrics.KIND_POOL:
+                    appendThreadPoolDetail(logBuilder, groupColumn, metrics);
+                    break;
+                case GroupMetrics.KIND_VIRTUAL:
+                    // @since 1.9
+                    appendVirtualThreadDetail(logBuilder, groupColumn, metrics);
+                    break;
+                case GroupMetrics.KIND_FORK_JOIN:
+                    // @since 1.10
+                    appendForkJoinDetail(logBuilder, groupColumn, metrics);
+                    break;
+                default:
+                    break;
             }
         }
 
         monitor.info(logBuilder.toString());
     }
 
-    private int getMaxGroupSize(List<Entry<String, ExecutorService>> groupEntries) {
-        if (maxGroupSize == null) {
-            maxGroupSize = groupEntries.get(0).getKey().length() + "'' ".length();
+    private void appendThreadPoolDetail(StringBuilder logBuilder, String groupColumn, GroupMetrics metrics) {
+        // append group detail:
+        logBuilder.append(String.format(
+            "%s > pool:[%s], active:[%d], core:[%d], max:[%d], %s, queued:[%d], remains:[%d]",
+
+            /*
+             * group
+             */
+            groupColumn,
+            /*
+             *  pool detail
+             */
+            metrics.getPoolSize(),
+            metrics.getActiveCount(),
+            metrics.getCorePoolSize(),
+            metrics.getMaxPoolSize(),
+
+            /*
+             * success, failure, rt, wait, tps, percentiles
+             */
+            getRecorderDetail(metrics),
+
+            /*
+             * runnable queue
+             */
+            metrics.getQueued(),
+            metrics.getRemains()
+        ));
+
+        // @since 1.11
+        if (metrics.getExpired() >= 0) {
+            logBuilder.append(String.format(", expired:[%s]", numberFormat(metrics.getExpired())));
         }
-        return maxGroupSize;
-    }
+        // @since 1.14
+        if (metrics.getBlocked() >= 0) {
+            logBuilder.append(String.format(", blocked:[%s], blockedRt:[%.3f], rejected:[%s]",
+                numberFormat(metrics.getBlocked()), metrics.getBlockedMillis(), numberFormat(metrics.getRejected())));
+        }
+        // @since 1.15
+        if (metrics.getBatches() >= 0) {
+            logBuilder.append(String.format(
+                ", batches:[%s], batchItems:[%s], buffered:[%d], batchSize(avg/p50/p99/max):[%.1f/%d/%d/%d]",
+                numberFormat(metrics.getBatches()), numberFormat(metrics.getBatchItems()),
+                metrics.getBatchBuffered(), metrics.getAvgBatchSize(),
+                metrics.batchSizePercentile(50), metrics.batchSizePercentile(99),
+                metrics.getBatchSizeHistogram().getMax()));
+        }
+        // @since 1.16
+        if (metrics.getActiveKeys() >= 0) {
+            logBuilder.append(String.format(", keys:[%d], backlog:[%s], rejected:[%s]",
+                metrics.getActiveKeys(), numberFormat(metrics.getKeyBacklog()), numberFormat(metrics.getKeyRejected())));
+        }
+        logBuilder.append("\n");
 
-    private long calcTps(String group, long invoked) {
-        long before = beforeInvoked.computeIfAbsent(group, (k) -> new AtomicLong(0L))
-            .getAndSet(invoked);
-        return (long)((invoked - before) / passedSeconds());
+        // append task detail:
+        logBuilder.append(getTaskDetail(metrics.getQueueSample()));
+        logBuilder.append(getHotKeyDetail(metrics.getHotKeys()));
     }
 
-    private double passedSeconds() {
-        return period * 1.0 / _1S_INTERVAL;
-    }
+    /**
+     * @since 1.16
+     */
+    private String getHotKeyDetail(List<Map.Entry<String, Integer>> hotKeys) {
+        if (hotKeys == null || hotKeys.isEmpty()) {
+            return "";
+        }
 
-    private Object[] getFlightRecorder(String group) {
-        FlightRecorder recorder = recorders.getOrDefault(group, new FlightRecorder());
-        long success = recorder.getSuccess().get();
-        long failure = recorder.getFailure().get();
-        double rt;
-        if (success == 0 && failure == 0) {
-            rt = 0.0;
-        } else {
-            rt = recorder.getTotalRt().get() * 1.0 / (success + failure);
+        StringBuilder hotBuilder = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : hotKeys) {
+            if (hotBuilder.length() > 0) {
+                hotBuilder.append(", ");
+            }
+            hotBuilder.append(entry.getKey()).append(":").append(entry.getValue());
         }
 
-        return new Object[] {success, failure, rt, success + failure};
+        return String.format("  -> hot keys:[%s]\n", hotBuilder);
     }
 
-    private StringBuilder[] getTaskDetail(BlockingQueue<Runnable> queue) {
-        StreamForker<Runnable> forker = new StreamForker<>(queue.stream())
-            .fork(ASYNC_KEY, stream -> stream
-                .filter(runnable -> runnable instanceof AsyncRunnable)
-                .collect(new Collector()))
-            .fork(CALLABLE_KEY, stream -> stream
-                .filter(callable -> callable instanceof AsyncCallable)
-                .collect(new Collector()))
-            .fork(FUTURE_KEY, stream -> stream
-                .filter(runnable -> runnable instanceof FutureTask)
-                .map(this::getFutureTaskInnerAsyncObject)
-                .collect(new Collector()));
-
-        StreamForker.Results results = forker.getResults();
-        StringBuilder asyncLogBuilder = results.get(ASYNC_KEY);
-        StringBuilder callableLogBuilder = results.get(CALLABLE_KEY);
-        StringBuilder futureLogBuilder = results.get(FUTURE_KEY);
-
-        return new StringBuilder[] {asyncLogBuilder, callableLogBuilder, futureLogBuilder};
+    /**
+     * 虚拟线程没有线程池可供查看, 打印in-flight/running的task数
+     *
+     * @since 1.9
+     */
+    private void appendVirtualThreadDetail(StringBuilder logBuilder, String groupColumn, GroupMetrics metrics) {
+        logBuilder.append(String.format(
+            "%s > virtual:[%s], inFlight:[%d], running:[%d], limit:[%s], %s\n",
+            groupColumn,
+            metrics.isVirtual(),
+            metrics.getInFlight(),
+            metrics.getRunning(),
+            metrics.getConcurrencyLimit() == 0 ? "-" : String.valueOf(metrics.getConcurrencyLimit()),
+            getRecorderDetail(metrics)
+        ));
     }
 
     /**
-     * @param executorProxy
-     * @return
-     * @since 1.1
+     * @since 1.10
      */
-    private ThreadPoolExecutor getThreadPoolExecutor(ExecutorService executorProxy) {
-        ThreadPoolExecutor executor = null;
-
-        if (executorProxy instanceof ThreadPoolExecutor) {
-            executor = (ThreadPoolExecutor)executorProxy;
-        } else if (Proxy.isProxyClass(executorProxy.getClass())) {
-            Object target = ProxyTargetUtils.getJdkProxyTarget(executorProxy);
-            if (target == null) {
-                executor = null;
-            } else if (target instanceof ThreadPoolExecutor) {
-                executor = (ThreadPoolExecutor)target;
-            } else if (target instanceof SyncInvokeExecutorService) {
-                executor = null;
-            } else {
-                executor = (ThreadPoolExecutor)JboxUtils.getFieldValue(target, "e");
-            }
-        }
+    private void appendForkJoinDetail(StringBuilder logBuilder, String groupColumn, GroupMetrics metrics) {
+        logBuilder.append(String.format(
+            "%s > forkjoin:[%d], active:[%d], running:[%d], parallelism:[%d], steal:[%s], %s, "
+                + "queued:[%d], submissions:[%d]\n",
+            groupColumn,
+            metrics.getPoolSize(),
+            metrics.getActiveCount(),
+            metrics.getRunning(),
+            metrics.getParallelism(),
+            numberFormat(metrics.getStealCount()),
+            getRecorderDetail(metrics),
+            metrics.getQueued(),
+            metrics.getQueuedSubmissions()
+        ));
+    }
 
-        return executor;
+    private String getRecorderDetail(GroupMetrics metrics) {
+        return String.format(
+            "success:[%s], failure:[%s], "
+                + "rt:[%s], wait:[%s], tps:[%s], "
+                + "wait(p50/p90/p99/p999/max):[%s], exec(p50/p90/p99/p999/max):[%s]",
+
+            /*
+             * success, failure
+             */
+            numberFormat(metrics.getSuccess()),
+            numberFormat(metrics.getFailure()),
+
+            /*
+             * rt, wait, tps
+             */
+            String.format("%.3f", metrics.getRtMillis()),
+            String.format("%.3f", metrics.getWaitMillis()),
+            numberFormat(metrics.getTps()),
+
+            /*
+             * wait/exec percentiles in current period
+             */
+            percentiles(metrics.getWaitHistogram()),
+            percentiles(metrics.getExecHistogram())
+        ) + getResourceDetail(metrics) + getStuckDetail(metrics) + getShedDetail(metrics);
     }
 
     /**
-     * @since 1.2
+     * @since 1.19
      */
-    private class Collector implements java.util.stream.Collector<Object, StringBuilder, StringBuilder> {
-
-        @Override
-        public Supplier<StringBuilder> supplier() {
-            return StringBuilder::new;
+    private String getShedDetail(GroupMetrics metrics) {
+        if (metrics.getShed() < 0) {
+            return "";
         }
+        return String.format(", shed:[%s], shedding:[%s]", numberFormat(metrics.getShed()), metrics.isShedding());
+    }
 
-        @Override
-        public BiConsumer<StringBuilder, Object> accumulator() {
-            return (stringBuilder, object) -> {
-                stringBuilder.append("  -> ");
-                if (object != null) {
-                    if (object instanceof AsyncRunnable || object instanceof AsyncCallable) {
-                        Method taskInfoMethod = ReflectionUtils.findMethod(object.getClass(), "taskInfo");
-                        ReflectionUtils.makeAccessible(taskInfoMethod);
-                        stringBuilder
-                            .append("task: ")
-                            .append(ReflectionUtils.invokeMethod(taskInfoMethod, object))
-                            .append(", obj: ")
-                            .append(Objects.hashCode(object));
-                    } else {
-                        stringBuilder.append("task: ").append(ToStringBuilder.reflectionToString(object));
-                    }
-                } else {
-                    stringBuilder.append("null");
-                }
-                stringBuilder.append("\n");
-            };
+    /**
+     * @since 1.18
+     */
+    private String getStuckDetail(GroupMetrics metrics) {
+        if (metrics.getStuckTotal() == 0) {
+            return "";
         }
+        return String.format(", stuck:[%d], stuckTotal:[%s], interrupted:[%s]", metrics.getStuck(),
+            numberFormat(metrics.getStuckTotal()), numberFormat(metrics.getStuckInterrupted()));
+    }
 
-        @Override
-        public BinaryOperator<StringBuilder> combiner() {
-            return StringBuilder::append;
+    /**
+     * @since 1.17
+     */
+    private String getResourceDetail(GroupMetrics metrics) {
+        if (metrics.getCpuMillisPerSecond() < 0) {
+            return "";
         }
+        return String.format(", cpu:[%.1fms/s], alloc:[%s]", metrics.getCpuMillisPerSecond(),
+            metrics.getAllocMBPerSecond() < 0 ? "-" : String.format("%.2fMB/s", metrics.getAllocMBPerSecond()));
+    }
 
-        @Override
-        public Function<StringBuilder, StringBuilder> finisher() {
-            return Function.identity();
+    private int getMaxGroupSize(List<GroupMetrics> metricsList) {
+        if (maxGroupSize == null) {
+            maxGroupSize = metricsList.get(0).getGroup().length() + "'' ".length();
         }
+        return maxGroupSize;
+    }
 
-        @Override
-        public Set<Characteristics> characteristics() {
-            return EnumSet.of(Characteristics.CONCURRENT, Characteristics.UNORDERED, Characteristics.IDENTITY_FINISH);
-        }
+    private double passedSeconds() {
+        return period * 1.0 / _1S_INTERVAL;
     }
 
-    private Object getFutureTaskInnerAsyncObject(Object futureTask) {
-        Object callable = JboxUtils.getFieldValue(futureTask, "callable");
-        if (callable != null) {
-            if (callable instanceof AsyncCallable) {
-                return callable;
-            } else if (callable instanceof AsyncRunnable) {
-                return callable;
-            } else if (RUNNABLE_ADAPTER_CLASS.isAssignableFrom(callable.getClass())) {
-                return JboxUtils.getFieldValue(callable, "task");
+    /**
+     * histogram以us记录, 以ms输出
+     */
+    private String percentiles(Snapshot snapshot) {
+        return String.format("%.3f/%.3f/%.3f/%.3f/%.3f",
+            snapshot.valueAtPercentile(50) / 1000.0,
+            snapshot.valueAtPercentile(90) / 1000.0,
+            snapshot.valueAtPercentile(99) / 1000.0,
+            snapshot.valueAtPercentile(99.9) / 1000.0,
+            snapshot.getMax() / 1000.0);
+    }
+
+    /**
+     * 抽样统计排队task的类型分布与最老task的排队时长, 详见{@link QueuedTaskSampler}
+     *
+     * @since 1.12
+     */
+    private String getTaskDetail(Sample sample) {
+        if (sample == null || sample.getSampled() == 0) {
+            return "";
+        }
+
+        StringBuilder topBuilder = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : sample.top(QueuedTaskSampler.DEFAULT_TOP_N)) {
+            if (topBuilder.length() > 0) {
+                topBuilder.append(", ");
             }
+            topBuilder.append(entry.getKey()).append(":").append(entry.getValue());
         }
-        return null;
+
+        return String.format("  -> sampled:[%d/%d], oldest:[%.3f], top:[%s]\n",
+            sample.getSampled(), sample.getQueued(), sample.getOldestNanos() / 1_000_000.0, topBuilder);
     }
 
     @Override
@@ -302,7 +330,33 @@ public class ExecutorMonitor extends AbstractApplicationContextAware
 
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
-        beanFactory.getBean(TaskScheduler.class).register(this);
+        TaskScheduler taskScheduler = beanFactory.getBean(TaskScheduler.class);
+        taskScheduler.register(this);
+        // @since 1.8
+        taskScheduler.register(AdaptivePoolController.INSTANCE);
+        // @since 1.18
+        taskScheduler.register(StuckTaskDetector.INSTANCE);
+
+        // @since 1.13
+        if (metricsPort > 0) {
+            metricsHttpServer = new ExecutorMetricsHttpServer(ExecutorMetricsRegistry.INSTANCE);
+            try {
+                metricsHttpServer.start(metricsPort);
+            } catch (IOException e) {
+                monitor.error("start executor metrics http server at port [{}] failed", metricsPort, e);
+            }
+        }
+    }
+
+    /**
+     * @since 1.13
+     */
+    @PreDestroy
+    public void destroy() {
+        if (metricsHttpServer != null) {
+            metricsHttpServer.stop();
+        }
+        ExecutorMetricsRegistry.INSTANCE.unregisterMBeans();
     }
 
     private String numberFormat(Object obj) {
@@ -313,6 +367,29 @@ public class ExecutorMonitor extends AbstractApplicationContextAware
         this.period = period;
     }
 
+    /**
+     * @param sampleLimit : 每个分组每次最多抽样的排队task数
+     * @since 1.12
+     */
+    public void setSampleLimit(int sampleLimit) {
+        this.sampleLimit = sampleLimit;
+    }
+
+    /**
+     * @param metricsPort : 大于0时在该端口启动{@link ExecutorMetricsHttpServer}, 以Prometheus text格式暴露指标
+     * @since 1.13
+     */
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * @since 1.13
+     */
+    public void setJmxEnabled(boolean jmxEnabled) {
+        ExecutorMetricsRegistry.INSTANCE.setJmxEnabled(jmxEnabled);
+    }
+
     /**
      * 获取一个可用的SpringBean name
      *
@@ -0,0 +1,212 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.policy.BulkheadPolicy;
+import com.alibaba.jbox.executor.policy.CallerRunsPolicy;
+import com.alibaba.jbox.executor.policy.DiscardOldestPolicy;
+import com.alibaba.jbox.executor.policy.DiscardPolicy;
+import com.alibaba.jbox.executor.queue.ResizableBlockingQueue;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 分组线程池的运行时热更新, 配置项格式为{@code jbox.executor.${group}.${property}}:
+ * - corePoolSize / maxPoolSize / keepAliveSeconds: 直接调整{@code ThreadPoolExecutor};
+ * 自适应分组的corePoolSize由{@link AdaptivePoolController}管理, 配置被忽略, maxPoolSize则作为其调节core的上界;
+ * - queueCapacity: 只对使用{@code RunnableQueueType.RESIZABLE}创建的分组生效, 详见{@link ResizableBlockingQueue};
+ * - rejectPolicy: callerRuns / abort / discard / discardOldest / bulkhead:${timeoutMillis}.
+ * 配置由{@code DiamondPropertySourcesPlaceholder}在启动及Diamond推送变更时传入; 分组尚未创建时暂存, 在分组创建后生效.
+ * 每项变更的新旧值都会打印到{@code 'executor-monitor'}这个{@code Logger}下.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/28 11:00:00.
+ */
+public class ExecutorReconfigurer implements ExecutorLoggerInner {
+
+    public static final String KEY_PREFIX = "jbox.executor.";
+
+    public static final String CORE_POOL_SIZE = "corePoolSize";
+
+    public static final String MAX_POOL_SIZE = "maxPoolSize";
+
+    public static final String KEEP_ALIVE_SECONDS = "keepAliveSeconds";
+
+    public static final String QUEUE_CAPACITY = "queueCapacity";
+
+    public static final String REJECT_POLICY = "rejectPolicy";
+
+    /**
+     * group -> (property -> value), 保存最近一次的配置, 供之后创建的分组使用
+     */
+    private static final ConcurrentMap<String, Map<String, String>> configs = new ConcurrentHashMap<>();
+
+    public static boolean isExecutorKey(String key) {
+        return key != null && key.startsWith(KEY_PREFIX) && key.lastIndexOf('.') > KEY_PREFIX.length();
+    }
+
+    /**
+     * @param config : 可包含非{@code jbox.executor.}前缀的配置项, 会被忽略
+     */
+    public static void reconfigure(Map<?, ?> config) {
+        Map<String, Map<String, String>> changed = new ConcurrentHashMap<>();
+        config.forEach((key, value) -> {
+            String configKey = String.valueOf(key);
+            if (!isExecutorKey(configKey) || value == null) {
+                return;
+            }
+            int index = configKey.lastIndexOf('.');
+            String group = configKey.substring(KEY_PREFIX.length(), index);
+            String property = configKey.substring(index + 1);
+
+            changed.computeIfAbsent(group, (k) -> new ConcurrentHashMap<>()).put(property,
+                String.valueOf(value).trim());
+        });
+
+        changed.forEach((group, properties) -> {
+            configs.computeIfAbsent(group, (k) -> new ConcurrentHashMap<>()).putAll(properties);
+            ExecutorService executor = ExecutorManager.executors.get(group);
+            if (executor != null) {
+                apply(group, executor, properties);
+            }
+        });
+    }
+
+    /**
+     * 分组创建后由{@code ExecutorManager}调用, 应用创建前已收到的配置.
+     */
+    static void onCreated(String group, ExecutorService executor) {
+        Map<String, String> properties = configs.get(group);
+        if (properties != null) {
+            apply(group, executor, properties);
+        }
+    }
+
+    private static void apply(String group, ExecutorService executor, Map<String, String> properties) {
+        if (!(executor instanceof ManagedExecutorService)
+            || !(((ManagedExecutorService)executor).getTarget() instanceof ThreadPoolExecutor)) {
+            monitor.warn("executor [{}] is not a ThreadPoolExecutor, config {} ignored", group, properties);
+            return;
+        }
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)((ManagedExecutorService)executor).getTarget();
+        try {
+            applyPoolSize(group, pool, properties);
+
+            String keepAlive = properties.get(KEEP_ALIVE_SECONDS);
+            if (keepAlive != null) {
+                long before = pool.getKeepAliveTime(TimeUnit.SECONDS);
+                long after = Long.parseLong(keepAlive);
+                if (before != after) {
+                    pool.setKeepAliveTime(after, TimeUnit.SECONDS);
+                    logChanged(group, KEEP_ALIVE_SECONDS, before, after);
+                }
+            }
+
+            String capacity = properties.get(QUEUE_CAPACITY);
+            if (capacity != null) {
+                if (pool.getQueue() instanceof ResizableBlockingQueue) {
+                    int after = Integer.parseInt(capacity);
+                    int before = ((ResizableBlockingQueue<Runnable>)pool.getQueue()).setCapacity(after);
+                    if (before != after) {
+                        logChanged(group, QUEUE_CAPACITY, before, after);
+                    }
+                } else {
+                    monitor.warn("executor [{}] RunnableQueue [{}] is not resizable, {}:[{}] ignored", group,
+                        pool.getQueue().getClass().getName(), QUEUE_CAPACITY, capacity);
+                }
+            }
+
+            String policy = properties.get(REJECT_POLICY);
+            if (policy != null) {
+                RejectedExecutionHandler before = pool.getRejectedExecutionHandler();
+                RejectedExecutionHandler after = newRejectPolicy(group, policy);
+                // 每次推送都会带上全量配置, 未变化时保留原实例(及BulkheadPolicy上的统计)
+                String beforeDesc = describe(before);
+                String afterDesc = describe(after);
+                if (!beforeDesc.equals(afterDesc)) {
+                    pool.setRejectedExecutionHandler(after);
+                    logChanged(group, REJECT_POLICY, beforeDesc, afterDesc);
+                }
+            }
+        } catch (RuntimeException e) {
+            monitor.error("executor [{}] reconfigure {} failed", group, properties, e);
+        }
+    }
+
+    private static void applyPoolSize(String group, ThreadPoolExecutor pool, Map<String, String> properties) {
+        String core = properties.get(CORE_POOL_SIZE);
+        String max = properties.get(MAX_POOL_SIZE);
+        if (core == null && max == null) {
+            return;
+        }
+
+        int coreBefore = pool.getCorePoolSize();
+        int maxBefore = pool.getMaximumPoolSize();
+        int coreAfter = core == null ? coreBefore : Integer.parseInt(core);
+        int maxAfter = max == null ? maxBefore : Integer.parseInt(max);
+        if (core != null && AdaptivePoolController.isRegistered(group)) {
+            monitor.warn("executor [{}] core pool size is managed by AdaptivePoolController, {}:[{}] ignored",
+                group, CORE_POOL_SIZE, core);
+            coreAfter = coreBefore;
+        }
+        if (coreAfter < 0 || maxAfter <= 0 || coreAfter > maxAfter) {
+            monitor.error("executor [{}] illegal pool size, core:[{}], max:[{}], ignored", group, coreAfter,
+                maxAfter);
+            return;
+        }
+
+        // 保证调整过程中始终满足core <= max
+        if (maxAfter >= coreBefore) {
+            pool.setMaximumPoolSize(maxAfter);
+            pool.setCorePoolSize(coreAfter);
+        } else {
+            pool.setCorePoolSize(coreAfter);
+            pool.setMaximumPoolSize(maxAfter);
+        }
+
+        if (coreBefore != coreAfter) {
+            logChanged(group, CORE_POOL_SIZE, coreBefore, coreAfter);
+        }
+        if (maxBefore != maxAfter) {
+            logChanged(group, MAX_POOL_SIZE, maxBefore, maxAfter);
+        }
+    }
+
+    static RejectedExecutionHandler newRejectPolicy(String group, String policy) {
+        String name = StringUtils.substringBefore(policy, ":");
+        switch (name) {
+            case "callerRuns":
+                return new CallerRunsPolicy(group);
+            case "abort":
+                return new ThreadPoolExecutor.AbortPolicy();
+            case "discard":
+                return new DiscardPolicy(group);
+            case "discardOldest":
+                return new DiscardOldestPolicy(group);
+            case "bulkhead":
+                return new BulkheadPolicy(group, Long.parseLong(StringUtils.substringAfter(policy, ":")));
+            default:
+                throw new IllegalArgumentException("unknown reject policy: " + policy);
+        }
+    }
+
+    private static String describe(RejectedExecutionHandler policy) {
+        String name = policy.getClass().getSimpleName();
+        if (policy instanceof BulkheadPolicy) {
+            return name + ":" + ((BulkheadPolicy)policy).getTimeoutMillis();
+        }
+        return name;
+    }
+
+    private static void logChanged(String group, String property, Object before, Object after) {
+        monitor.info("executor [{}] {} changed: [{}] -> [{}]", group, property, before, after);
+    }
+}
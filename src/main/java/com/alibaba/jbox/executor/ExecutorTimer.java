@@ -0,0 +1,24 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * 执行器内部的延时触发(如攒批linger、超时取消)共用一个daemon线程, 触发后的逻辑应尽快返回或转交给分组线程池.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/24 10:00:00.
+ */
+final class ExecutorTimer {
+
+    static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("jbox-executor-timer"));
+        // 超时任务大多在到期前被取消, 及时移出队列
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private ExecutorTimer() {
+    }
+}
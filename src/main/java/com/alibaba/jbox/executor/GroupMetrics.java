@@ -0,0 +1,240 @@
+package com.alibaba.jbox.executor;
+
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.jbox.executor.LatencyHistogram.Snapshot;
+import com.alibaba.jbox.executor.QueuedTaskSampler.Sample;
+
+import lombok.Data;
+
+/**
+ * 一个线程池分组在一个监控周期内的指标快照, 由{@link ExecutorMetricsRegistry#collect}统一计算,
+ * 日志、JMX、Prometheus均读取同一份快照.
+ * 不适用于当前分组类型的指标值为{@code -1}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.5
+ * - 1.1: batch count/size of {@link BatchingExecutor}.
+ * - 1.2: active key/backlog/rejected/hot keys of {@link KeyedSerialExecutor}.
+ * - 1.3: sampled cpu time/allocation rate of {@link ThreadResourceSampler}.
+ * - 1.4: stuck task count of {@link StuckTaskDetector}.
+ * - 1.5: shed count of {@link AdmissionController}.
+ * @since 2017/11/17 10:20:00.
+ */
+@Data
+public class GroupMetrics {
+
+    public static final String KIND_POOL = "pool";
+
+    public static final String KIND_VIRTUAL = "virtual";
+
+    public static final String KIND_FORK_JOIN = "forkjoin";
+
+    private String group;
+
+    /**
+     * {@code KIND_POOL}/{@code KIND_VIRTUAL}/{@code KIND_FORK_JOIN}
+     */
+    private String kind;
+
+    private long collectTime;
+
+    // ---- * pool * ---- //
+
+    private int poolSize = -1;
+
+    private int activeCount = -1;
+
+    private int corePoolSize = -1;
+
+    private int maxPoolSize = -1;
+
+    private int queued = -1;
+
+    private int remains = -1;
+
+    /**
+     * 过期丢弃的task数, 仅优先级线程池
+     */
+    private long expired = -1;
+
+    /**
+     * 提交线程被{@code BulkheadPolicy}阻塞的次数, 仅使用了该策略的线程池
+     */
+    private long blocked = -1;
+
+    /**
+     * 提交线程平均阻塞耗时(ms)
+     */
+    private double blockedMillis = -1;
+
+    /**
+     * 阻塞超时后被拒绝的task数
+     */
+    private long rejected = -1;
+
+    // ---- * batching * ---- //
+
+    /**
+     * 已flush的batch数, 仅通过{@code newBatchingExecutor()}创建的分组
+     */
+    private long batches = -1;
+
+    private long batchItems = -1;
+
+    /**
+     * 缓冲中尚未flush的item数
+     */
+    private int batchBuffered = -1;
+
+    /**
+     * 本周期内的batch大小分布
+     */
+    private Snapshot batchSizeHistogram;
+
+    // ---- * keyed serial * ---- //
+
+    /**
+     * 有task待执行的key数, 仅通过{@code newKeyedSerialExecutor()}创建的分组
+     */
+    private int activeKeys = -1;
+
+    /**
+     * 所有key积压的task数
+     */
+    private long keyBacklog = -1;
+
+    /**
+     * 被拒绝的task数(key队列已满或线程池拒绝调度), 与{@code BulkheadPolicy}的{@code rejected}分开统计
+     */
+    private long keyRejected = -1;
+
+    /**
+     * 积压最多的key及其积压数, 降序
+     */
+    private List<Map.Entry<String, Integer>> hotKeys;
+
+    // ---- * virtual thread * ---- //
+
+    private boolean virtual;
+
+    private long inFlight = -1;
+
+    private long running = -1;
+
+    /**
+     * 0表示不限制
+     */
+    private int concurrencyLimit = -1;
+
+    // ---- * fork join * ---- //
+
+    private int parallelism = -1;
+
+    private long stealCount = -1;
+
+    private long queuedSubmissions = -1;
+
+    // ---- * flight recorder * ---- //
+
+    private long success;
+
+    private long failure;
+
+    /**
+     * 平均执行耗时(ms), 自启动起累计
+     */
+    private double rtMillis;
+
+    /**
+     * 平均排队耗时(ms), 自启动起累计
+     */
+    private double waitMillis;
+
+    /**
+     * 本周期内的tps
+     */
+    private long tps;
+
+    /**
+     * 本周期内的排队耗时分布(us)
+     */
+    private Snapshot waitHistogram;
+
+    /**
+     * 本周期内的执行耗时分布(us)
+     */
+    private Snapshot execHistogram;
+
+    /**
+     * 排队task抽样, 仅{@code KIND_POOL}
+     */
+    private Sample queueSample;
+
+    /**
+     * 最近一次检测时执行超时的task数
+     */
+    private int stuck;
+
+    /**
+     * 自启动起被报告为执行超时的task数, 及其中被interrupt的task数
+     */
+    private long stuckTotal;
+
+    private long stuckInterrupted;
+
+    /**
+     * 被{@link AdmissionController}拒绝的提交数, 未开启准入控制的分组为-1
+     */
+    private long shed = -1;
+
+    private boolean shedding;
+
+    /**
+     * 本周期内按抽样外推的CPU消耗(CPU-ms/s), 1000表示平均占满一个核; 本周期没有抽样时为-1
+     */
+    private double cpuMillisPerSecond = -1;
+
+    /**
+     * 本周期内按抽样外推的内存分配速率(MB/s); 本周期没有抽样或JVM不支持时为-1
+     */
+    private double allocMBPerSecond = -1;
+
+    /**
+     * 本周期内抽样的task数
+     */
+    private long resourceSampled = -1;
+
+    public double waitPercentileMillis(double percentile) {
+        return waitHistogram == null ? 0.0 : waitHistogram.valueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double execPercentileMillis(double percentile) {
+        return execHistogram == null ? 0.0 : execHistogram.valueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * @return 本周期内batch大小的分位数, 非攒批分组为-1
+     */
+    public long batchSizePercentile(double percentile) {
+        return batchSizeHistogram == null ? -1 : batchSizeHistogram.valueAtPercentile(percentile);
+    }
+
+    /**
+     * @return 自启动起的平均batch大小, 非攒批分组为-1
+     */
+    public double getAvgBatchSize() {
+        if (batches < 0) {
+            return -1;
+        }
+        return batches == 0 ? 0.0 : (double)batchItems / batches;
+    }
+
+    /**
+     * @return 抽样范围内最老task的排队时长(ms), 没有排队task时为0, 非{@code KIND_POOL}为-1
+     */
+    public double getOldestQueuedMillis() {
+        return queueSample == null ? -1 : queueSample.getOldestNanos() / 1_000_000.0;
+    }
+}
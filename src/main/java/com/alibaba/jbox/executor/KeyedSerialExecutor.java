@@ -0,0 +1,287 @@
+package com.alibaba.jbox.executor;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 按key串行的执行器, 由{@code ExecutorManager.newKeyedSerialExecutor()}创建:
+ * - 同一key的task按提交顺序(FIFO)依次执行, 不同key的task在同一个受管线程池中并行, 无需为每个key创建单线程池;
+ * - 每个活跃key对应一个{@code SerialQueue}, 只有当其中有task且尚未被调度时才向线程池提交一次, 队列为空后即移除, 不会为冷key常驻内存;
+ * - 一个key连续执行{@code MAX_RUNS_PER_SCHEDULE}个task后重新提交到线程池尾部, 防止热点key饿死其他key;
+ * - 每个key的队列长度不超过{@code maxQueuePerKey}, 超过时抛出{@code RejectedExecutionException};
+ * - 线程池拒绝了key的首次调度(如已关闭)时, 该key上已积压的task一并被拒绝, {@code submit()}返回的Future以{@code RejectedExecutionException}结束;
+ * - task在提交时即被Decorator封装, 上下文透传、排队耗时(包含key队列内的等待)与{@code FlightRecorder}统计和普通task一致;
+ * - 活跃key数、积压task数、拒绝数以及积压最多的热点key由{@code ExecutorMonitor}输出.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/22 10:20:00.
+ */
+public class KeyedSerialExecutor implements ExecutorLoggerInner {
+
+    private static final int MAX_RUNS_PER_SCHEDULE = 16;
+
+    private final String group;
+
+    private final int maxQueuePerKey;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentHashMap<Object, SerialQueue> queues = new ConcurrentHashMap<>();
+
+    private final LongAdder backlog = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    KeyedSerialExecutor(String group, int maxQueuePerKey, ExecutorService executor) {
+        Preconditions.checkArgument(maxQueuePerKey > 0, "maxQueuePerKey must be positive.");
+        this.group = group;
+        this.maxQueuePerKey = maxQueuePerKey;
+        this.executor = executor;
+    }
+
+    public void execute(Object key, Runnable task) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(task);
+
+        if (executor instanceof ManagedExecutorService) {
+            ManagedExecutorService managed = (ManagedExecutorService)executor;
+            enqueue(key, managed.interceptor.decorate(task), managed.getTarget());
+        } else {
+            // sync模式下在当前线程执行, 天然有序
+            executor.execute(task);
+        }
+    }
+
+    public <T> Future<T> submit(Object key, Callable<T> task) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(task);
+
+        if (executor instanceof ManagedExecutorService) {
+            ManagedExecutorService managed = (ManagedExecutorService)executor;
+            ManagedFutureTask<T> future = new ManagedFutureTask<>(managed.interceptor.decorate(task));
+            enqueue(key, future, managed.getTarget());
+            return future;
+        } else {
+            return executor.submit(task);
+        }
+    }
+
+    private void enqueue(Object key, Runnable task, ExecutorService target) {
+        SerialQueue[] scheduled = new SerialQueue[1];
+        queues.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new SerialQueue(k, target);
+            }
+            if (queue.tasks.size() >= maxQueuePerKey) {
+                rejected.increment();
+                throw new RejectedExecutionException(
+                    String.format("group [%s] key [%s] queue is full, size: [%d]", group, k, maxQueuePerKey));
+            }
+            queue.tasks.add(task);
+            queue.size = queue.tasks.size();
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                scheduled[0] = queue;
+            }
+            return queue;
+        });
+        backlog.increment();
+
+        SerialQueue queue = scheduled[0];
+        if (queue != null) {
+            try {
+                target.execute(queue);
+            } catch (RejectedExecutionException e) {
+                // 线程池已关闭, 期间其他提交方追加到该key上的task同样无法执行
+                for (Runnable dropped : drop(queue)) {
+                    rejected.increment();
+                    if (dropped != task) {
+                        reject(key, dropped, e);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 将尚未被调度的{@code queue}从{@code queues}中移除
+     *
+     * @return 其中积压的task
+     */
+    private List<Runnable> drop(SerialQueue queue) {
+        List<Runnable> dropped = new ArrayList<>();
+        queues.computeIfPresent(queue.key, (k, current) -> {
+            if (current != queue) {
+                return current;
+            }
+            dropped.addAll(queue.tasks);
+            queue.tasks.clear();
+            queue.size = 0;
+            return null;
+        });
+        backlog.add(-dropped.size());
+        return dropped;
+    }
+
+    private void reject(Object key, Runnable task, RejectedExecutionException e) {
+        if (task instanceof ManagedFutureTask) {
+            ((ManagedFutureTask<?>)task).setRejected(e);
+        } else {
+            monitor.warn("group [{}] key [{}] task [{}] rejected: {}", group, key,
+                task instanceof TaskDescriptor ? ((TaskDescriptor)task).taskInfo() : task.getClass().getName(),
+                e.getMessage());
+        }
+    }
+
+    /**
+     * @return 下一个task, 队列为空时将其从{@code queues}中移除并返回null
+     */
+    private Runnable next(SerialQueue queue) {
+        Runnable[] next = new Runnable[1];
+        queues.compute(queue.key, (k, current) -> {
+            next[0] = queue.tasks.poll();
+            queue.size = queue.tasks.size();
+            if (next[0] == null) {
+                queue.scheduled = false;
+                return null;
+            }
+            return current;
+        });
+        if (next[0] != null) {
+            backlog.decrement();
+        }
+        return next[0];
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getMaxQueuePerKey() {
+        return maxQueuePerKey;
+    }
+
+    /**
+     * @return 有task待执行或正在执行的key数
+     */
+    public int getActiveKeys() {
+        return queues.size();
+    }
+
+    /**
+     * @return 所有key中尚未开始执行的task数
+     */
+    public long getBacklog() {
+        return backlog.sum();
+    }
+
+    /**
+     * @return 因key队列已满或线程池拒绝调度而被拒绝的task数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @param limit : 最多遍历的key数, 防止活跃key过多时监控本身成为负担
+     * @return 积压最多的{@code topN}个key(积压数降序), key为{@code String.valueOf(key)}
+     */
+    public List<Map.Entry<String, Integer>> hotKeys(int topN, int limit) {
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(topN + 1,
+            Comparator.comparingInt(Map.Entry::getValue));
+        int visited = 0;
+        for (SerialQueue queue : queues.values()) {
+            if (visited++ >= limit) {
+                break;
+            }
+            int size = queue.size;
+            if (size == 0) {
+                continue;
+            }
+            heap.add(new SimpleImmutableEntry<>(String.valueOf(queue.key), size));
+            if (heap.size() > topN) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<String, Integer>> hotKeys = new ArrayList<>(heap);
+        hotKeys.sort((e1, e2) -> e2.getValue() - e1.getValue());
+        return hotKeys;
+    }
+
+    /**
+     * 一个key的task队列, 所有状态变更均在{@code queues.compute()}内完成, 即由该key所在的bin锁保护.
+     */
+    private final class SerialQueue implements Runnable, TaskDescriptor {
+
+        private final Object key;
+
+        private final ExecutorService target;
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        /**
+         * 供监控无锁读取
+         */
+        private volatile int size;
+
+        private boolean scheduled;
+
+        private SerialQueue(Object key, ExecutorService target) {
+            this.key = key;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                for (int i = 0; i < MAX_RUNS_PER_SCHEDULE; ++i) {
+                    Runnable task = next(this);
+                    if (task == null) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        // Decorator已记录failure并打印日志, 不能影响同一key的后续task
+                        monitor.debug("group [{}] key [{}] task throws exception", group, key, t);
+                    }
+                }
+
+                // 让出线程, 排到线程池尾部; scheduled仍为true, 期间不会被重复提交
+                try {
+                    target.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    monitor.warn("group [{}] key [{}] reschedule rejected, run in current thread", group, key);
+                }
+            }
+        }
+
+        @Override
+        public String taskInfo() {
+            // 按key分类会使排队抽样的类型数无限增长, 热点key单独统计
+            return "keyed-serial";
+        }
+
+        @Override
+        public long submitNanos() {
+            return RunnableDecoratorInterceptor.NOT_STAMPED;
+        }
+    }
+}
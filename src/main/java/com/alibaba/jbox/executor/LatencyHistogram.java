@@ -0,0 +1,153 @@
+package com.alibaba.jbox.executor;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁、固定内存的延迟直方图(类HdrHistogram的log-linear分桶):
+ * - 小于{@code SUB_BUCKET_COUNT}的值每个值一个桶;
+ * - 其余值按2的幂次划分区间, 每个区间再线性切分为{@code SUB_BUCKET_COUNT}个子桶, 相对误差约为{@code 1/SUB_BUCKET_COUNT};
+ * - 超过{@code MAX_MAGNITUDE}的值全部落入最后一个桶.
+ * 每个桶是一个{@code LongAdder}, 多线程并发{@code record()}时不会争抢同一个cache line.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/03 11:05:00.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 3140546230217711307L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_MAGNITUDE = 40;
+
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+    /**
+     * 两次{@code snapshot()}之间记录到的最大值
+     */
+    private final LongAccumulator intervalMax = new LongAccumulator(Long::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[bucketIndex(value)].increment();
+        intervalMax.accumulate(value);
+    }
+
+    /**
+     * @return 各桶的累计计数, 以及自上次调用以来的最大值(调用后重置).
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, intervalMax.getThenReset());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int)value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int)(value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @return 落入该桶的最大值
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowest = ((long)(SUB_BUCKET_COUNT + subBucket)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long totalCount;
+
+        private final long max;
+
+        Snapshot(long[] counts, long max) {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.counts = counts;
+            this.totalCount = total;
+            this.max = max;
+        }
+
+        /**
+         * @param before 上一周期的snapshot
+         * @return 本周期内新增的分布
+         */
+        public Snapshot minus(Snapshot before) {
+            if (before == null) {
+                return this;
+            }
+
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < counts.length; ++i) {
+                delta[i] = counts[i] - before.counts[i];
+            }
+            return new Snapshot(delta, max);
+        }
+
+        /**
+         * @param percentile : 0.0 ~ 100.0
+         * @return 对应百分位的值(所在桶的上界, 不超过{@code max})
+         */
+        public long valueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+
+            long countAtPercentile = Math.max(1, (long)Math.ceil(percentile / 100.0 * totalCount));
+            long accumulated = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                accumulated += counts[i];
+                if (accumulated >= countAtPercentile) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link AdmissionController}处于shedding状态时提交task抛出, 调用方可据此快速失败/降级.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/01 10:10:00.
+ */
+public class LoadSheddingException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = -6418953066263871325L;
+
+    private final String group;
+
+    public LoadSheddingException(String group, String message) {
+        super(message);
+        this.group = group;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+}
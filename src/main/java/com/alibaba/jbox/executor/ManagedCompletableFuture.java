@@ -0,0 +1,466 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+import static com.alibaba.jbox.executor.RunnableDecoratorInterceptor.NOT_STAMPED;
+
+/**
+ * 绑定在某个分组线程池上的{@code CompletableFuture}:
+ * - 由{@code supplyAsync()}/{@code runAsync()}或{@link ManagedExecutorService}同名方法创建, task经过分组的Decorator封装,
+ * 享有上下文透传与{@code FlightRecorder}统计;
+ * - 不指定executor的{@code *Async()}依赖阶段同样提交到该分组(而非{@code ForkJoinPool.commonPool()}), 上下文在提交依赖阶段时捕获;
+ * - 所有依赖阶段返回的仍是{@code ManagedCompletableFuture}, 整条链路都绑定在该分组上
+ * (JDK9+通过{@code newIncompleteFuture()}/{@code defaultExecutor()}, JDK8通过覆写各依赖方法);
+ * - 在task开始执行前{@code cancel()}, task出队后直接跳过, 不再占用线程;
+ * - {@code allOfWithTimeout()}: 扇出/扇入, 任一失败或超时即取消其余未完成的future, 全程不阻塞调用线程.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/24 10:30:00.
+ */
+public class ManagedCompletableFuture<T> extends CompletableFuture<T> {
+
+    private final Executor executor;
+
+    ManagedCompletableFuture(Executor executor) {
+        this.executor = Preconditions.checkNotNull(executor);
+    }
+
+    // ---- * factory * ---- //
+
+    /**
+     * @param executor : 通常为{@code ExecutorManager}返回的分组线程池, 也可以是sync模式下的{@link SyncInvokeExecutorService}
+     */
+    public static <U> ManagedCompletableFuture<U> supplyAsync(Supplier<U> supplier, Executor executor) {
+        Preconditions.checkNotNull(supplier);
+        return submit(new SupplierCallable<>(supplier, supplier), executor);
+    }
+
+    public static ManagedCompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        Preconditions.checkNotNull(runnable);
+        return submit(new SupplierCallable<>(() -> {
+            runnable.run();
+            return null;
+        }, runnable), executor);
+    }
+
+    private static <U> ManagedCompletableFuture<U> submit(Callable<U> callable, Executor executor) {
+        ManagedCompletableFuture<U> future = new ManagedCompletableFuture<>(executor);
+        if (executor instanceof ManagedExecutorService) {
+            ManagedExecutorService managed = (ManagedExecutorService)executor;
+            managed.getTarget().execute(new AsyncSupply<>(future, managed.interceptor.decorate(callable)));
+        } else {
+            executor.execute(new AsyncSupply<>(future, callable));
+        }
+        return future;
+    }
+
+    /**
+     * 等待所有future完成, 结果按{@code futures}的顺序排列:
+     * - 任一future异常完成时, 取消其余未完成的future, 返回的future以该异常完成;
+     * - 超时时, 取消所有未完成的future, 返回的future以{@code TimeoutException}完成.
+     * 已在执行中的task不会被中断, 其结果被忽略. 依赖阶段应使用{@code *Async()}方法, 以免在timer线程中执行.
+     *
+     * @param executor : 返回的future的依赖阶段默认执行的线程池
+     */
+    @SuppressWarnings("unchecked")
+    public static <U> ManagedCompletableFuture<List<U>> allOfWithTimeout(
+        Collection<? extends CompletableFuture<? extends U>> futures, long timeout, TimeUnit unit,
+        Executor executor) {
+
+        List<CompletableFuture<? extends U>> fanOut = new ArrayList<>(futures);
+        ManagedCompletableFuture<List<U>> fanIn = new ManagedCompletableFuture<>(executor);
+        if (fanOut.isEmpty()) {
+            fanIn.complete(new ArrayList<>());
+            return fanIn;
+        }
+
+        // 与JDK9的orTimeout()一致在timer线程中完成: 分组线程可能正被这些task占满; 非Async的依赖阶段也会在timer线程中执行
+        // timer/失败/全部成功三者竞争, 先claim者完成fanIn, 避免最后一个结果已到达但尚未complete时被判为超时
+        AtomicBoolean settled = new AtomicBoolean(false);
+        ScheduledFuture<?> timer = ExecutorTimer.TIMER.schedule(() -> {
+            if (fanIn.isDone() || !settled.compareAndSet(false, true)) {
+                return;
+            }
+            TimeoutException timeoutException = new TimeoutException(
+                String.format("%d of %d futures not completed in %d %s", countPending(fanOut), fanOut.size(),
+                    timeout, unit));
+            // 先取消, 调用方观察到超时时stragglers已被取消
+            cancelAll(fanOut);
+            fanIn.completeExceptionally(timeoutException);
+        }, timeout, unit);
+
+        Object[] results = new Object[fanOut.size()];
+        AtomicInteger remaining = new AtomicInteger(fanOut.size());
+        for (int i = 0; i < fanOut.size(); ++i) {
+            int index = i;
+            fanOut.get(i).whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    // 超时/失败后取消其余future引起的CancellationException被忽略
+                    if (settled.compareAndSet(false, true)) {
+                        fanIn.completeExceptionally(throwable);
+                        timer.cancel(false);
+                        cancelAll(fanOut);
+                    }
+                    return;
+                }
+                results[index] = result;
+                if (remaining.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                    timer.cancel(false);
+                    List<U> list = new ArrayList<>(results.length);
+                    for (Object value : results) {
+                        list.add((U)value);
+                    }
+                    fanIn.complete(list);
+                }
+            });
+        }
+
+        return fanIn;
+    }
+
+    private static int countPending(List<? extends CompletableFuture<?>> futures) {
+        int pending = 0;
+        for (CompletableFuture<?> future : futures) {
+            if (!future.isDone()) {
+                ++pending;
+            }
+        }
+        return pending;
+    }
+
+    private static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // ---- * JDK9+ * ---- //
+
+    /**
+     * JDK9+中覆写{@code CompletableFuture.defaultExecutor()}, JDK8中不会被调用
+     */
+    public Executor defaultExecutor() {
+        return executor;
+    }
+
+    /**
+     * JDK9+中覆写{@code CompletableFuture.newIncompleteFuture()}, JDK8中不会被调用
+     */
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new ManagedCompletableFuture<>(executor);
+    }
+
+    // ---- * JDK8 * ---- //
+
+    @SuppressWarnings("unchecked")
+    private <U> ManagedCompletableFuture<U> wrap(CompletableFuture<U> stage) {
+        if (stage instanceof ManagedCompletableFuture) {
+            return (ManagedCompletableFuture<U>)stage;
+        }
+
+        ManagedCompletableFuture<U> managed = new ManagedCompletableFuture<>(executor);
+        stage.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                managed.complete(result);
+            } else {
+                managed.completeExceptionally(throwable);
+            }
+        });
+        return managed;
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenApply(Function<? super T, ? extends U> fn) {
+        return wrap(super.thenApply(fn));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return wrap(super.thenApplyAsync(fn, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return wrap(super.thenApplyAsync(fn, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenAccept(Consumer<? super T> action) {
+        return wrap(super.thenAccept(action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return wrap(super.thenAcceptAsync(action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return wrap(super.thenAcceptAsync(action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenRun(Runnable action) {
+        return wrap(super.thenRun(action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenRunAsync(Runnable action) {
+        return wrap(super.thenRunAsync(action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> thenRunAsync(Runnable action, Executor executor) {
+        return wrap(super.thenRunAsync(action, executor));
+    }
+
+    @Override
+    public <U, V> ManagedCompletableFuture<V> thenCombine(CompletionStage<? extends U> other,
+                                                          BiFunction<? super T, ? super U, ? extends V> fn) {
+        return wrap(super.thenCombine(other, fn));
+    }
+
+    @Override
+    public <U, V> ManagedCompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                               BiFunction<? super T, ? super U, ? extends V> fn) {
+        return wrap(super.thenCombineAsync(other, fn, executor));
+    }
+
+    @Override
+    public <U, V> ManagedCompletableFuture<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                                               BiFunction<? super T, ? super U, ? extends V> fn,
+                                                               Executor executor) {
+        return wrap(super.thenCombineAsync(other, fn, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<Void> thenAcceptBoth(CompletionStage<? extends U> other,
+                                                             BiConsumer<? super T, ? super U> action) {
+        return wrap(super.thenAcceptBoth(other, action));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                                  BiConsumer<? super T, ? super U> action) {
+        return wrap(super.thenAcceptBothAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                                  BiConsumer<? super T, ? super U> action,
+                                                                  Executor executor) {
+        return wrap(super.thenAcceptBothAsync(other, action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return wrap(super.runAfterBoth(other, action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return wrap(super.runAfterBothAsync(other, action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action,
+                                                            Executor executor) {
+        return wrap(super.runAfterBothAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> applyToEither(CompletionStage<? extends T> other,
+                                                         Function<? super T, U> fn) {
+        return wrap(super.applyToEither(other, fn));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other,
+                                                              Function<? super T, U> fn) {
+        return wrap(super.applyToEitherAsync(other, fn, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> applyToEitherAsync(CompletionStage<? extends T> other,
+                                                              Function<? super T, U> fn, Executor executor) {
+        return wrap(super.applyToEitherAsync(other, fn, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> acceptEither(CompletionStage<? extends T> other,
+                                                       Consumer<? super T> action) {
+        return wrap(super.acceptEither(other, action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other,
+                                                            Consumer<? super T> action) {
+        return wrap(super.acceptEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> acceptEitherAsync(CompletionStage<? extends T> other,
+                                                            Consumer<? super T> action, Executor executor) {
+        return wrap(super.acceptEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return wrap(super.runAfterEither(other, action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return wrap(super.runAfterEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action,
+                                                              Executor executor) {
+        return wrap(super.runAfterEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return wrap(super.thenCompose(fn));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return wrap(super.thenComposeAsync(fn, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn,
+                                                            Executor executor) {
+        return wrap(super.thenComposeAsync(fn, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return wrap(super.whenComplete(action));
+    }
+
+    @Override
+    public ManagedCompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return wrap(super.whenCompleteAsync(action, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action,
+                                                         Executor executor) {
+        return wrap(super.whenCompleteAsync(action, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return wrap(super.handle(fn));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return wrap(super.handleAsync(fn, executor));
+    }
+
+    @Override
+    public <U> ManagedCompletableFuture<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn,
+                                                       Executor executor) {
+        return wrap(super.handleAsync(fn, executor));
+    }
+
+    @Override
+    public ManagedCompletableFuture<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return wrap(super.exceptionally(fn));
+    }
+
+    // ---- * task * ---- //
+
+    /**
+     * 放入RunnableQueue的task, future已完成(如被取消)时直接跳过.
+     */
+    private static final class AsyncSupply<U> implements Runnable, TaskDescriptor {
+
+        private final ManagedCompletableFuture<U> future;
+
+        private final Callable<U> callable;
+
+        private AsyncSupply(ManagedCompletableFuture<U> future, Callable<U> callable) {
+            this.future = future;
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(callable.call());
+            } catch (Throwable t) {
+                // Decorator已记录failure并打印日志
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public String taskInfo() {
+            return callable instanceof TaskDescriptor ? ((TaskDescriptor)callable).taskInfo()
+                : callable.getClass().getName();
+        }
+
+        @Override
+        public long submitNanos() {
+            return callable instanceof TaskDescriptor ? ((TaskDescriptor)callable).submitNanos() : NOT_STAMPED;
+        }
+    }
+
+    private static final class SupplierCallable<U> implements AsyncCallable<U> {
+
+        private final Supplier<U> supplier;
+
+        private final Object origin;
+
+        private SupplierCallable(Supplier<U> supplier, Object origin) {
+            this.supplier = supplier;
+            this.origin = origin;
+        }
+
+        @Override
+        public U execute() {
+            return supplier.get();
+        }
+
+        @Override
+        public String taskInfo() {
+            if (origin instanceof AsyncRunnable) {
+                return ((AsyncRunnable)origin).taskInfo();
+            }
+            return origin.getClass().getName();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 由{@code ExecutorManager}创建并管理的线程池, 直接委托给真实的{@code target}线程池执行,
+ * 在提交task时将其封装为{@code AsyncRunnable}/{@code AsyncCallable}的Decorator(详见{@link RunnableDecoratorInterceptor}),
+ * 相比于JDK动态代理实现, 省去了每次提交时的反射调用、方法名匹配以及{@code FlightRecorder}查找开销.
+ * - 1.1: {@code submit()}自行创建{@link ManagedFutureTask}后调用{@code target.execute()}, RunnableQueue中可直接读取task描述信息.
+ * - 1.2: {@code supplyAsync()}/{@code runAsync()}返回绑定在该分组上的{@link ManagedCompletableFuture}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.2
+ * @since 2017/11/02 10:12:00.
+ */
+public class ManagedExecutorService implements ExecutorService {
+
+    final String group;
+
+    final ExecutorService target;
+
+    final RunnableDecoratorInterceptor interceptor;
+
+    ManagedExecutorService(String group, ExecutorService target) {
+        this.group = group;
+        this.target = target;
+        this.interceptor = new RunnableDecoratorInterceptor(group);
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    ExecutorService getTarget() {
+        return target;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        target.execute(interceptor.decorate(command));
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return submitTask(new ManagedFutureTask<>(interceptor.decorate(task)));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return submitTask(new ManagedFutureTask<>(interceptor.decorate(task), result));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return submitTask(new ManagedFutureTask<Void>(interceptor.decorate(task), null));
+    }
+
+    /**
+     * @since 1.2
+     */
+    public <T> ManagedCompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return ManagedCompletableFuture.supplyAsync(supplier, this);
+    }
+
+    /**
+     * @since 1.2
+     */
+    public ManagedCompletableFuture<Void> runAsync(Runnable runnable) {
+        return ManagedCompletableFuture.runAsync(runnable, this);
+    }
+
+    /**
+     * @see ManagedCompletableFuture#allOfWithTimeout
+     * @since 1.2
+     */
+    public <T> ManagedCompletableFuture<List<T>> allOfWithTimeout(
+        Collection<? extends CompletableFuture<? extends T>> futures, long timeout, TimeUnit unit) {
+        return ManagedCompletableFuture.allOfWithTimeout(futures, timeout, unit, this);
+    }
+
+    private <T> Future<T> submitTask(ManagedFutureTask<T> future) {
+        target.execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return target.invokeAll(decorateAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return target.invokeAll(decorateAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+        throws InterruptedException, ExecutionException {
+        return target.invokeAny(decorateAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        return target.invokeAny(decorateAll(tasks), timeout, unit);
+    }
+
+    private <T> List<Callable<T>> decorateAll(Collection<? extends Callable<T>> tasks) {
+        List<Callable<T>> decorated = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            decorated.add(interceptor.decorate(task));
+        }
+        return decorated;
+    }
+
+    @Override
+    public void shutdown() {
+        target.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return target.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return target.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return target.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return target.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "ManagedExecutorService{group='" + group + "', target=" + target + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code ForkJoinPool}版本的{@link ManagedExecutorService}:
+ * - 通过{@code execute()}/{@code submit()}/{@code invoke()}提交的顶层task会被封装为Decorator,
+ * 在worker线程中恢复EagleEye/MDC上下文并记录{@code FlightRecorder};
+ * - 顶层task内部{@code fork()}出的子task由worker直接执行(work-stealing), 不再单独封装与计数;
+ * - worker线程以{@code '${group}-${number}'}形式命名.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/13 11:20:00.
+ */
+public class ManagedForkJoinPool extends ManagedExecutorService {
+
+    private final ForkJoinPool forkJoinTarget;
+
+    ManagedForkJoinPool(String group, ForkJoinPool target) {
+        super(group, target);
+        this.forkJoinTarget = target;
+    }
+
+    /**
+     * 提交并等待{@code ForkJoinTask}执行完成, 语义同{@link ForkJoinPool#invoke(ForkJoinTask)}.
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return submit(task).join();
+    }
+
+    /**
+     * 语义同{@link ForkJoinPool#submit(ForkJoinTask)}, 返回的是包裹了{@code task}的顶层task.
+     */
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        return forkJoinTarget.submit(interceptor.decorate((Callable<T>)task::invoke));
+    }
+
+    public int getParallelism() {
+        return forkJoinTarget.getParallelism();
+    }
+
+    ForkJoinPool getForkJoinTarget() {
+        return forkJoinTarget;
+    }
+
+    static final class NamedForkJoinWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger number = new AtomicInteger(0);
+
+        private final String group;
+
+        NamedForkJoinWorkerThreadFactory(String group) {
+            this.group = group;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(String.format("%s-%s", group, number.getAndIncrement()));
+            return thread;
+        }
+    }
+}
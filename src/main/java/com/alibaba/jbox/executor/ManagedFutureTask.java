@@ -0,0 +1,63 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.alibaba.jbox.executor.RunnableDecoratorInterceptor.NOT_STAMPED;
+
+/**
+ * {@link ManagedExecutorService#submit}返回的{@code Future}:
+ * 由{@code ManagedExecutorService}自行创建后通过{@code target.execute()}提交, 而非交给{@code target.submit()}包装为JDK的{@code FutureTask},
+ * 使RunnableQueue中的task保留对Decorator的引用, 监控时可直接读取{@link TaskDescriptor}与{@link PriorityTask}属性.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/16 10:30:00.
+ */
+class ManagedFutureTask<V> extends FutureTask<V> implements TaskDescriptor, PriorityTask {
+
+    private final Object task;
+
+    ManagedFutureTask(Callable<V> decorated) {
+        super(decorated);
+        this.task = decorated;
+    }
+
+    ManagedFutureTask(Runnable decorated, V result) {
+        super(decorated, result);
+        this.task = decorated;
+    }
+
+    /**
+     * 未能提交到线程池时结束该Future, 使调用方的{@code get()}不会永远阻塞
+     */
+    void setRejected(RejectedExecutionException e) {
+        setException(e);
+    }
+
+    @Override
+    public String taskInfo() {
+        return task instanceof TaskDescriptor ? ((TaskDescriptor)task).taskInfo() : task.getClass().getName();
+    }
+
+    @Override
+    public long submitNanos() {
+        return task instanceof TaskDescriptor ? ((TaskDescriptor)task).submitNanos() : NOT_STAMPED;
+    }
+
+    @Override
+    public Object origin() {
+        return task;
+    }
+
+    @Override
+    public int priority() {
+        return PriorityTask.priorityOf(task);
+    }
+
+    @Override
+    public long deadline() {
+        return PriorityTask.deadlineOf(task);
+    }
+}
@@ -0,0 +1,46 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ScheduledExecutorService}版本的{@link ManagedExecutorService}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/02 10:40:00.
+ */
+public class ManagedScheduledExecutorService extends ManagedExecutorService implements ScheduledExecutorService {
+
+    private final ScheduledExecutorService scheduledTarget;
+
+    ManagedScheduledExecutorService(String group, ScheduledExecutorService target) {
+        super(group, target);
+        this.scheduledTarget = target;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return scheduledTarget.schedule(interceptor.decorate(command, false), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return scheduledTarget.schedule(interceptor.decorate(callable, false), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return scheduledTarget.scheduleAtFixedRate(interceptor.decorate(command, false),
+            initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        return scheduledTarget.scheduleWithFixedDelay(interceptor.decorate(command, false),
+            initialDelay, delay, unit);
+    }
+}
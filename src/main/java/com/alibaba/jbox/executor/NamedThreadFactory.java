@@ -28,7 +28,7 @@ public class NamedThreadFactory implements ThreadFactory, ExecutorLoggerInner {
         return thread;
     }
 
-    private static UncaughtExceptionHandler exceptionHandler = (t, e) -> {
+    static UncaughtExceptionHandler exceptionHandler = (t, e) -> {
         String message = String.format("thread: [%s]-[%s] runtime throws exception, state:[%s]",
             t.getName(), t.getId(), t.getState());
         monitor.error("{}", message, e);
@@ -0,0 +1,12 @@
+package com.alibaba.jbox.executor;
+
+/**
+ * 携带优先级与截止时间的{@link AsyncRunnable}, 详见{@link PriorityTask}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 10:30:00.
+ */
+@FunctionalInterface
+public interface PriorityRunnable extends AsyncRunnable, PriorityTask {
+}
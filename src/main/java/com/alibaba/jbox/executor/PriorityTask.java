@@ -0,0 +1,45 @@
+package com.alibaba.jbox.executor;
+
+/**
+ * 携带优先级与截止时间的task, 提交到{@code ExecutorManager.newPriorityThreadPool()}创建的线程池时:
+ * - RunnableQueue按{@code priority()}从高到低、{@code deadline()}从早到晚(无deadline的排在最后)、提交顺序排序;
+ * - 开始执行时已超过{@code deadline()}的task不再执行, 计入{@code FlightRecorder}的expired,
+ * 并回调{@code com.alibaba.jbox.executor.policy.ExpiredTaskHandler}.
+ * 提交到普通线程池时这两个属性不生效.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 10:20:00.
+ */
+public interface PriorityTask {
+
+    int MIN_PRIORITY = 1;
+
+    int NORM_PRIORITY = 5;
+
+    int MAX_PRIORITY = 10;
+
+    long NO_DEADLINE = 0L;
+
+    /**
+     * @return 数值越大优先级越高, 默认{@code NORM_PRIORITY}.
+     */
+    default int priority() {
+        return NORM_PRIORITY;
+    }
+
+    /**
+     * @return task最晚开始执行的时间点({@code System.currentTimeMillis()}), 默认{@code NO_DEADLINE}.
+     */
+    default long deadline() {
+        return NO_DEADLINE;
+    }
+
+    static int priorityOf(Object task) {
+        return task instanceof PriorityTask ? ((PriorityTask)task).priority() : NORM_PRIORITY;
+    }
+
+    static long deadlineOf(Object task) {
+        return task instanceof PriorityTask ? ((PriorityTask)task).deadline() : NO_DEADLINE;
+    }
+}
@@ -0,0 +1,238 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+import com.alibaba.jbox.executor.policy.ExpiredTaskHandler;
+import com.alibaba.jbox.executor.queue.BoundedPriorityBlockingQueue;
+
+import static com.alibaba.jbox.executor.RunnableDecoratorInterceptor.NOT_STAMPED;
+
+/**
+ * 按{@link PriorityTask}排序的线程池:
+ * - 所有进入RunnableQueue的task都被封装为{@link QueuedTask}, 携带优先级、deadline以及提交序号;
+ * - RunnableQueue为{@link BoundedPriorityBlockingQueue}, 按优先级高到低、deadline早到晚、提交先后出队;
+ * - 开始执行时已超过deadline的task直接丢弃: {@code submit()}返回的{@code Future}被cancel,
+ * 计入{@code FlightRecorder}的expired, 并回调{@link ExpiredTaskHandler}.
+ * - 1.1: {@code ManagedExecutorService.submit()}以{@code execute()}提交{@link ManagedFutureTask}, 过期时同样cancel.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.1
+ * @since 2017/11/15 14:00:00.
+ */
+class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+    static final Comparator<Runnable> QUEUE_ORDER = (r1, r2) -> {
+        QueuedTask t1 = (QueuedTask)r1;
+        QueuedTask t2 = (QueuedTask)r2;
+        int result = Integer.compare(t2.priority(), t1.priority());
+        if (result == 0) {
+            result = Long.compare(deadlineOrder(t1.deadline()), deadlineOrder(t2.deadline()));
+        }
+        if (result == 0) {
+            result = Long.compare(t1.sequence(), t2.sequence());
+        }
+        return result;
+    };
+
+    private final AtomicLong sequencer = new AtomicLong(0L);
+
+    private final FlightRecorder recorder;
+
+    private final ExpiredTaskHandler expiredHandler;
+
+    PriorityThreadPoolExecutor(String group, int corePoolSize, int maximumPoolSize, long keepAliveMillis,
+                               int runnableQueueSize, ThreadFactory threadFactory,
+                               RejectedExecutionHandler rejectHandler, ExpiredTaskHandler expiredHandler) {
+        super(corePoolSize, maximumPoolSize, keepAliveMillis, TimeUnit.MILLISECONDS,
+            new BoundedPriorityBlockingQueue<>(runnableQueueSize, QUEUE_ORDER), threadFactory, rejectHandler);
+        this.recorder = ExecutorManager.recorders.computeIfAbsent(group, (k) -> new FlightRecorder());
+        this.expiredHandler = expiredHandler;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof QueuedTask) {
+            super.execute(command);
+        } else {
+            super.execute(new PriorityExecuteTask(command, sequencer.getAndIncrement()));
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PriorityFutureTask<>(runnable, value, sequencer.getAndIncrement());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PriorityFutureTask<>(callable, sequencer.getAndIncrement());
+    }
+
+    long getExpiredCount() {
+        return recorder.getExpired().sum();
+    }
+
+    /**
+     * @return true if task expired and has been discarded.
+     */
+    private boolean discardIfExpired(QueuedTask queuedTask, Object task) {
+        long deadline = queuedTask.deadline();
+        if (deadline == PriorityTask.NO_DEADLINE) {
+            return false;
+        }
+
+        long overdue = System.currentTimeMillis() - deadline;
+        if (overdue <= 0) {
+            return false;
+        }
+
+        recorder.recordExpired();
+        expiredHandler.expired(task, overdue, this);
+        return true;
+    }
+
+    /**
+     * 没有deadline的task排在最后
+     */
+    private static long deadlineOrder(long deadline) {
+        return deadline == PriorityTask.NO_DEADLINE ? Long.MAX_VALUE : deadline;
+    }
+
+    interface QueuedTask extends Runnable, PriorityTask {
+
+        long sequence();
+    }
+
+    /**
+     * {@code execute()}提交的task, 不吞掉异常
+     */
+    private final class PriorityExecuteTask implements QueuedTask, AsyncRunnable, TaskDescriptor {
+
+        private final Runnable task;
+
+        private final int priority;
+
+        private final long deadline;
+
+        private final long sequence;
+
+        PriorityExecuteTask(Runnable task, long sequence) {
+            this.task = task;
+            this.priority = PriorityTask.priorityOf(task);
+            this.deadline = PriorityTask.deadlineOf(task);
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (!discardIfExpired(this, this)) {
+                task.run();
+            } else if (task instanceof Future) {
+                // ManagedExecutorService.submit()提交的ManagedFutureTask
+                ((Future<?>)task).cancel(false);
+            }
+        }
+
+        @Override
+        public void execute() {
+            task.run();
+        }
+
+        @Override
+        public String taskInfo() {
+            if (task instanceof TaskDescriptor) {
+                return ((TaskDescriptor)task).taskInfo();
+            }
+            return task instanceof AsyncRunnable ? ((AsyncRunnable)task).taskInfo() : task.getClass().getName();
+        }
+
+        @Override
+        public long submitNanos() {
+            return task instanceof TaskDescriptor ? ((TaskDescriptor)task).submitNanos() : NOT_STAMPED;
+        }
+
+        @Override
+        public Object origin() {
+            return task;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public long deadline() {
+            return deadline;
+        }
+
+        @Override
+        public long sequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * {@code submit()}提交的task, 过期时cancel掉, {@code Future.get()}抛出{@code CancellationException}
+     */
+    private final class PriorityFutureTask<V> extends FutureTask<V> implements QueuedTask {
+
+        private final Object task;
+
+        private final int priority;
+
+        private final long deadline;
+
+        private final long sequence;
+
+        PriorityFutureTask(Callable<V> callable, long sequence) {
+            super(callable);
+            this.task = callable;
+            this.priority = PriorityTask.priorityOf(callable);
+            this.deadline = PriorityTask.deadlineOf(callable);
+            this.sequence = sequence;
+        }
+
+        PriorityFutureTask(Runnable runnable, V result, long sequence) {
+            super(runnable, result);
+            this.task = runnable;
+            this.priority = PriorityTask.priorityOf(runnable);
+            this.deadline = PriorityTask.deadlineOf(runnable);
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (!isDone() && discardIfExpired(this, task)) {
+                cancel(false);
+                return;
+            }
+            super.run();
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public long deadline() {
+            return deadline;
+        }
+
+        @Override
+        public long sequence() {
+            return sequence;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.alibaba.jbox.executor;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+import com.alibaba.jbox.executor.queue.SampleableQueue;
+
+import static com.alibaba.jbox.executor.RunnableDecoratorInterceptor.NOT_STAMPED;
+
+/**
+ * RunnableQueue中排队task的抽样统计:
+ * - 从队首开始最多遍历{@code sampleLimit}个task, 一次遍历完成, 不反射、不创建额外线程/队列;
+ * - {@code iterator()}会复制整个队列的{@link SampleableQueue}只复制队首{@code sampleLimit}个task;
+ * - 按{@code taskInfo()}分类计数(超过{@code MAX_TYPES}种后归入{@code OTHERS}), 输出数量最多的top-N;
+ * - 根据{@link TaskDescriptor#submitNanos()}计算抽样范围内最老task的排队时长.
+ * 监控开销只与{@code sampleLimit}相关, 不随积压的task数增长.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/16 11:00:00.
+ */
+final class QueuedTaskSampler {
+
+    static final int DEFAULT_SAMPLE_LIMIT = 256;
+
+    static final int DEFAULT_TOP_N = 5;
+
+    static final String OTHERS = "others";
+
+    /**
+     * 防止{@code taskInfo()}中带有实例信息时分类数无限增长
+     */
+    private static final int MAX_TYPES = 64;
+
+    private QueuedTaskSampler() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Sample sample(BlockingQueue<Runnable> queue, int sampleLimit) {
+        Sample sample = new Sample(queue.size());
+        if (sample.queued == 0) {
+            return sample;
+        }
+
+        long now = System.nanoTime();
+        Iterable<Runnable> tasks = queue instanceof SampleableQueue
+            ? ((SampleableQueue<Runnable>)queue).peek(sampleLimit) : queue;
+        for (Runnable runnable : tasks) {
+            if (sample.sampled >= sampleLimit) {
+                break;
+            }
+
+            String type;
+            long submitNanos = NOT_STAMPED;
+            if (runnable instanceof TaskDescriptor) {
+                type = ((TaskDescriptor)runnable).taskInfo();
+                submitNanos = ((TaskDescriptor)runnable).submitNanos();
+            } else if (runnable instanceof AsyncRunnable) {
+                type = ((AsyncRunnable)runnable).taskInfo();
+            } else {
+                type = runnable.getClass().getName();
+            }
+
+            sample.add(type, submitNanos == NOT_STAMPED ? 0L : now - submitNanos);
+        }
+        return sample;
+    }
+
+    static final class Sample {
+
+        private final int queued;
+
+        private int sampled;
+
+        private long oldestNanos;
+
+        private final Map<String, int[]> counts = new HashMap<>();
+
+        private Sample(int queued) {
+            this.queued = queued;
+        }
+
+        private void add(String type, long ageNanos) {
+            int[] count = counts.get(type);
+            if (count == null) {
+                String key = counts.size() < MAX_TYPES ? type : OTHERS;
+                count = counts.computeIfAbsent(key, (k) -> new int[1]);
+            }
+            ++count[0];
+            ++sampled;
+            oldestNanos = Math.max(oldestNanos, ageNanos);
+        }
+
+        int getQueued() {
+            return queued;
+        }
+
+        int getSampled() {
+            return sampled;
+        }
+
+        long getOldestNanos() {
+            return oldestNanos;
+        }
+
+        /**
+         * @return 按数量从多到少排序的前{@code n}个task类型
+         */
+        List<Map.Entry<String, Integer>> top(int n) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.size());
+            counts.forEach((type, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(type, count[0])));
+            entries.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+            return entries.size() > n ? entries.subList(0, n) : entries;
+        }
+    }
+}
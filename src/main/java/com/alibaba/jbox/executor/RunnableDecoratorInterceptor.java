@@ -1,118 +1,183 @@
 package com.alibaba.jbox.executor;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 
 import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+import com.alibaba.jbox.executor.context.ContextPropagator;
+import com.alibaba.jbox.executor.context.ContextPropagators;
 
-import com.google.common.base.Strings;
-import com.google.common.collect.Sets;
-import com.taobao.eagleeye.EagleEye;
 import lombok.NonNull;
-import org.slf4j.MDC;
 
 import static com.alibaba.jbox.executor.ExecutorManager.recorders;
+import static com.alibaba.jbox.executor.RunnableDecoratorInterceptor.NOT_STAMPED;
 
 /**
+ * 将提交到线程池内的task封装为对应的Decorator:
+ * - 1.0: 作为{@code InvocationHandler}通过JDK动态代理拦截{@code execute()}、{@code submit()}、{@code schedule*()}方法;
+ * - 1.2: 抽出{@code decorate()}方法供{@link ManagedExecutorService}直接调用, 免去反射/方法名匹配开销,
+ * 并将分组的{@code FlightRecorder}缓存在字段中;
+ * - 1.3: 记录task提交时间, 分别统计排队耗时(submit -> start)与执行耗时(start -> end)的分布;
+ * - 1.4: 使用{@code System.nanoTime()}计时, submit/start/end每个阶段只读取一次时钟;
+ * - 1.5: Decorator透传原始task的{@link PriorityTask}属性, 供优先级线程池排序;
+ * - 1.6: Decorator实现{@link TaskDescriptor}, 监控时无需反射即可获取taskInfo与提交时间;
+ * - 1.7: 上下文透传改由{@link ContextPropagators}完成, 没有需要透传的上下文时不分配快照数组、不做MDC/RpcContext操作,
+ * 可按分组关闭; 普通Runnable/Callable的Decorator不再创建{@code AsyncContext};
+ * - 1.8: 执行期间登记到{@code FlightRecorder}的in-flight表, 并可通过{@code origin()}取得原始task, 供优雅关闭时报告/持久化;
+ * - 1.9: 登记时带上已读取的开始时间, 供{@link StuckTaskDetector}计算执行时长;
+ * - 1.10: 封装前经过分组的{@link AdmissionController}准入, 延迟/周期调度的task不受限制;
+ * - 1.11: 移除{@code InvocationHandler}实现, 只由{@link ManagedExecutorService}直接调用{@code decorate()}.
+ *
  * @author jifang@alibaba-inc.com
- * @version 1.1
+ * @version 1.11
  * @since 2017/1/16 下午3:42.
  */
-class RunnableDecoratorInterceptor implements InvocationHandler {
+class RunnableDecoratorInterceptor {
 
-    private static final Set<String> NEED_PROXY_METHODS = Sets.newConcurrentHashSet(Arrays.asList(
-        "execute",
-        "submit",
-        "schedule",
-        "scheduleAtFixedRate",
-        "scheduleWithFixedDelay"
-    ));
+    /**
+     * 不统计排队耗时的task的submit时间戳
+     */
+    static final long NOT_STAMPED = Long.MIN_VALUE;
 
-    private String group;
+    private final String group;
 
-    private ExecutorService target;
+    private final FlightRecorder recorder;
 
-    RunnableDecoratorInterceptor(String group, ExecutorService target) {
+    /**
+     * 分组生效的propagator, {@code ContextPropagators.version()}变化时刷新
+     */
+    private PropagatorBinding binding = new PropagatorBinding(-1, null);
+
+    RunnableDecoratorInterceptor(String group) {
         this.group = group;
-        this.target = target;
+        this.recorder = recorders.computeIfAbsent(group, (k) -> new FlightRecorder());
     }
 
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        String methodName = method.getName();
-        if (NEED_PROXY_METHODS.contains(methodName)) {
-            Object rpcContext = EagleEye.getRpcContext();
-            Object firstArg = args[0];
-            FlightRecorder recorder = recorders.computeIfAbsent(group, (k) -> new FlightRecorder());
+    /**
+     * @since 1.7
+     */
+    private ContextPropagator[] propagators() {
+        PropagatorBinding binding = this.binding;
+        int version = ContextPropagators.version();
+        if (binding.version != version) {
+            binding = new PropagatorBinding(version, ContextPropagators.propagators(group));
+            this.binding = binding;
+        }
+        return binding.propagators;
+    }
+
+    /**
+     * @since 1.2
+     */
+    Runnable decorate(Runnable runnable) {
+        return decorate(runnable, true);
+    }
+
+    /**
+     * @param recordWait : 是否统计排队耗时, 延迟/周期调度的task不统计.
+     * @since 1.3
+     */
+    Runnable decorate(Runnable runnable, boolean recordWait) {
+        long submitNanos = recordWait ? System.nanoTime() : NOT_STAMPED;
+        if (recordWait) {
+            recorder.admit(submitNanos);
+        }
+        ContextPropagator[] propagators = propagators();
+        Object[] contexts = ContextPropagators.capture(propagators);
+        if (runnable instanceof AsyncRunnable) {
             AsyncContext context = new AsyncContext(Thread.currentThread(), group);
-            if (firstArg instanceof AsyncRunnable) {
-                args[0] = new AsyncRunnableDecorator(context, recorder, (AsyncRunnable)firstArg, rpcContext);
-            } else if (firstArg instanceof AsyncCallable) {
-                args[0] = new AsyncCallableDecorator(context, recorder, (AsyncCallable)firstArg, rpcContext);
-            } else if (firstArg instanceof Runnable) {
-                args[0] = new RunnableDecorator(context, recorder, (Runnable)firstArg, rpcContext);
-            } else if (firstArg instanceof Callable) {
-                args[0] = new CallableDecorator(context, recorder, (Callable)firstArg, rpcContext);
-            }
+            return new AsyncRunnableDecorator(context, recorder, (AsyncRunnable)runnable, propagators, contexts,
+                submitNanos);
+        } else {
+            return new RunnableDecorator(recorder, runnable, propagators, contexts, submitNanos);
         }
+    }
 
-        return method.invoke(target, args);
+    /**
+     * @since 1.2
+     */
+    <T> Callable<T> decorate(Callable<T> callable) {
+        return decorate(callable, true);
+    }
+
+    /**
+     * @param recordWait : 是否统计排队耗时, 延迟调度的task不统计.
+     * @since 1.3
+     */
+    @SuppressWarnings("unchecked")
+    <T> Callable<T> decorate(Callable<T> callable, boolean recordWait) {
+        long submitNanos = recordWait ? System.nanoTime() : NOT_STAMPED;
+        if (recordWait) {
+            recorder.admit(submitNanos);
+        }
+        ContextPropagator[] propagators = propagators();
+        Object[] contexts = ContextPropagators.capture(propagators);
+        if (callable instanceof AsyncCallable) {
+            AsyncContext context = new AsyncContext(Thread.currentThread(), group);
+            return new AsyncCallableDecorator(context, recorder, (AsyncCallable)callable, propagators, contexts,
+                submitNanos);
+        } else {
+            return new CallableDecorator(recorder, callable, propagators, contexts, submitNanos);
+        }
     }
-}
 
-class RunnableDecorator implements AsyncRunnable {
+    private static final class PropagatorBinding {
 
-    private AsyncContext context;
+        private final int version;
+
+        private final ContextPropagator[] propagators;
+
+        private PropagatorBinding(int version, ContextPropagator[] propagators) {
+            this.version = version;
+            this.propagators = propagators;
+        }
+    }
+}
+
+class RunnableDecorator implements AsyncRunnable, PriorityTask, TaskDescriptor {
 
     private FlightRecorder recorder;
 
     private Runnable runnable;
 
-    private Object rpcContext;
+    private ContextPropagator[] propagators;
+
+    private Object[] contexts;
 
-    RunnableDecorator(@NonNull AsyncContext context,
-                      @NonNull FlightRecorder recorder,
+    private long submitNanos;
+
+    RunnableDecorator(@NonNull FlightRecorder recorder,
                       @NonNull Runnable runnable,
-                      Object rpcContext) {
-        this.context = context;
+                      ContextPropagator[] propagators,
+                      Object[] contexts,
+                      long submitNanos) {
         this.recorder = recorder;
         this.runnable = runnable;
-        this.rpcContext = rpcContext;
+        this.propagators = propagators;
+        this.contexts = contexts;
+        this.submitNanos = submitNanos;
     }
 
     @Override
     public void run() {
-        EagleEye.setRpcContext(rpcContext);
-        String traceId = EagleEye.getTraceId();
-        if (!Strings.isNullOrEmpty(traceId)) {
-            MDC.put(TRACE_ID, traceId);
+        ContextPropagators.replay(propagators, contexts);
+        long start = System.nanoTime();
+        if (submitNanos != NOT_STAMPED) {
+            recorder.recordWait(start - submitNanos);
         }
+        Object outer = recorder.recordStart(this, start);
         try {
-            long start = System.currentTimeMillis();
-
-            beforeExecute(context);
             runnable.run();
-            afterExecute(context);
 
-            // invoke rt
-            recorder.getTotalRt().addAndGet((System.currentTimeMillis() - start));
-            // success count
-            recorder.getSuccess().incrementAndGet();
+            // success count & invoke rt
+            recorder.recordSuccess(System.nanoTime() - start);
         } catch (Throwable e) {
             monitor.error("task: '{}' in thread: [{}] execute failed:", taskInfo(), Thread.currentThread().getName(), e);
-            // failure count
-            recorder.getFailure().incrementAndGet();
-            afterThrowing(e, context);
+            // failure count & invoke rt
+            recorder.recordFailure(System.nanoTime() - start);
             throw e;
         } finally {
-            if (!Strings.isNullOrEmpty(traceId)) {
-                MDC.remove(TRACE_ID);
-            }
-            EagleEye.clearRpcContext();
+            recorder.recordEnd(outer);
+            ContextPropagators.clear(propagators, contexts);
         }
     }
 
@@ -121,6 +186,26 @@ class RunnableDecorator implements AsyncRunnable {
         return runnable.getClass().getName();
     }
 
+    @Override
+    public int priority() {
+        return PriorityTask.priorityOf(runnable);
+    }
+
+    @Override
+    public long deadline() {
+        return PriorityTask.deadlineOf(runnable);
+    }
+
+    @Override
+    public long submitNanos() {
+        return submitNanos;
+    }
+
+    @Override
+    public Object origin() {
+        return runnable;
+    }
+
     @Override
     public void execute() { }
 
@@ -134,59 +219,55 @@ class RunnableDecorator implements AsyncRunnable {
     public void afterThrowing(Throwable t, final AsyncContext context) { }
 }
 
-class CallableDecorator implements AsyncCallable {
-
-    private AsyncContext context;
+class CallableDecorator implements AsyncCallable, PriorityTask, TaskDescriptor {
 
     private FlightRecorder recorder;
 
     private Callable callable;
 
-    private Object rpcContext;
+    private ContextPropagator[] propagators;
+
+    private Object[] contexts;
 
-    CallableDecorator(@NonNull AsyncContext context,
-                      @NonNull FlightRecorder recorder,
+    private long submitNanos;
+
+    CallableDecorator(@NonNull FlightRecorder recorder,
                       @NonNull Callable callable,
-                      Object rpcContext) {
-        this.context = context;
+                      ContextPropagator[] propagators,
+                      Object[] contexts,
+                      long submitNanos) {
         this.recorder = recorder;
         this.callable = callable;
-        this.rpcContext = rpcContext;
+        this.propagators = propagators;
+        this.contexts = contexts;
+        this.submitNanos = submitNanos;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public Object call() throws Exception {
-        EagleEye.setRpcContext(rpcContext);
-        String traceId = EagleEye.getTraceId();
-        if (!Strings.isNullOrEmpty(traceId)) {
-            MDC.put(TRACE_ID, traceId);
+        ContextPropagators.replay(propagators, contexts);
+        long start = System.nanoTime();
+        if (submitNanos != NOT_STAMPED) {
+            recorder.recordWait(start - submitNanos);
         }
+        Object outer = recorder.recordStart(this, start);
         try {
-            long start = System.currentTimeMillis();
-
-            beforeExecute(context);
             Object result = callable.call();
-            afterExecute(result, context);
 
-            // invoke rt
-            recorder.getTotalRt().addAndGet((System.currentTimeMillis() - start));
-            // success count
-            recorder.getSuccess().incrementAndGet();
+            // success count & invoke rt
+            recorder.recordSuccess(System.nanoTime() - start);
 
             return result;
 
         } catch (Throwable e) {
             monitor.error("task: '{}' in thread: [{}] execute failed:", taskInfo(), Thread.currentThread().getName(), e);
-            // failure count
-            recorder.getFailure().incrementAndGet();
-            afterThrowing(e, context);
+            // failure count & invoke rt
+            recorder.recordFailure(System.nanoTime() - start);
             throw e;
         } finally {
-            if (!Strings.isNullOrEmpty(traceId)) {
-                MDC.remove(TRACE_ID);
-            }
-            EagleEye.clearRpcContext();
+            recorder.recordEnd(outer);
+            ContextPropagators.clear(propagators, contexts);
         }
     }
 
@@ -195,6 +276,26 @@ class CallableDecorator implements AsyncCallable {
         return callable.getClass().getName();
     }
 
+    @Override
+    public int priority() {
+        return PriorityTask.priorityOf(callable);
+    }
+
+    @Override
+    public long deadline() {
+        return PriorityTask.deadlineOf(callable);
+    }
+
+    @Override
+    public long submitNanos() {
+        return submitNanos;
+    }
+
+    @Override
+    public Object origin() {
+        return callable;
+    }
+
     @Override
     public Object execute() throws Exception {
         return null;
@@ -210,7 +311,7 @@ class CallableDecorator implements AsyncCallable {
     public void afterThrowing(Throwable t, final AsyncContext context) { }
 }
 
-class AsyncRunnableDecorator implements AsyncRunnable {
+class AsyncRunnableDecorator implements AsyncRunnable, PriorityTask, TaskDescriptor {
 
     private AsyncContext context;
 
@@ -218,47 +319,50 @@ class AsyncRunnableDecorator implements AsyncRunnable {
 
     private AsyncRunnable asyncRunnable;
 
-    private Object rpcContext;
+    private ContextPropagator[] propagators;
+
+    private Object[] contexts;
+
+    private long submitNanos;
 
     AsyncRunnableDecorator(@NonNull AsyncContext context,
                            @NonNull FlightRecorder recorder,
                            @NonNull AsyncRunnable asyncRunnable,
-                           Object rpcContext) {
+                           ContextPropagator[] propagators,
+                           Object[] contexts,
+                           long submitNanos) {
         this.context = context;
         this.recorder = recorder;
         this.asyncRunnable = asyncRunnable;
-        this.rpcContext = rpcContext;
+        this.propagators = propagators;
+        this.contexts = contexts;
+        this.submitNanos = submitNanos;
     }
 
     @Override
     public void run() {
-        EagleEye.setRpcContext(rpcContext);
-        String traceId = EagleEye.getTraceId();
-        if (!Strings.isNullOrEmpty(traceId)) {
-            MDC.put(TRACE_ID, traceId);
+        ContextPropagators.replay(propagators, contexts);
+        long start = System.nanoTime();
+        if (submitNanos != NOT_STAMPED) {
+            recorder.recordWait(start - submitNanos);
         }
+        Object outer = recorder.recordStart(this, start);
         try {
-            long start = System.currentTimeMillis();
-
             beforeExecute(context);
             asyncRunnable.execute();
             afterExecute(context);
 
-            // invoke rt
-            recorder.getTotalRt().addAndGet((System.currentTimeMillis() - start));
-            // success count
-            recorder.getSuccess().incrementAndGet();
+            // success count & invoke rt
+            recorder.recordSuccess(System.nanoTime() - start);
         } catch (Throwable e) {
             monitor.error("task: '{}' in thread: [{}] execute failed:", taskInfo(), Thread.currentThread().getName(), e);
-            // failure count
-            recorder.getFailure().incrementAndGet();
+            // failure count & invoke rt
+            recorder.recordFailure(System.nanoTime() - start);
             afterThrowing(e, context);
             throw e;
         } finally {
-            if (!Strings.isNullOrEmpty(traceId)) {
-                MDC.remove(TRACE_ID);
-            }
-            EagleEye.clearRpcContext();
+            recorder.recordEnd(outer);
+            ContextPropagators.clear(propagators, contexts);
         }
     }
 
@@ -267,6 +371,26 @@ class AsyncRunnableDecorator implements AsyncRunnable {
         return asyncRunnable.taskInfo();
     }
 
+    @Override
+    public int priority() {
+        return PriorityTask.priorityOf(asyncRunnable);
+    }
+
+    @Override
+    public long deadline() {
+        return PriorityTask.deadlineOf(asyncRunnable);
+    }
+
+    @Override
+    public long submitNanos() {
+        return submitNanos;
+    }
+
+    @Override
+    public Object origin() {
+        return asyncRunnable;
+    }
+
     @Override
     public void execute() { }
 
@@ -286,7 +410,7 @@ class AsyncRunnableDecorator implements AsyncRunnable {
     }
 }
 
-class AsyncCallableDecorator implements AsyncCallable {
+class AsyncCallableDecorator implements AsyncCallable, PriorityTask, TaskDescriptor {
 
     private AsyncContext context;
 
@@ -294,50 +418,53 @@ class AsyncCallableDecorator implements AsyncCallable {
 
     private AsyncCallable asyncCallable;
 
-    private Object rpcContext;
+    private ContextPropagator[] propagators;
+
+    private Object[] contexts;
+
+    private long submitNanos;
 
     AsyncCallableDecorator(@NonNull AsyncContext context,
                            @NonNull FlightRecorder recorder,
                            @NonNull AsyncCallable asyncCallable,
-                           Object rpcContext) {
+                           ContextPropagator[] propagators,
+                           Object[] contexts,
+                           long submitNanos) {
         this.context = context;
         this.recorder = recorder;
         this.asyncCallable = asyncCallable;
-        this.rpcContext = rpcContext;
+        this.propagators = propagators;
+        this.contexts = contexts;
+        this.submitNanos = submitNanos;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public Object call() throws Exception {
-        EagleEye.setRpcContext(rpcContext);
-        String traceId = EagleEye.getTraceId();
-        if (!Strings.isNullOrEmpty(traceId)) {
-            MDC.put(TRACE_ID, traceId);
+        ContextPropagators.replay(propagators, contexts);
+        long start = System.nanoTime();
+        if (submitNanos != NOT_STAMPED) {
+            recorder.recordWait(start - submitNanos);
         }
+        Object outer = recorder.recordStart(this, start);
         try {
-            long start = System.currentTimeMillis();
-
             beforeExecute(context);
             Object result = asyncCallable.execute();
             afterExecute(result, context);
 
-            // invoke rt
-            recorder.getTotalRt().addAndGet((System.currentTimeMillis() - start));
-            // success count
-            recorder.getSuccess().incrementAndGet();
+            // success count & invoke rt
+            recorder.recordSuccess(System.nanoTime() - start);
 
             return result;
         } catch (Throwable e) {
             monitor.error("task: '{}' in thread: [{}] execute failed:", taskInfo(), Thread.currentThread().getName(), e);
-            // failure count
-            recorder.getFailure().incrementAndGet();
+            // failure count & invoke rt
+            recorder.recordFailure(System.nanoTime() - start);
             afterThrowing(e, context);
             throw e;
         } finally {
-            if (!Strings.isNullOrEmpty(traceId)) {
-                MDC.remove(TRACE_ID);
-            }
-            EagleEye.clearRpcContext();
+            recorder.recordEnd(outer);
+            ContextPropagators.clear(propagators, contexts);
         }
     }
 
@@ -346,6 +473,26 @@ class AsyncCallableDecorator implements AsyncCallable {
         return asyncCallable.taskInfo();
     }
 
+    @Override
+    public int priority() {
+        return PriorityTask.priorityOf(asyncCallable);
+    }
+
+    @Override
+    public long deadline() {
+        return PriorityTask.deadlineOf(asyncCallable);
+    }
+
+    @Override
+    public long submitNanos() {
+        return submitNanos;
+    }
+
+    @Override
+    public Object origin() {
+        return asyncCallable;
+    }
+
     @Override
     public Object execute() throws Exception {
         return null;
@@ -0,0 +1,72 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.alibaba.jbox.executor.queue.MpmcArrayBlockingQueue;
+import com.alibaba.jbox.executor.queue.MpscArrayBlockingQueue;
+import com.alibaba.jbox.executor.queue.ResizableBlockingQueue;
+
+/**
+ * 线程池{@code RunnableQueue}的实现类型, 在{@code ExecutorManager}创建线程池时指定.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.1
+ * - 1.1: add {@code RESIZABLE} for {@link ExecutorReconfigurer}.
+ * @since 2017/11/14 15:00:00.
+ */
+public enum RunnableQueueType {
+
+    /**
+     * 单锁有界队列, 默认实现
+     */
+    ARRAY {
+        @Override
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            return new ArrayBlockingQueue<>(capacity);
+        }
+    },
+
+    /**
+     * 双锁(put/take分离)有界队列
+     */
+    LINKED {
+        @Override
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            return new LinkedBlockingQueue<>(capacity);
+        }
+    },
+
+    /**
+     * 多生产者多消费者无锁有界队列, 详见{@link MpmcArrayBlockingQueue}
+     */
+    MPMC {
+        @Override
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            return new MpmcArrayBlockingQueue<>(capacity);
+        }
+    },
+
+    /**
+     * 多生产者单消费者无锁有界队列, 只能用于单线程分组, 详见{@link MpscArrayBlockingQueue}
+     */
+    MPSC {
+        @Override
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            return new MpscArrayBlockingQueue<>(capacity);
+        }
+    },
+
+    /**
+     * 容量可通过{@link ExecutorReconfigurer}在运行时调整的单锁有界队列, 详见{@link ResizableBlockingQueue}
+     */
+    RESIZABLE {
+        @Override
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            return new ResizableBlockingQueue<>(capacity);
+        }
+    };
+
+    public abstract BlockingQueue<Runnable> newQueue(int capacity);
+}
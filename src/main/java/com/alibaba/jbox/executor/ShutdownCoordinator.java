@@ -0,0 +1,334 @@
+package com.alibaba.jbox.executor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import static com.alibaba.jbox.executor.ExecutorManager.recorders;
+
+/**
+ * 分组线程池的优雅关闭, 由{@code ExecutorManager.destroy()}调用:
+ * - 按{@code setOrder()}指定的顺序分批关闭(order小的先关, 同一order的分组并行排空), 如先关业务分组, 最后关TLog分组;
+ * - 所有分组共享一个全局deadline({@code timeoutMillis}), 前面的批次耗尽后, 后面的批次不再等待;
+ * - deadline到达仍未排空的分组调用{@code shutdownNow()}, 报告仍在执行的task与被丢弃的task的{@code taskInfo()};
+ * - 配置{@code undrainedFile}后, 被丢弃的task中实现了{@code Serializable}的{@link AsyncRunnable}会被写入该文件,
+ * 应用下次启动、创建好分组后可通过{@code replay()}重新提交; 读取时只允许反序列化白名单内的类(task自身及其字段类型),
+ * 不会因文件被篡改而实例化classpath上的任意类.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/27 10:30:00.
+ */
+public class ShutdownCoordinator implements ExecutorLoggerInner {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000L;
+
+    public static final int DEFAULT_ORDER = 0;
+
+    static final int MAX_REPORTED_TASKS = 32;
+
+    private static final ConcurrentMap<String, Integer> orders = new ConcurrentHashMap<>();
+
+    private final long timeoutMillis;
+
+    private final String undrainedFile;
+
+    public ShutdownCoordinator(long timeoutMillis, String undrainedFile) {
+        this.timeoutMillis = timeoutMillis;
+        this.undrainedFile = undrainedFile;
+    }
+
+    /**
+     * @param order : 关闭顺序, 小的先关, 默认{@code DEFAULT_ORDER}
+     */
+    public static void setOrder(String group, int order) {
+        orders.put(group, order);
+    }
+
+    static int orderOf(String group) {
+        return orders.getOrDefault(group, DEFAULT_ORDER);
+    }
+
+    public List<DrainReport> shutdown(Map<String, ExecutorService> executors) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        // completed以开始关闭的时刻为基线: 后面批次的分组在等待前面批次期间执行完的task同样计入
+        Map<String, Long> completedBefore = new HashMap<>();
+        TreeMap<Integer, Map<String, ExecutorService>> levels = new TreeMap<>();
+        executors.forEach((group, executor) -> {
+            if (!(executor instanceof SyncInvokeExecutorService) && !executor.isTerminated()) {
+                levels.computeIfAbsent(orderOf(group), (k) -> new LinkedHashMap<>()).put(group, executor);
+                completedBefore.put(group, completedCount(group));
+            }
+        });
+
+        List<DrainReport> reports = new ArrayList<>();
+        List<UndrainedTask> undrained = new ArrayList<>();
+        levels.forEach((order, level) -> {
+            long start = System.nanoTime();
+            level.forEach((group, executor) -> {
+                if (!executor.isShutdown()) {
+                    executor.shutdown();
+                }
+            });
+
+            level.forEach((group, executor) -> {
+                DrainReport report = new DrainReport();
+                report.setGroup(group);
+                report.setOrder(order);
+                report.setTerminated(awaitTermination(executor, deadline));
+                if (!report.isTerminated()) {
+                    drainNow(group, executor, report, undrained);
+                }
+                report.setCompleted(completedCount(group) - completedBefore.get(group));
+                report.setCostMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                reports.add(report);
+                log(report);
+            });
+        });
+
+        if (!undrained.isEmpty()) {
+            persist(undrained);
+        }
+        return reports;
+    }
+
+    private static boolean awaitTermination(ExecutorService executor, long deadline) {
+        try {
+            return executor.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return executor.isTerminated();
+        }
+    }
+
+    private void drainNow(String group, ExecutorService executor, DrainReport report,
+                          List<UndrainedTask> undrained) {
+        FlightRecorder recorder = recorders.get(group);
+        if (recorder != null) {
+            List<Object> runningTasks = recorder.runningTasks();
+            report.setRunning(runningTasks.size());
+            for (Object task : runningTasks) {
+                if (report.getRunningTasks().size() >= MAX_REPORTED_TASKS) {
+                    break;
+                }
+                report.getRunningTasks().add(taskInfo(task));
+            }
+        }
+
+        for (Runnable task : executor.shutdownNow()) {
+            Object origin = unwrap(task);
+            if (undrainedFile != null && origin instanceof AsyncRunnable && origin instanceof Serializable) {
+                undrained.add(new UndrainedTask(group, (AsyncRunnable)origin));
+                report.setPersisted(report.getPersisted() + 1);
+            } else {
+                report.setDropped(report.getDropped() + 1);
+                if (report.getDroppedTasks().size() < MAX_REPORTED_TASKS) {
+                    report.getDroppedTasks().add(taskInfo(task));
+                }
+            }
+
+            // submit()返回的Future不再会被执行, 唤醒等待get()的线程
+            if (task instanceof Future) {
+                ((Future<?>)task).cancel(false);
+            }
+        }
+    }
+
+    private static long completedCount(String group) {
+        FlightRecorder recorder = recorders.get(group);
+        return recorder == null ? 0L : recorder.getSuccess().sum() + recorder.getFailure().sum();
+    }
+
+    private static void log(DrainReport report) {
+        String message = String.format(
+            "executor [%s] shutdown, order:[%d], terminated:[%s], completed:[%d], running:[%d], dropped:[%d], "
+                + "persisted:[%d], cost:[%dms]%s%s",
+            report.getGroup(), report.getOrder(), report.isTerminated(), report.getCompleted(), report.getRunning(),
+            report.getDropped(), report.getPersisted(), report.getCostMillis(),
+            report.getRunningTasks().isEmpty() ? "" : "\n  -> running:" + report.getRunningTasks(),
+            report.getDroppedTasks().isEmpty() ? "" : "\n  -> dropped:" + report.getDroppedTasks());
+
+        if (report.isTerminated()) {
+            monitor.info(message);
+            logger.info(message);
+        } else {
+            monitor.warn(message);
+            logger.warn(message);
+        }
+    }
+
+    // ---- * undrained task persistence * ---- //
+
+    private void persist(List<UndrainedTask> undrained) {
+        File file = new File(undrainedFile);
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("can not create directory: " + parent);
+            }
+            try (ObjectOutputStream os = new ObjectOutputStream(new FileOutputStream(file))) {
+                os.writeObject(new ArrayList<>(undrained));
+            }
+            monitor.warn("[{}] undrained tasks persisted to [{}]", undrained.size(), file.getAbsolutePath());
+        } catch (Throwable t) {
+            monitor.error("persist [{}] undrained tasks to [{}] failed", undrained.size(), undrainedFile, t);
+        }
+    }
+
+    /**
+     * 将上次关闭时持久化的task重新提交到同名分组, 随后删除该文件; 分组尚未创建的task被丢弃并打印日志.
+     * 只允许反序列化{@link AsyncRunnable}的实现类、String/基本类型包装类/基本类型数组,
+     * task的字段还引用了其他类型时需使用{@link #replay(String, Collection)}.
+     *
+     * @return 重新提交的task数
+     */
+    public static int replay(String undrainedFile) {
+        return replay(undrainedFile, Collections.emptySet());
+    }
+
+    /**
+     * @param allowedClasses : 额外允许反序列化的类名(task字段引用的类型)
+     * @return 重新提交的task数
+     */
+    @SuppressWarnings("unchecked")
+    public static int replay(String undrainedFile, Collection<String> allowedClasses) {
+        File file = new File(undrainedFile);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        List<UndrainedTask> undrained;
+        try (ObjectInputStream is = new UndrainedTaskInputStream(new FileInputStream(file), allowedClasses)) {
+            undrained = (List<UndrainedTask>)is.readObject();
+        } catch (Throwable t) {
+            monitor.error("read undrained tasks from [{}] failed", file.getAbsolutePath(), t);
+            return 0;
+        }
+
+        int replayed = 0;
+        for (UndrainedTask task : undrained) {
+            ExecutorService executor = ExecutorManager.executors.get(task.group);
+            if (executor == null || executor.isShutdown()) {
+                monitor.warn("executor [{}] not available, undrained task '{}' dropped", task.group,
+                    task.task.taskInfo());
+                continue;
+            }
+            executor.execute(task.task);
+            ++replayed;
+        }
+
+        if (!file.delete()) {
+            monitor.warn("delete undrained task file [{}] failed", file.getAbsolutePath());
+        }
+        monitor.info("[{}/{}] undrained tasks replayed from [{}]", replayed, undrained.size(),
+            file.getAbsolutePath());
+        return replayed;
+    }
+
+    private static Object unwrap(Object task) {
+        Object current = task;
+        while (current instanceof TaskDescriptor) {
+            Object origin = ((TaskDescriptor)current).origin();
+            if (origin == null || origin == current) {
+                break;
+            }
+            current = origin;
+        }
+        return current;
+    }
+
+    private static String taskInfo(Object task) {
+        if (task instanceof TaskDescriptor) {
+            return ((TaskDescriptor)task).taskInfo();
+        }
+        return task instanceof AsyncRunnable ? ((AsyncRunnable)task).taskInfo() : task.getClass().getName();
+    }
+
+    /**
+     * 按白名单{@code resolveClass()}, 其余类在实例化之前即被拒绝
+     */
+    private static final class UndrainedTaskInputStream extends ObjectInputStream {
+
+        private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+            ArrayList.class.getName(),
+            UndrainedTask.class.getName(),
+            String.class.getName(),
+            Number.class.getName(),
+            Boolean.class.getName(),
+            Character.class.getName(),
+            Byte.class.getName(),
+            Short.class.getName(),
+            Integer.class.getName(),
+            Long.class.getName(),
+            Float.class.getName(),
+            Double.class.getName(),
+            Enum.class.getName()
+        ));
+
+        private final Collection<String> allowedClasses;
+
+        private UndrainedTaskInputStream(InputStream in, Collection<String> allowedClasses) throws IOException {
+            super(in);
+            this.allowedClasses = allowedClasses;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            // super.resolveClass()加载类时不做初始化
+            Class<?> clazz = super.resolveClass(desc);
+            Class<?> type = clazz;
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (type.isPrimitive() || isAllowed(type)) {
+                return clazz;
+            }
+            throw new InvalidClassException(desc.getName(), "not allowed to deserialize undrained task");
+        }
+
+        private boolean isAllowed(Class<?> type) {
+            return ALLOWED_CLASSES.contains(type.getName()) || type.isEnum()
+                || AsyncRunnable.class.isAssignableFrom(type) || allowedClasses.contains(type.getName());
+        }
+    }
+
+    private static final class UndrainedTask implements Serializable {
+
+        private static final long serialVersionUID = 4671337652163870318L;
+
+        private final String group;
+
+        private final AsyncRunnable task;
+
+        private UndrainedTask(String group, AsyncRunnable task) {
+            this.group = group;
+            this.task = task;
+        }
+    }
+}
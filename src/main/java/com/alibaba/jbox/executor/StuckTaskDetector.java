@@ -0,0 +1,150 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+import com.alibaba.jbox.scheduler.ScheduleTask;
+
+import com.google.common.base.Preconditions;
+
+import static com.alibaba.jbox.executor.ExecutorManager.recorders;
+
+/**
+ * 执行超时(卡死)task检测:
+ * 由{@code TaskScheduler}周期性触发(注册{@code ExecutorMonitor}时会自动注册), 遍历各分组{@code FlightRecorder}中正在执行的task,
+ * 执行时长超过分组阈值的task连同其线程栈打印到{@code 'executor-monitor'}这个{@code Logger}下, 可按分组配置interrupt该线程.
+ * 同一次执行只报告一次; 当前超时的task数由{@link ExecutorMonitor}输出.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/30 10:00:00.
+ */
+public class StuckTaskDetector implements ScheduleTask, ExecutorLoggerInner {
+
+    public static final StuckTaskDetector INSTANCE = new StuckTaskDetector();
+
+    public static final long DEFAULT_THRESHOLD_MILLIS = 60_000L;
+
+    private static final int MAX_STACK_DEPTH = 32;
+
+    private static final ConcurrentMap<String, Threshold> thresholds = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次检测时各分组超时的task数
+     */
+    private static final ConcurrentMap<String, Integer> stuckCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 已报告过的执行: thread -> startNanos
+     */
+    private final Map<Thread, Long> reported = new ConcurrentHashMap<>();
+
+    private volatile long period = _10S_INTERVAL;
+
+    private StuckTaskDetector() {
+    }
+
+    /**
+     * @param thresholdMillis : 执行时长超过该值判定为超时, 0表示该分组不检测
+     * @param interrupt       : 超时后是否interrupt执行线程, 只对响应中断的阻塞操作(IO/锁等待/sleep)有效;
+     *                        只会interrupt仍在执行该task的线程, task结束前一刻送达的interrupt会在结束时清除
+     */
+    public static void setThreshold(String group, long thresholdMillis, boolean interrupt) {
+        Preconditions.checkArgument(thresholdMillis >= 0, "thresholdMillis can not be negative.");
+        thresholds.put(group, new Threshold(TimeUnit.MILLISECONDS.toNanos(thresholdMillis), interrupt));
+    }
+
+    /**
+     * @return 最近一次检测时该分组超时的task数
+     */
+    static int stuckCount(String group) {
+        return stuckCounts.getOrDefault(group, 0);
+    }
+
+    @Override
+    public void invoke() throws Exception {
+        long now = System.nanoTime();
+        Map<Thread, Long> alive = new ConcurrentHashMap<>();
+        recorders.forEach((group, recorder) -> {
+            Threshold threshold = thresholds.getOrDefault(group, Threshold.DEFAULT);
+            if (threshold.nanos == 0) {
+                stuckCounts.remove(group);
+                return;
+            }
+
+            int[] count = {0};
+            recorder.forEachRunning((thread, task, startNanos) -> {
+                long elapsed = now - startNanos;
+                if (elapsed < threshold.nanos) {
+                    return;
+                }
+
+                ++count[0];
+                alive.put(thread, startNanos);
+                Long before = reported.get(thread);
+                if (before == null || before != startNanos) {
+                    report(group, recorder, threshold, thread, task, startNanos, elapsed);
+                }
+            });
+            stuckCounts.put(group, count[0]);
+        });
+
+        // 只保留仍在超时执行中的记录
+        reported.keySet().retainAll(alive.keySet());
+        reported.putAll(alive);
+    }
+
+    private static void report(String group, FlightRecorder recorder, Threshold threshold, Thread thread,
+                               Object task, long startNanos, long elapsedNanos) {
+        StringBuilder stack = new StringBuilder();
+        StackTraceElement[] elements = thread.getStackTrace();
+        for (int i = 0; i < elements.length && i < MAX_STACK_DEPTH; ++i) {
+            stack.append("\n\tat ").append(elements[i]);
+        }
+        if (elements.length > MAX_STACK_DEPTH) {
+            stack.append("\n\t...");
+        }
+
+        // 抓栈期间task可能已结束, 线程转去执行下一个task, 不能误中断
+        boolean interrupt = threshold.interrupt && recorder.interruptIfRunning(thread, task, startNanos);
+        recorder.recordStuck(interrupt);
+
+        monitor.warn("executor [{}] task '{}' in thread: [{}] stuck for [{}ms], threshold:[{}ms], interrupt:[{}]{}",
+            group, taskInfo(task), thread.getName(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            TimeUnit.NANOSECONDS.toMillis(threshold.nanos), interrupt, stack);
+    }
+
+    private static String taskInfo(Object task) {
+        if (task instanceof TaskDescriptor) {
+            return ((TaskDescriptor)task).taskInfo();
+        }
+        return task instanceof AsyncRunnable ? ((AsyncRunnable)task).taskInfo() : task.getClass().getName();
+    }
+
+    @Override
+    public long period() {
+        return period;
+    }
+
+    public void setPeriod(long period) {
+        this.period = period;
+    }
+
+    private static final class Threshold {
+
+        private static final Threshold DEFAULT = new Threshold(
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD_MILLIS), false);
+
+        private final long nanos;
+
+        private final boolean interrupt;
+
+        private Threshold(long nanos, boolean interrupt) {
+            this.nanos = nanos;
+            this.interrupt = interrupt;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.alibaba.jbox.executor;
+
+/**
+ * 排队中的task对外暴露的描述信息, 由Decorator及其外层包装实现, 供{@link QueuedTaskSampler}免反射地读取.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.1
+ * - 1.1: {@code origin()}.
+ * @since 2017/11/16 10:10:00.
+ */
+interface TaskDescriptor {
+
+    String taskInfo();
+
+    /**
+     * @return task提交时的{@code System.nanoTime()}, 不统计排队耗时的task返回{@code RunnableDecoratorInterceptor.NOT_STAMPED}
+     */
+    long submitNanos();
+
+    /**
+     * @return 被包装的task, 没有时返回null
+     */
+    default Object origin() {
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 通过{@code ThreadMXBean}读取当前线程的CPU时间与已分配字节数, 由{@code FlightRecorder}在task执行前后抽样调用:
+ * - 每个task以{@code 1/interval}的概率被抽样(与线程执行过多少task无关), 监控时按抽样比例外推为分组的CPU-ms/s与分配MB/s;
+ * - JVM不支持(或关闭了)thread cpu time/allocated memory统计时对应值返回{@code -1}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/29 10:00:00.
+ */
+final class ThreadResourceSampler {
+
+    static final int DEFAULT_INTERVAL = 16;
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 非HotSpot等不提供{@code com.sun.management.ThreadMXBean}的JVM上为null
+     */
+    private static final com.sun.management.ThreadMXBean allocationMXBean = allocationMXBean();
+
+    private static volatile int interval = DEFAULT_INTERVAL;
+
+    private ThreadResourceSampler() {
+    }
+
+    /**
+     * @param interval : 每个task以{@code 1/interval}的概率被抽样, 0表示关闭
+     */
+    static void setInterval(int interval) {
+        Preconditions.checkArgument(interval >= 0, "interval can not be negative.");
+        ThreadResourceSampler.interval = interval;
+    }
+
+    static int interval() {
+        return interval;
+    }
+
+    static long currentThreadCpuNanos() {
+        try {
+            return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : -1L;
+        } catch (UnsupportedOperationException e) {
+            return -1L;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static long currentThreadAllocatedBytes() {
+        if (allocationMXBean == null) {
+            return -1L;
+        }
+        try {
+            return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (UnsupportedOperationException e) {
+            return -1L;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean)threadMXBean;
+                if (mxBean.isThreadAllocatedMemorySupported()) {
+                    if (!mxBean.isThreadAllocatedMemoryEnabled()) {
+                        mxBean.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return mxBean;
+                }
+            }
+        } catch (Throwable ignored) {
+            // not HotSpot
+        }
+        return null;
+    }
+}
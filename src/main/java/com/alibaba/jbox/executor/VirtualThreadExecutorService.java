@@ -0,0 +1,177 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 每个task一个虚拟线程的线程池, 适用于大量阻塞在RPC等IO上的task:
+ * - 运行在支持虚拟线程的JDK(21+)上时通过反射使用{@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory())},
+ * 否则退化为使用{@link NamedThreadFactory}的平台线程池;
+ * - 可选的{@code maxConcurrency}限制同时运行的task数, 超出的task在各自的虚拟线程中等待许可, 不会阻塞提交线程;
+ * - 退化为平台线程时不能为每个等待许可的task各占一个OS线程: 限制了{@code maxConcurrency}则使用线程数固定为该值的
+ * {@code ThreadPoolExecutor}(空闲线程可回收), 超出的task在无界队列中排队, 否则使用{@code CachedThreadPool};
+ * - 没有{@code ThreadPoolExecutor}可供查看, 由本类统计in-flight(已提交未完成)与running(已获取许可)的task数.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/10 14:10:00.
+ */
+class VirtualThreadExecutorService extends AbstractExecutorService implements ExecutorLoggerInner {
+
+    private static final int UNLIMITED = 0;
+
+    private final ExecutorService delegate;
+
+    private final boolean virtual;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder running = new LongAdder();
+
+    VirtualThreadExecutorService(String group, int maxConcurrency) {
+        this(group, maxConcurrency, true);
+    }
+
+    /**
+     * @param preferVirtual : false时直接使用平台线程(JDK不支持虚拟线程时的退化路径)
+     */
+    VirtualThreadExecutorService(String group, int maxConcurrency, boolean preferVirtual) {
+        Preconditions.checkArgument(maxConcurrency >= 0, "maxConcurrency can not be negative.");
+
+        ExecutorService virtualExecutor = preferVirtual ? newVirtualThreadPerTaskExecutor(group) : null;
+        this.virtual = virtualExecutor != null;
+        this.delegate = virtual ? virtualExecutor : newPlatformExecutor(group, maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        // 平台线程池自身的线程数即为并发上限, 无需许可
+        this.permits = !virtual || maxConcurrency == UNLIMITED ? null : new Semaphore(maxConcurrency);
+
+        if (!virtual) {
+            monitor.warn("executor group [{}]: virtual thread not supported by current jvm, use platform threads.",
+                group);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command, "command can not be null.");
+        inFlight.increment();
+        try {
+            delegate.execute(() -> {
+                try {
+                    runWithPermit(command);
+                } finally {
+                    inFlight.decrement();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrement();
+            throw e;
+        }
+    }
+
+    private void runWithPermit(Runnable command) {
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutorException(e);
+            }
+        }
+
+        running.increment();
+        try {
+            command.run();
+        } finally {
+            running.decrement();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * @return null if current jvm not support virtual thread.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String group) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, group + "-", 0L);
+            ThreadFactory factory = (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                ThreadFactory.class);
+            return (ExecutorService)newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(String group, int maxConcurrency) {
+        if (maxConcurrency == UNLIMITED) {
+            return Executors.newCachedThreadPool(new NamedThreadFactory(group));
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory(group));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    boolean isVirtual() {
+        return virtual;
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    long getInFlightCount() {
+        return inFlight.sum();
+    }
+
+    long getRunningCount() {
+        return running.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,221 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * sync模式下的{@code ScheduledExecutorService}实现, 基于可控制的虚拟时钟:
+ * - {@code execute()}/{@code submit()}与{@link SyncInvokeExecutorService}一样在调用线程中同步执行;
+ * - {@code schedule*()}提交的task不会自动触发, 只有调用{@code advance()}推进虚拟时钟时, 才在调用线程中按触发时间(相同时按提交顺序)依次执行,
+ * 执行时{@code now()}即为该task的触发时间; fixed-rate按上次触发时间+period, fixed-delay按执行完成时间+delay计算下次触发时间;
+ * - 周期task抛出异常后不再调度, 与{@code ScheduledThreadPoolExecutor}一致;
+ * 因此几小时的调度可以在几毫秒内确定性地重放, 用于压测与性能回归测试.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/04 10:00:00.
+ */
+public class VirtualTimeScheduledExecutorService extends SyncInvokeExecutorService
+    implements ScheduledExecutorService {
+
+    private final PriorityQueue<VirtualScheduledFuture<?>> queue = new PriorityQueue<>();
+
+    private long nowNanos;
+
+    private long sequence;
+
+    private boolean advancing;
+
+    /**
+     * @return 虚拟时钟的当前时间(ns), 从0开始
+     */
+    public synchronized long now() {
+        return nowNanos;
+    }
+
+    public long now(TimeUnit unit) {
+        return unit.convert(now(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 推进虚拟时钟, 并在当前线程中依次执行期间到期的task.
+     *
+     * @return 本次执行的task数
+     */
+    public int advance(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration >= 0, "duration can not be negative.");
+        long deadline;
+        synchronized (this) {
+            Preconditions.checkState(!advancing, "can not advance clock in a scheduled task.");
+            advancing = true;
+            deadline = nowNanos + unit.toNanos(duration);
+        }
+
+        int executed = 0;
+        try {
+            VirtualScheduledFuture<?> task;
+            while ((task = pollDue(deadline)) != null) {
+                task.run();
+                ++executed;
+            }
+        } finally {
+            synchronized (this) {
+                nowNanos = deadline;
+                advancing = false;
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * 只执行当前时间已到期(如delay为0)的task, 不推进时钟.
+     */
+    public int runDue() {
+        return advance(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return 等待触发的task数(含周期task)
+     */
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    private synchronized VirtualScheduledFuture<?> pollDue(long deadline) {
+        VirtualScheduledFuture<?> head = queue.peek();
+        if (head == null || head.time > deadline) {
+            return null;
+        }
+        queue.poll();
+        nowNanos = head.time;
+        return head;
+    }
+
+    private synchronized <V> VirtualScheduledFuture<V> enqueue(VirtualScheduledFuture<V> task) {
+        queue.add(task);
+        return task;
+    }
+
+    private synchronized void remove(VirtualScheduledFuture<?> task) {
+        queue.remove(task);
+    }
+
+    private synchronized long triggerTime(long delay, TimeUnit unit) {
+        return nowNanos + Math.max(0L, unit.toNanos(delay));
+    }
+
+    private synchronized long nextSequence() {
+        return sequence++;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command can not be null.");
+        return enqueue(new VirtualScheduledFuture<>(Executors.callable(command, null), triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(callable, "callable can not be null.");
+        return enqueue(new VirtualScheduledFuture<>(callable, triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command can not be null.");
+        Preconditions.checkArgument(period > 0, "period must be positive.");
+        return enqueue(new VirtualScheduledFuture<>(Executors.callable(command, null),
+            triggerTime(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command can not be null.");
+        Preconditions.checkArgument(delay > 0, "delay must be positive.");
+        return enqueue(new VirtualScheduledFuture<>(Executors.callable(command, null),
+            triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    /**
+     * @return 尚未触发的task
+     */
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>(queue);
+        queue.clear();
+        return pending;
+    }
+
+    private final class VirtualScheduledFuture<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        private final long sequence;
+
+        /**
+         * 0: 一次性task; 正数: fixed-rate; 负数: fixed-delay
+         */
+        private final long period;
+
+        private long time;
+
+        private VirtualScheduledFuture(Callable<V> callable, long time, long period) {
+            super(callable);
+            this.sequence = nextSequence();
+            this.time = time;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - now(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof VirtualScheduledFuture) {
+                VirtualScheduledFuture<?> that = (VirtualScheduledFuture<?>)other;
+                int compare = Long.compare(time, that.time);
+                return compare != 0 ? compare : Long.compare(sequence, that.sequence);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (super.runAndReset()) {
+                time = period > 0 ? time + period : now() - period;
+                enqueue(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                remove(this);
+            }
+            return cancelled;
+        }
+    }
+}
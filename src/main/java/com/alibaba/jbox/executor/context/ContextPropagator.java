@@ -0,0 +1,38 @@
+package com.alibaba.jbox.executor.context;
+
+/**
+ * 线程上下文透传SPI: 提交task时在提交线程{@code capture()}, 执行时在工作线程{@code replay()}, 执行结束后{@code clear()}.
+ * 可通过{@link ContextPropagators#register}注册, 或在{@code META-INF/services}中声明由{@code ServiceLoader}加载.
+ * 实现需无状态且线程安全; 没有需要透传的上下文时{@code capture()}应返回null, 此时不会调用{@code replay()},
+ * 也不会调用{@code clear()}, 除非{@code alwaysClear()}返回true.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.1
+ * @since 2017/11/23 10:00:00.
+ */
+public interface ContextPropagator {
+
+    /**
+     * @return 提交线程中的上下文快照, null表示无需透传
+     */
+    Object capture();
+
+    /**
+     * @param captured : {@code capture()}返回的非null快照
+     */
+    void replay(Object captured);
+
+    /**
+     * @param captured : {@code capture()}返回的快照, {@code alwaysClear()}为true且提交线程没有上下文时为null
+     */
+    void clear(Object captured);
+
+    /**
+     * @return true: 提交线程没有上下文时task执行结束后同样调用{@code clear(null)},
+     * 用于清理task在工作线程中自行建立的上下文(如RpcContext), 防止被该线程上的下一个task继承
+     * @since 1.1
+     */
+    default boolean alwaysClear() {
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package com.alibaba.jbox.executor.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.jbox.executor.ExecutorLoggerInner;
+
+/**
+ * {@link ContextPropagator}注册中心, 供{@code RunnableDecoratorInterceptor}在封装task时使用:
+ * - 默认注册{@link EagleEyeContextPropagator}与{@link MdcTraceIdPropagator}, 之后追加{@code ServiceLoader}加载到的实现;
+ * - 提交时只将各propagator的快照存入一个数组, 所有快照均为null(如无RpcContext/traceId)时不分配数组, 执行时也不做任何replay,
+ * 只调用{@code alwaysClear()}为true的propagator的{@code clear(null)};
+ * - 可通过{@code setEnabled(group, false)}关闭某个分组的上下文透传;
+ * - 注册/开关变更时递增{@code version()}, 调用方据此缓存分组生效的propagator数组, 无需每次提交都查询.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/23 10:30:00.
+ */
+public final class ContextPropagators implements ExecutorLoggerInner {
+
+    private static final ContextPropagator[] EMPTY = new ContextPropagator[0];
+
+    private static final Set<String> disabledGroups = ConcurrentHashMap.newKeySet();
+
+    private static volatile ContextPropagator[] registered = EMPTY;
+
+    private static volatile int version;
+
+    static {
+        register(new EagleEyeContextPropagator());
+        register(new MdcTraceIdPropagator());
+        try {
+            for (ContextPropagator propagator : ServiceLoader.load(ContextPropagator.class)) {
+                register(propagator);
+            }
+        } catch (Throwable t) {
+            monitor.error("load ContextPropagator by ServiceLoader failed", t);
+        }
+    }
+
+    private ContextPropagators() {
+    }
+
+    public static synchronized void register(ContextPropagator propagator) {
+        List<ContextPropagator> propagators = new ArrayList<>(Arrays.asList(registered));
+        propagators.add(propagator);
+        registered = propagators.toArray(EMPTY);
+        ++version;
+    }
+
+    public static synchronized boolean unregister(ContextPropagator propagator) {
+        List<ContextPropagator> propagators = new ArrayList<>(Arrays.asList(registered));
+        boolean removed = propagators.remove(propagator);
+        if (removed) {
+            registered = propagators.toArray(EMPTY);
+            ++version;
+        }
+        return removed;
+    }
+
+    /**
+     * 对已创建的分组同样生效(下一次提交时).
+     */
+    public static synchronized void setEnabled(String group, boolean enabled) {
+        boolean changed = enabled ? disabledGroups.remove(group) : disabledGroups.add(group);
+        if (changed) {
+            ++version;
+        }
+    }
+
+    public static boolean isEnabled(String group) {
+        return !disabledGroups.contains(group);
+    }
+
+    public static int version() {
+        return version;
+    }
+
+    /**
+     * @return 分组当前生效的propagator, 调用方不可修改
+     */
+    public static ContextPropagator[] propagators(String group) {
+        return isEnabled(group) ? registered : EMPTY;
+    }
+
+    /**
+     * @return 与{@code propagators}一一对应的快照, 均为null时返回null
+     */
+    public static Object[] capture(ContextPropagator[] propagators) {
+        Object[] captured = null;
+        for (int i = 0; i < propagators.length; ++i) {
+            Object context;
+            try {
+                context = propagators[i].capture();
+            } catch (Throwable t) {
+                monitor.error("propagator [{}] capture failed", propagators[i].getClass().getName(), t);
+                continue;
+            }
+            if (context != null) {
+                if (captured == null) {
+                    captured = new Object[propagators.length];
+                }
+                captured[i] = context;
+            }
+        }
+        return captured;
+    }
+
+    public static void replay(ContextPropagator[] propagators, Object[] captured) {
+        if (captured == null) {
+            return;
+        }
+        for (int i = 0; i < propagators.length; ++i) {
+            if (captured[i] != null) {
+                try {
+                    propagators[i].replay(captured[i]);
+                } catch (Throwable t) {
+                    monitor.error("propagator [{}] replay failed", propagators[i].getClass().getName(), t);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按注册顺序的逆序清理, 没有快照的propagator只在{@code alwaysClear()}时清理
+     */
+    public static void clear(ContextPropagator[] propagators, Object[] captured) {
+        for (int i = propagators.length - 1; i >= 0; --i) {
+            Object context = captured == null ? null : captured[i];
+            if (context != null || propagators[i].alwaysClear()) {
+                try {
+                    propagators[i].clear(context);
+                } catch (Throwable t) {
+                    monitor.error("propagator [{}] clear failed", propagators[i].getClass().getName(), t);
+                }
+            }
+        }
+    }
+}
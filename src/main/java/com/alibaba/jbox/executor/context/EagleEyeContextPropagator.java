@@ -0,0 +1,33 @@
+package com.alibaba.jbox.executor.context;
+
+import com.taobao.eagleeye.EagleEye;
+
+/**
+ * 透传EagleEye的RpcContext, 无论提交线程是否有RpcContext, task执行结束后都会清理工作线程的RpcContext.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/23 10:10:00.
+ */
+public class EagleEyeContextPropagator implements ContextPropagator {
+
+    @Override
+    public Object capture() {
+        return EagleEye.getRpcContext();
+    }
+
+    @Override
+    public void replay(Object captured) {
+        EagleEye.setRpcContext(captured);
+    }
+
+    @Override
+    public void clear(Object captured) {
+        EagleEye.clearRpcContext();
+    }
+
+    @Override
+    public boolean alwaysClear() {
+        return true;
+    }
+}
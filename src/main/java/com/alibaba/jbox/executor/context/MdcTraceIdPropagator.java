@@ -0,0 +1,33 @@
+package com.alibaba.jbox.executor.context;
+
+import com.google.common.base.Strings;
+import com.taobao.eagleeye.EagleEye;
+import org.slf4j.MDC;
+
+import static com.alibaba.jbox.executor.ExecutorLoggerInner.TRACE_ID;
+
+/**
+ * 将提交线程的EagleEye traceId放入工作线程的MDC, 没有traceId时不做任何MDC操作.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/23 10:15:00.
+ */
+public class MdcTraceIdPropagator implements ContextPropagator {
+
+    @Override
+    public Object capture() {
+        String traceId = EagleEye.getTraceId();
+        return Strings.isNullOrEmpty(traceId) ? null : traceId;
+    }
+
+    @Override
+    public void replay(Object captured) {
+        MDC.put(TRACE_ID, (String)captured);
+    }
+
+    @Override
+    public void clear(Object captured) {
+        MDC.remove(TRACE_ID);
+    }
+}
@@ -0,0 +1,78 @@
+package com.alibaba.jbox.executor.policy;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.AsyncRunnable;
+import com.alibaba.jbox.executor.ExecutorLoggerInner;
+import com.alibaba.jbox.executor.ExecutorManager;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 舱壁(bulkhead)式拒绝策略:
+ * RunnableQueue满时, 提交线程通过{@code queue.offer(timeout)}最多等待{@code timeoutMillis}, 仍无空间则抛出{@link BulkheadRejectedException}.
+ * 相比{@link CallerRunsPolicy}, 慢task不会在提交线程(如Tomcat请求线程)中执行, 过载时提交方的耗时有明确上界.
+ * 提交线程的等待耗时与被拒绝次数记入分组的{@code FlightRecorder}, 由{@code ExecutorMonitor}输出.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/20 10:20:00.
+ */
+public class BulkheadPolicy implements RejectedExecutionHandler, ExecutorLoggerInner {
+
+    private String group;
+
+    private long timeoutMillis;
+
+    public BulkheadPolicy(String group, long timeoutMillis) {
+        Preconditions.checkArgument(timeoutMillis >= 0, "timeoutMillis can not be negative.");
+        this.group = group;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("executor group [" + group + "] has been shutdown");
+        }
+
+        boolean offered;
+        long start = System.nanoTime();
+        try {
+            offered = executor.getQueue().offer(runnable, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            offered = false;
+        } finally {
+            ExecutorManager.recordBlocked(group, System.nanoTime() - start);
+        }
+
+        if (offered) {
+            // 所有线程都已回收时保证有线程消费刚放入的task
+            if (executor.getPoolSize() == 0) {
+                executor.prestartCoreThread();
+            }
+            return;
+        }
+
+        ExecutorManager.recordRejected(group);
+
+        String taskInfo = runnable instanceof AsyncRunnable ? ((AsyncRunnable)runnable).taskInfo()
+            : runnable.getClass().getName();
+        String message = generatePolicyLoggerContent(group, this, executor.getQueue(), taskInfo,
+            Objects.hashCode(runnable));
+
+        logger.warn(message);
+        monitor.warn(message);
+        throw new BulkheadRejectedException(group, timeoutMillis,
+            String.format("executor group [%s] queue full after waiting [%d]ms", group, timeoutMillis));
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
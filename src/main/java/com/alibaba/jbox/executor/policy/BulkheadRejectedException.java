@@ -0,0 +1,33 @@
+package com.alibaba.jbox.executor.policy;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link BulkheadPolicy}在等待RunnableQueue空间超时后抛出, 调用方可据此快速失败/降级.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/20 10:40:00.
+ */
+public class BulkheadRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 3170581290651377926L;
+
+    private final String group;
+
+    private final long timeoutMillis;
+
+    public BulkheadRejectedException(String group, long timeoutMillis, String message) {
+        super(message);
+        this.group = group;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
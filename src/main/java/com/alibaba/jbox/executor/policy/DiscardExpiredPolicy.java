@@ -0,0 +1,42 @@
+package com.alibaba.jbox.executor.policy;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.alibaba.jbox.executor.AsyncCallable;
+import com.alibaba.jbox.executor.AsyncRunnable;
+import com.alibaba.jbox.executor.ExecutorLoggerInner;
+
+/**
+ * 直接丢弃超过deadline的task, 并打印日志.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 11:45:00.
+ */
+public class DiscardExpiredPolicy implements ExpiredTaskHandler, ExecutorLoggerInner {
+
+    private String group;
+
+    public DiscardExpiredPolicy(String group) {
+        this.group = group;
+    }
+
+    @Override
+    public void expired(Object task, long overdueMillis, ThreadPoolExecutor executor) {
+        String taskInfo;
+        if (task instanceof AsyncRunnable) {
+            taskInfo = ((AsyncRunnable)task).taskInfo();
+        } else if (task instanceof AsyncCallable) {
+            taskInfo = ((AsyncCallable)task).taskInfo();
+        } else {
+            taskInfo = String.valueOf(task);
+        }
+
+        String message = generatePolicyLoggerContent(group, this, executor.getQueue(), taskInfo,
+            Objects.hashCode(task));
+
+        logger.warn("{}, overdue:[{}ms]", message, overdueMillis);
+        monitor.warn("{}, overdue:[{}ms]", message, overdueMillis);
+    }
+}
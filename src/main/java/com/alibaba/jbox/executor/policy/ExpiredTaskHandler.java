@@ -0,0 +1,21 @@
+package com.alibaba.jbox.executor.policy;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 优先级线程池中的task在开始执行时已超过其{@code deadline()}, 不再执行, 由该handler处理(类比{@code RejectedExecutionHandler}).
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 11:40:00.
+ */
+@FunctionalInterface
+public interface ExpiredTaskHandler {
+
+    /**
+     * @param task          : 被丢弃的task, 通常是{@code AsyncRunnable}/{@code AsyncCallable}的Decorator;
+     * @param overdueMillis : 开始执行时超过deadline的时长;
+     * @param executor      : task所在的线程池.
+     */
+    void expired(Object task, long overdueMillis, ThreadPoolExecutor executor);
+}
@@ -0,0 +1,264 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 有界无锁队列的{@code BlockingQueue}适配:
+ * - {@code offer()}/{@code poll()}由子类以CAS实现, 不加锁;
+ * - 只有在队列空(满)且确实有消费者(生产者)在等待时, 才通过{@code lock}+{@code Condition}进行挂起/唤醒,
+ * 线程池忙碌时生产者与消费者之间没有锁竞争;
+ * - 不支持从队列中间删除元素: {@code remove(Object)}始终返回false, {@code iterator()}返回只读的弱一致性快照;
+ * - 监控抽样通过{@code peek(int)}只复制队首的若干元素, 开销不随积压的元素数增长.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/14 10:30:00.
+ */
+public abstract class AbstractLockFreeBlockingQueue<E> extends AbstractQueue<E>
+    implements BlockingQueue<E>, SampleableQueue<E> {
+
+    protected final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final AtomicInteger waitingConsumers = new AtomicInteger(0);
+
+    private final AtomicInteger waitingProducers = new AtomicInteger(0);
+
+    protected AbstractLockFreeBlockingQueue(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return false if queue is full.
+     */
+    protected abstract boolean doOffer(E e);
+
+    /**
+     * @return null if queue is empty.
+     */
+    protected abstract E doPoll();
+
+    /**
+     * @return 当前队首元素的快照, 队列为空时返回null.
+     */
+    protected abstract E doPeek();
+
+    /**
+     * 按出队顺序复制当前元素(最多{@code limit}个), 仅用于{@code iterator()}/{@code toArray()}/{@code peek(int)}等监控场景.
+     */
+    protected abstract List<E> snapshot(int limit);
+
+    @Override
+    public boolean offer(E e) {
+        Preconditions.checkNotNull(e);
+        if (doOffer(e)) {
+            signalIfWaiting(waitingConsumers, notEmpty);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        E e = doPoll();
+        if (e != null) {
+            signalIfWaiting(waitingProducers, notFull);
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return doPeek();
+    }
+
+    @Override
+    public List<E> peek(int limit) {
+        return snapshot(limit);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        if (offer(e)) {
+            return;
+        }
+
+        waitingProducers.incrementAndGet();
+        lock.lockInterruptibly();
+        try {
+            // 必须先登记waiting再重试, 保证与poll()之间不会丢失唤醒
+            while (!doOffer(e)) {
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+            waitingProducers.decrementAndGet();
+        }
+        signalIfWaiting(waitingConsumers, notEmpty);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        if (offer(e)) {
+            return true;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        waitingProducers.incrementAndGet();
+        lock.lockInterruptibly();
+        try {
+            while (!doOffer(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+            waitingProducers.decrementAndGet();
+        }
+        signalIfWaiting(waitingConsumers, notEmpty);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+
+        waitingConsumers.incrementAndGet();
+        lock.lockInterruptibly();
+        try {
+            while ((e = doPoll()) == null) {
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+            waitingConsumers.decrementAndGet();
+        }
+        signalIfWaiting(waitingProducers, notFull);
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        waitingConsumers.incrementAndGet();
+        lock.lockInterruptibly();
+        try {
+            while ((e = doPoll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+            waitingConsumers.decrementAndGet();
+        }
+        signalIfWaiting(waitingProducers, notFull);
+        return e;
+    }
+
+    private void signalIfWaiting(AtomicInteger waiting, Condition condition) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 无锁队列不支持删除中间元素, {@code ThreadPoolExecutor.remove()}/{@code purge()}会因此失效(task仍会被执行).
+     */
+    @Override
+    public boolean remove(Object o) {
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Preconditions.checkNotNull(c);
+        Preconditions.checkArgument(c != this);
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            ++n;
+        }
+        return n;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> iterator = snapshot(Integer.MAX_VALUE).iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot(Integer.MAX_VALUE).toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return snapshot(Integer.MAX_VALUE).toArray(a);
+    }
+
+    protected static <E> List<E> newSnapshotList(int size) {
+        return new ArrayList<>(Math.max(0, size));
+    }
+}
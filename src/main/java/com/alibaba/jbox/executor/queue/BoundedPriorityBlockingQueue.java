@@ -0,0 +1,271 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 有界的优先级阻塞队列:
+ * {@code PriorityBlockingQueue}是无界的, 作为{@code ThreadPoolExecutor}的RunnableQueue时线程数永远不会超过core pool size,
+ * 拒绝策略也不会被触发, 因此在{@code PriorityQueue}外加一把锁与容量限制, 语义同{@code ArrayBlockingQueue}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 11:00:00.
+ */
+public class BoundedPriorityBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, SampleableQueue<E> {
+
+    private final int capacity;
+
+    private final PriorityQueue<E> queue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    public BoundedPriorityBlockingQueue(int capacity, Comparator<? super E> comparator) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive.");
+        this.capacity = capacity;
+        this.queue = new PriorityQueue<>(Math.min(capacity, 64), comparator);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Preconditions.checkNotNull(e);
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            queue.offer(e);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                notFull.await();
+            }
+            queue.offer(e);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            queue.offer(e);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private E dequeue() {
+        E e = queue.poll();
+        if (e != null) {
+            notFull.signal();
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            return queue.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 最多{@code limit}个元素的快照(不保证按优先级顺序)
+     */
+    @Override
+    public List<E> peek(int limit) {
+        lock.lock();
+        try {
+            List<E> list = new ArrayList<>(Math.min(limit, queue.size()));
+            for (Iterator<E> iterator = queue.iterator(); iterator.hasNext() && list.size() < limit; ) {
+                list.add(iterator.next());
+            }
+            return list;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            boolean removed = queue.remove(o);
+            if (removed) {
+                notFull.signal();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Preconditions.checkNotNull(c);
+        Preconditions.checkArgument(c != this);
+        lock.lock();
+        try {
+            int n = 0;
+            E e;
+            while (n < maxElements && (e = queue.poll()) != null) {
+                c.add(e);
+                ++n;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 弱一致性的快照迭代器(不保证按优先级顺序), 不支持{@code remove()}.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(queue);
+        } finally {
+            lock.unlock();
+        }
+
+        Iterator<E> iterator = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.lock();
+        try {
+            return queue.toArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        lock.lock();
+        try {
+            return queue.toArray(a);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
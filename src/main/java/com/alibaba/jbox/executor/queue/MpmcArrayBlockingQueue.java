@@ -0,0 +1,131 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多生产者多消费者(MPMC)有界无锁队列, 基于Dmitry Vyukov的bounded MPMC queue:
+ * - 容量向上取整为2的幂, 每个slot带一个sequence, 生产者/消费者各自CAS推进{@code tail}/{@code head}后独占该slot;
+ * - {@code head}/{@code tail}做了cache line padding, 避免生产者与消费者之间的false sharing;
+ * - 适用于多个请求线程向同一线程池提交task的场景, 用于替换单锁的{@code ArrayBlockingQueue}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/14 11:10:00.
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractLockFreeBlockingQueue<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> buffer;
+
+    private final AtomicLongArray sequences;
+
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0L);
+
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0L);
+
+    /**
+     * @param capacity : 实际容量, {@code remainingCapacity()}按该值计算
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        super(capacity);
+        int slots = roundToPowerOfTwo(capacity);
+        this.mask = slots - 1;
+        this.buffer = new AtomicReferenceArray<>(slots);
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; ++i) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    @Override
+    protected boolean doOffer(E e) {
+        long pos = tail.get();
+        while (true) {
+            // 按声明的capacity限流, slots多出的部分不使用
+            if (pos - head.get() >= capacity) {
+                return false;
+            }
+
+            int index = (int)pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // slot尚未被消费
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    protected E doPoll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int)pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                // slot尚未被生产
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    protected E doPeek() {
+        long pos = head.get();
+        int index = (int)pos & mask;
+        return sequences.get(index) == pos + 1 ? buffer.get(index) : null;
+    }
+
+    @Override
+    public int size() {
+        // 先读head再读tail, 保证结果不为负
+        long before = head.get();
+        long size = tail.get() - before;
+        return (int)Math.max(0, Math.min(capacity, size));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    @Override
+    protected List<E> snapshot(int limit) {
+        long from = head.get();
+        long to = tail.get();
+        List<E> list = newSnapshotList((int)Math.min(Math.min(capacity, limit), to - from));
+        for (long pos = from; pos < to && list.size() < limit; ++pos) {
+            int index = (int)pos & mask;
+            E e = buffer.get(index);
+            if (e != null && sequences.get(index) == pos + 1) {
+                list.add(e);
+            }
+        }
+        return list;
+    }
+
+    static int roundToPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
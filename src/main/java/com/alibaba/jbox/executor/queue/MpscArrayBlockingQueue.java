@@ -0,0 +1,107 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多生产者单消费者(MPSC)有界无锁队列, 适用于单线程分组({@code newSingleThreadExecutor}):
+ * - 生产者CAS推进{@code tail}后以有序写发布元素, 不需要per-slot的sequence;
+ * - 消费者只需一次volatile读判断slot是否已发布, {@code head}只由消费者推进;
+ * - {@code ThreadPoolExecutor.shutdownNow()}的{@code drainTo()}、{@code DiscardOldestPolicy}的{@code poll()}
+ * 可能在worker之外的线程出队, 因此消费端由一个(正常情况下无竞争的){@code consuming}标记保护.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/14 14:20:00.
+ */
+public class MpscArrayBlockingQueue<E> extends AbstractLockFreeBlockingQueue<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> buffer;
+
+    private final PaddedAtomicLong head = new PaddedAtomicLong(0L);
+
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(0L);
+
+    private final AtomicBoolean consuming = new AtomicBoolean(false);
+
+    public MpscArrayBlockingQueue(int capacity) {
+        super(capacity);
+        int slots = MpmcArrayBlockingQueue.roundToPowerOfTwo(capacity);
+        this.mask = slots - 1;
+        this.buffer = new AtomicReferenceArray<>(slots);
+    }
+
+    @Override
+    protected boolean doOffer(E e) {
+        long pos;
+        do {
+            pos = tail.get();
+            if (pos - head.get() >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(pos, pos + 1));
+
+        buffer.lazySet((int)pos & mask, e);
+        return true;
+    }
+
+    @Override
+    protected E doPoll() {
+        while (!consuming.compareAndSet(false, true)) {
+            Thread.yield();
+        }
+        try {
+            long pos = head.get();
+            int index = (int)pos & mask;
+            E e = buffer.get(index);
+            if (e == null) {
+                if (pos == tail.get()) {
+                    return null;
+                }
+                // tail已推进但元素还未发布, 等待生产者完成写入
+                while ((e = buffer.get(index)) == null) {
+                    Thread.yield();
+                }
+            }
+            buffer.lazySet(index, null);
+            head.set(pos + 1);
+            return e;
+        } finally {
+            consuming.set(false);
+        }
+    }
+
+    @Override
+    protected E doPeek() {
+        return buffer.get((int)head.get() & mask);
+    }
+
+    @Override
+    public int size() {
+        long before = head.get();
+        long size = tail.get() - before;
+        return (int)Math.max(0, Math.min(capacity, size));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    @Override
+    protected List<E> snapshot(int limit) {
+        long from = head.get();
+        long to = tail.get();
+        List<E> list = newSnapshotList((int)Math.min(Math.min(capacity, limit), to - from));
+        for (long pos = from; pos < to && list.size() < limit; ++pos) {
+            E e = buffer.get((int)pos & mask);
+            if (e != null) {
+                list.add(e);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,29 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在value之后填充一个cache line的{@code AtomicLong}, 用于队列的{@code head}/{@code tail}, 避免false sharing.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/14 11:00:00.
+ */
+@SuppressWarnings("unused")
+class PaddedAtomicLong extends AtomicLong {
+
+    private static final long serialVersionUID = 6591744614431540712L;
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+
+    /**
+     * 防止padding字段被优化掉
+     */
+    long sumPaddingToPreventOptimisation() {
+        return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+    }
+}
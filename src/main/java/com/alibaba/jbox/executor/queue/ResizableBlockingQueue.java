@@ -0,0 +1,301 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 容量可在运行时调整的单锁有界队列, 用于线程池的热更新(详见{@code ExecutorReconfigurer}):
+ * - {@code setCapacity()}调大后立即唤醒等待的生产者; 调小时不丢弃已入队的元素, 队列长度降到新容量以下后才能继续入队;
+ * - 与{@code ArrayBlockingQueue}一样使用一把锁, 但底层使用{@code ArrayDeque}, 容量调整不需要复制数组;
+ * - 支持{@code remove(Object)}, {@code iterator()}返回弱一致性快照, 其{@code remove()}委托到{@code remove(Object)}.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/28 10:00:00.
+ */
+public class ResizableBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, SampleableQueue<E> {
+
+    private final ArrayDeque<E> elements = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private volatile int capacity;
+
+    public ResizableBlockingQueue(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive.");
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 调整前的容量
+     */
+    public int setCapacity(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive.");
+        lock.lock();
+        try {
+            int previous = this.capacity;
+            this.capacity = capacity;
+            if (capacity > previous) {
+                notFull.signalAll();
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Preconditions.checkNotNull(e);
+        lock.lock();
+        try {
+            if (elements.size() >= capacity) {
+                return false;
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        lock.lockInterruptibly();
+        try {
+            while (elements.size() >= capacity) {
+                notFull.await();
+            }
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Preconditions.checkNotNull(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (elements.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return elements.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (elements.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (elements.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            return elements.peekFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<E> peek(int limit) {
+        lock.lock();
+        try {
+            List<E> list = new ArrayList<>(Math.min(limit, elements.size()));
+            for (Iterator<E> iterator = elements.iterator(); iterator.hasNext() && list.size() < limit; ) {
+                list.add(iterator.next());
+            }
+            return list;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return Math.max(0, capacity - elements.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (elements.removeFirstOccurrence(o)) {
+                signalNotFull();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Preconditions.checkNotNull(c);
+        Preconditions.checkArgument(c != this);
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && !elements.isEmpty()) {
+                c.add(elements.pollFirst());
+                ++n;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> iterator = snapshot().iterator();
+        return new Iterator<E>() {
+
+            private E current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return current = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                Preconditions.checkState(current != null);
+                ResizableBlockingQueue.this.remove(current);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    private List<E> snapshot() {
+        lock.lock();
+        try {
+            return new ArrayList<>(elements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(E e) {
+        elements.addLast(e);
+        notEmpty.signal();
+    }
+
+    private E dequeue() {
+        E e = elements.pollFirst();
+        signalNotFull();
+        return e;
+    }
+
+    private void signalNotFull() {
+        // 缩容后队列长度仍大于新容量时不唤醒生产者
+        if (elements.size() < capacity) {
+            notFull.signal();
+        }
+    }
+}
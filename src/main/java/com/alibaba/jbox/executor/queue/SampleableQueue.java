@@ -0,0 +1,20 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.List;
+
+/**
+ * {@code iterator()}需要复制整个队列的RunnableQueue实现该接口, 供监控抽样只复制队首的若干元素,
+ * 抽样开销不随积压的task数增长.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/11 17:00:00.
+ */
+public interface SampleableQueue<E> {
+
+    /**
+     * @param limit : 最多返回的元素数
+     * @return 按出队顺序(优先级队列不保证顺序)的弱一致性快照
+     */
+    List<E> peek(int limit);
+}
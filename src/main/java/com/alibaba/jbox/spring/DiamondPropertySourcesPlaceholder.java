@@ -13,6 +13,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.alibaba.jbox.executor.AsyncRunnable;
+import com.alibaba.jbox.executor.ExecutorReconfigurer;
 import com.alibaba.jbox.spring.ValueHandler.ValueContext;
 import com.alibaba.jbox.utils.AopTargetUtils;
 import com.alibaba.jbox.utils.JboxUtils;
@@ -45,12 +46,13 @@ import static com.alibaba.jbox.utils.JboxUtils.convertTypeValue;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.4
+ * @version 1.5
  * - 1.0: a simple vitamin faced use {@link PlaceholderConfigurerSupport};
  * - 1.1: replace use {@link PropertySourcesPlaceholderConfigurer}, 从3.1版本起Spring其装配.
  * - 1.2: use {@link Diamond} for replace Vitamin;
  * - 1.3 @deprecated : load yaml file as a config file format;
  * - 1.4: add {@link ValueHandler} when Field value changed.
+ * - 1.5: 'jbox.executor.*' config hot reconfigure thread pools by {@link ExecutorReconfigurer}.
  * @since 2017/4/5 上午10:35.
  */
 public class DiamondPropertySourcesPlaceholder extends PropertySourcesPlaceholderConfigurer
@@ -169,6 +171,9 @@ public class DiamondPropertySourcesPlaceholder extends PropertySourcesPlaceholde
             mergedProperties.putAll(initDiamondConfig);
         }
         totalProperties.putAll(mergedProperties);
+
+        // since 1.5 : 分组可能在此之后才创建, 由ExecutorReconfigurer暂存
+        ExecutorReconfigurer.reconfigure(mergedProperties);
         return mergedProperties;
     }
 
@@ -180,6 +185,7 @@ public class DiamondPropertySourcesPlaceholder extends PropertySourcesPlaceholde
         initBeansMap(beanFactory);
 
         Multimap<Object, Pair<Field, Object>> bean2ChangedFieldMap = HashMultimap.create();
+        Map<String, String> executorConfig = new HashMap<>();
 
         for (Map.Entry<String, String> entry : config.entrySet()) {
             String configKey = entry.getKey();
@@ -194,10 +200,20 @@ public class DiamondPropertySourcesPlaceholder extends PropertySourcesPlaceholde
                 continue;
             }
 
+            // since 1.5 : thread pool config.
+            boolean executorKey = ExecutorReconfigurer.isExecutorKey(configKey);
+            if (executorKey) {
+                executorConfig.put(configKey, configValue);
+            }
+
             // make sure has relative bean.
             Collection<Pair<Field, Object>> fieldWithBeans = configKey2PairMap.get(configKey);
             if (isNullOrEmpty(fieldWithBeans)) {
-                SpringLoggerHelper.error("passed: config [{}] have none relative bean.", configKey);
+                if (executorKey) {
+                    totalProperties.put(configKey, configValue);
+                } else {
+                    SpringLoggerHelper.error("passed: config [{}] have none relative bean.", configKey);
+                }
                 continue;
             }
 
@@ -220,6 +236,9 @@ public class DiamondPropertySourcesPlaceholder extends PropertySourcesPlaceholde
             totalProperties.put(configKey, configValue);
         }
 
+        if (!executorConfig.isEmpty()) {
+            ExecutorReconfigurer.reconfigure(executorConfig);
+        }
         notifyChangedCallBack(bean2ChangedFieldMap.asMap());
     }
 
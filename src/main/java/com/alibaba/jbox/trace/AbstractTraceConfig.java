@@ -15,7 +15,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.0
+ * @version 1.2
+ *          - 1.1: notify {@code onConfigChanged()} when config modified.
+ *          - 1.2: add global sampling config, see {@link TraceSampler}.
  * @since 2017/9/28 13:23:00.
  */
 public abstract class AbstractTraceConfig implements Serializable {
@@ -83,8 +85,29 @@ public abstract class AbstractTraceConfig implements Serializable {
      */
     private volatile boolean useAbstractMethod = false;
 
+    /**
+     * global fixed sample rate(0~1) of 'elapsed' log & TLog, used when method not specified.
+     */
+    private volatile double sampleRate = 1.0;
+
+    /**
+     * global max sampled invokes per second per method, 0 unlimited.
+     */
+    private volatile long samplePermitsPerSecond = 0;
+
+    /**
+     * always sample invokes throws exception.
+     */
+    private volatile boolean sampleErrors = true;
+
+    /**
+     * always sample invokes rt >= sampleSlowThreshold(ms), negative disabled.
+     */
+    private volatile long sampleSlowThreshold = -1;
+
     public void setBizLoggerName(String bizLoggerName) {
         this.defaultBizLogger = LoggerFactory.getLogger(bizLoggerName);
+        onConfigChanged();
     }
 
     public void settLogManager(TLogManager tLogManager) {
@@ -104,11 +127,13 @@ public abstract class AbstractTraceConfig implements Serializable {
     public void setTraceConfigs(Map<String, TraceConfig> traceConfigs) {
         if (traceConfigs != null && !traceConfigs.isEmpty()) {
             this.traceConfigs.putAll(traceConfigs);
+            onConfigChanged();
         }
     }
 
     public void addTraceConfig(String configKey, TraceConfig traceConfig) {
         this.traceConfigs.put(configKey, traceConfig);
+        onConfigChanged();
     }
 
     public ConcurrentMap<String, TraceConfig> getTraceConfigs() {
@@ -118,6 +143,7 @@ public abstract class AbstractTraceConfig implements Serializable {
     public void setTraceConfigs(
         ConcurrentMap<String, TraceConfig> traceConfigs) {
         this.traceConfigs = traceConfigs;
+        onConfigChanged();
     }
 
     public Logger getDefaultBizLogger() {
@@ -126,6 +152,7 @@ public abstract class AbstractTraceConfig implements Serializable {
 
     public void setDefaultBizLogger(Logger defaultBizLogger) {
         this.defaultBizLogger = defaultBizLogger;
+        onConfigChanged();
     }
 
     public boolean isValidator() {
@@ -134,6 +161,7 @@ public abstract class AbstractTraceConfig implements Serializable {
 
     public void setValidator(boolean validator) {
         this.validator = validator;
+        onConfigChanged();
     }
 
     public boolean isElapsed() {
@@ -198,6 +226,52 @@ public abstract class AbstractTraceConfig implements Serializable {
 
     public void setUseAbstractMethod(boolean useAbstractMethod) {
         this.useAbstractMethod = useAbstractMethod;
+        onConfigChanged();
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        onConfigChanged();
+    }
+
+    public long getSamplePermitsPerSecond() {
+        return samplePermitsPerSecond;
+    }
+
+    public void setSamplePermitsPerSecond(long samplePermitsPerSecond) {
+        this.samplePermitsPerSecond = samplePermitsPerSecond;
+        onConfigChanged();
+    }
+
+    public boolean isSampleErrors() {
+        return sampleErrors;
+    }
+
+    public void setSampleErrors(boolean sampleErrors) {
+        this.sampleErrors = sampleErrors;
+        onConfigChanged();
+    }
+
+    public long getSampleSlowThreshold() {
+        return sampleSlowThreshold;
+    }
+
+    public void setSampleSlowThreshold(long sampleSlowThreshold) {
+        this.sampleSlowThreshold = sampleSlowThreshold;
+        onConfigChanged();
+    }
+
+    /**
+     * invoked after 'traceConfigs'/'bizLogger'/'validator'/'useAbstractMethod'/sampling config modified, subclass
+     * may drop cached method metadata.
+     *
+     * @since 1.1
+     */
+    protected void onConfigChanged() {
     }
 
     public boolean isEnableTLogManger() {
@@ -8,7 +8,8 @@ import java.lang.annotation.Target;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.3
+ * @version 1.4
+ *          - 1.4: add sampling config, see {@link TraceSampler}.
  * @since 2016/11/25 11:51.
  */
 @Documented
@@ -26,4 +27,32 @@ public @interface Trace {
      * if ${method invoke cost time} > ${threshold} then append an 'cost time' log.
      */
     long threshold() default -1;
+
+    /**
+     * fixed sample rate(0~1), negative use global 'sampleRate'.
+     *
+     * @since 1.4
+     */
+    double sampleRate() default -1;
+
+    /**
+     * max sampled invokes per second, 0 unlimited, negative use global 'samplePermitsPerSecond'.
+     *
+     * @since 1.4
+     */
+    long permitsPerSecond() default -1;
+
+    /**
+     * always sample invokes throws exception (also need global 'sampleErrors').
+     *
+     * @since 1.4
+     */
+    boolean sampleErrors() default true;
+
+    /**
+     * always sample invokes rt >= slowThreshold(ms), negative use global 'sampleSlowThreshold'.
+     *
+     * @since 1.4
+     */
+    long slowThreshold() default -1;
 }
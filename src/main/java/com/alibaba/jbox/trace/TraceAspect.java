@@ -4,6 +4,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -11,13 +14,14 @@ import java.util.concurrent.ConcurrentMap;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.ValidationException;
+import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import javax.validation.executable.ExecutableValidator;
+import javax.validation.metadata.MethodDescriptor;
 
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.jbox.trace.tlog.LogEvent;
 import com.alibaba.jbox.trace.tlog.TLogManager;
-import com.alibaba.jbox.utils.JboxUtils;
 
 import com.google.common.base.Strings;
 import com.taobao.csp.sentinel.Entry;
@@ -41,7 +45,7 @@ import static com.alibaba.jbox.utils.JboxUtils.getSimplifiedMethodName;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.8
+ * @version 1.11
  *          - 1.0: append 'traceId' to logger;
  *          - 1.1: append 'method invoke cost time & param' to biz logger;
  *          - 1.2: validate method param {@code com.alibaba.jbox.annotation.NotNull}, {@code
@@ -53,6 +57,9 @@ import static com.alibaba.jbox.utils.JboxUtils.getSimplifiedMethodName;
  *          - 1.7: async/sync append |invokeTime|thread|rt|class|method|args|result|exception|serverIp|traceId
  *          |clientName|clientIp| to TLog.
  *          - 1.8: add 'errorRoot' config to determine append root logger error content.
+ *          - 1.9: cache resolved method/configKey/threshold/logger per method, steady-state overhead is a map hit.
+ *          - 1.10: only build {@code LogEvent} when some TLogManager has ELConfig for the method.
+ *          - 1.11: sample 'elapsed' log & TLog by {@link TraceSampler} before serialization.
  * @since 2016/11/25 上午11:53.
  */
 @Aspect
@@ -62,7 +69,19 @@ public class TraceAspect extends AbstractTraceConfig {
 
     private static final Logger rootLogger = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
 
-    private static final ConcurrentMap<String, Logger> BIZ_LOGGERS = new ConcurrentHashMap<>();
+    /**
+     * signature method -> target class -> metadata
+     *
+     * @since 1.9
+     */
+    private transient volatile ConcurrentMap<Method, ConcurrentMap<Class<?>, TraceMetadata>> metadataCache;
+
+    /**
+     * configKey -> sampler, survive metadata rebuild for keep sampled/dropped count
+     *
+     * @since 1.11
+     */
+    private final ConcurrentMap<String, TraceSampler> samplers = new ConcurrentHashMap<>();
 
     @Around("@annotation(com.alibaba.jbox.trace.Trace)")
     public Object invoke(final ProceedingJoinPoint joinPoint) throws Throwable {
@@ -75,57 +94,50 @@ public class TraceAspect extends AbstractTraceConfig {
             MDC.put(TRACE_ID, traceId);
         }
 
-        LogEvent logEvent = new LogEvent();
+        // start time
+        long start = System.currentTimeMillis();
+        TraceMetadata metadata = null;
+        Object[] args = null;
+        Object result = null;
+        long rt = 0;
+        Throwable exception = null;
+        // @since 1.11 sample decision: -1 not decided, 0 dropped, 1 sampled
+        int sampled = -1;
         try {
-            // start time
-            long start = System.currentTimeMillis();
-            logEvent.setStartTime(start);
-
             // class、method、configKey
-            Method method = isUseAbstractMethod() ? getAbstractMethod(joinPoint) : getImplMethod(joinPoint);
-            String className = method.getDeclaringClass().getName();
-            String methodName = method.getName();
-            String configKey = String.format(CONFIG_KEY_PATTERN, className, methodName);
-
-            logEvent.setMethod(method);
-            logEvent.setClassName(className);
-            logEvent.setMethodName(methodName);
-            logEvent.setConfigKey(configKey);
+            metadata = getMetadata(joinPoint);
+            Method method = metadata.method;
 
             // args
-            Object[] args = joinPoint.getArgs();
-            logEvent.setArgs(args);
+            args = joinPoint.getArgs();
 
             /**
              * @since 1.2 validate arguments
              */
-            if (isValidator()) {
+            if (isValidator() && metadata.constrained) {
                 validateArguments(joinPoint.getTarget(), method, args);
             }
 
             /**
              * @since 1.4 sentinel
              */
-            if (isSentinel()) {
-                entry(method);
+            if (isSentinel() && metadata.sentinelEntry) {
+                entry(metadata);
             }
 
             // result
-            Object result = joinPoint.proceed(args);
-            logEvent.setResult(result);
-
-            long rt = System.currentTimeMillis() - start;
-            logEvent.setRt(rt);
+            result = joinPoint.proceed(args);
+            rt = System.currentTimeMillis() - start;
 
             /**
              * @since 1.1 logger invoke elapsed time & parameters
              */
-            if (isElapsed()) {
-                Object[] traceConfig = getTraceConfig(configKey, method.getAnnotation(Trace.class));
-                if (isNeedLogger((Long)traceConfig[0], rt)) {
-                    String logContent = buildLogContent(method, rt, args, result);
+            if (isElapsed() && isNeedLogger(metadata.threshold(), rt)) {
+                sampled = metadata.sampler().sample(rt, null) ? 1 : 0;
+                if (sampled == 1) {
+                    String logContent = buildLogContent(metadata, rt, args, result);
 
-                    logBiz(logContent, configKey, method, joinPoint, (String)traceConfig[1]);
+                    logBiz(logContent, metadata, joinPoint.getTarget());
                     logTrace(logContent);
                 }
             }
@@ -134,15 +146,18 @@ public class TraceAspect extends AbstractTraceConfig {
         } catch (Throwable e) {
             if (isErrorRoot()) {
                 rootLogger.error("method: [{}] invoke failed, traceId:{}",
-                    getSimplifiedMethodName(JboxUtils.getAbstractMethod(joinPoint)),
+                    metadata != null ? metadata.abstractMethodName
+                        : getSimplifiedMethodName(getAbstractMethod(joinPoint)),
                     Strings.isNullOrEmpty(traceId) ? "" : traceId,
                     e);
             }
-            logEvent.setException(e);
+            exception = e;
 
             throw e;
         } finally {
-            sendLogEvent(logEvent);
+            if (metadata != null) {
+                sendLogEvent(metadata, start, args, result, rt, exception, sampled);
+            }
 
             if (!Strings.isNullOrEmpty(traceId)) {
                 MDC.remove(TRACE_ID);
@@ -153,43 +168,237 @@ public class TraceAspect extends AbstractTraceConfig {
     /*** *********************************************** ***/
     /***  send metadata to LogEventManager   @since 1.7  ***/
     /*** *********************************************** ***/
-    private void sendLogEvent(LogEvent event) {
-        if (isEnableTLogManger() && !getTLogManagers().isEmpty()) {
-            event.init();
-            for (TLogManager tLogManager : getTLogManagers()) {
-                tLogManager.postLogEvent(event);
+    private void sendLogEvent(TraceMetadata metadata, long start, Object[] args, Object result, long rt,
+                              Throwable exception, int sampled) {
+        List<TLogManager> tLogManagers = getTLogManagers();
+        if (!isEnableTLogManger() || tLogManagers.isEmpty()) {
+            return;
+        }
+
+        // @since 1.10 build event only when method has ELConfig
+        LogEvent event = null;
+        for (TLogManager tLogManager : tLogManagers) {
+            if (!tLogManager.isLoggable(metadata.configKey)) {
+                continue;
+            }
+
+            if (event == null) {
+                // @since 1.11 share the decision with 'elapsed' log
+                if (sampled == -1) {
+                    sampled = metadata.sampler().sample(rt, exception) ? 1 : 0;
+                }
+                if (sampled == 0) {
+                    return;
+                }
+
+                event = new LogEvent();
+                event.setStartTime(start);
+                event.setMethod(metadata.method);
+                event.setClassName(metadata.className);
+                event.setMethodName(metadata.methodName);
+                event.setConfigKey(metadata.configKey);
+                event.setArgs(args);
+                event.setResult(result);
+                event.setRt(rt);
+                event.setException(exception);
+                event.init();
+            }
+            tLogManager.postLogEvent(event);
+        }
+    }
+
+    /*** ******************************************** ***/
+    /***  per method metadata cache @since 1.9          ***/
+    /*** ******************************************** ***/
+    private TraceMetadata getMetadata(ProceedingJoinPoint joinPoint) throws NoSuchMethodException {
+        Method signatureMethod = getAbstractMethod(joinPoint);
+        Object target = joinPoint.getTarget();
+        Class<?> targetClass = target == null ? signatureMethod.getDeclaringClass() : target.getClass();
+
+        ConcurrentMap<Method, ConcurrentMap<Class<?>, TraceMetadata>> cache = this.metadataCache;
+        if (cache == null) {
+            synchronized (this) {
+                if ((cache = this.metadataCache) == null) {
+                    this.metadataCache = cache = new ConcurrentHashMap<>();
+                }
+            }
+        }
+
+        ConcurrentMap<Class<?>, TraceMetadata> byTarget = cache.get(signatureMethod);
+        if (byTarget == null) {
+            byTarget = cache.computeIfAbsent(signatureMethod, key -> new ConcurrentHashMap<>(2));
+        }
+
+        TraceMetadata metadata = byTarget.get(targetClass);
+        if (metadata == null) {
+            Method method = isUseAbstractMethod() ? signatureMethod : getImplMethod(joinPoint);
+            metadata = new TraceMetadata(signatureMethod, method, targetClass);
+            TraceMetadata exists = byTarget.putIfAbsent(targetClass, metadata);
+            if (exists != null) {
+                metadata = exists;
             }
         }
+
+        return metadata;
+    }
+
+    /**
+     * @return configKey -> sampler (with sampled/dropped count)
+     * @since 1.11
+     */
+    public Map<String, TraceSampler> getSamplers() {
+        return Collections.unmodifiableMap(samplers);
+    }
+
+    /**
+     * config changed: rebuild metadata on next invoke.
+     */
+    @Override
+    protected void onConfigChanged() {
+        this.metadataCache = null;
     }
 
-    /*** ***************************************************************************** ***/
-    /***  user 'com.alibaba.jbox.trace.TraceConfig' like as '@Trace' config @since 1.6 ***/
-    /*** ***************************************************************************** ***/
-    private Object[] getTraceConfig(String configKey, Trace trace) {
-
-        long threshold;
-        String loggerName;
-        if (trace == null) {
-            TraceConfig config = this.getTraceConfigs().computeIfAbsent(configKey, key -> new TraceConfig());
-            threshold = config.getThreshold();
-            loggerName = config.getLogger();
-        } else {
-            threshold = trace.threshold();
-            loggerName = trace.value();
+    private final class TraceMetadata {
+
+        private final Method method;
+
+        private final String className;
+
+        private final String methodName;
+
+        private final String configKey;
+
+        private final String simplifiedName;
+
+        private final String abstractMethodName;
+
+        /**
+         * not null when method not annotated by '@Trace', read every invoke for runtime modify
+         */
+        private final TraceConfig config;
+
+        private final Trace trace;
+
+        /**
+         * sentinel only entry non private/protected method
+         */
+        private final boolean sentinelEntry;
+
+        /**
+         * method declared parameter constraints (only resolved when validator enabled)
+         */
+        private final boolean constrained;
+
+        private final TraceSampler sampler;
+
+        /**
+         * method level sampling config applied to 'sampler', compared with 'config' every invoke for runtime modify
+         */
+        private double sampleRate;
+
+        private long permitsPerSecond;
+
+        private boolean sampleErrors;
+
+        private long slowThreshold;
+
+        private volatile Logger bizLogger;
+
+        private TraceMetadata(Method abstractMethod, Method method, Class<?> targetClass) {
+            this.method = method;
+            this.className = method.getDeclaringClass().getName();
+            this.methodName = method.getName();
+            this.configKey = String.format(CONFIG_KEY_PATTERN, className, methodName);
+            this.simplifiedName = getSimplifiedMethodName(method);
+            this.abstractMethodName = getSimplifiedMethodName(abstractMethod);
+
+            /*
+             * @since 1.6 use 'com.alibaba.jbox.trace.TraceConfig' like as '@Trace' config
+             */
+            this.trace = method.getAnnotation(Trace.class);
+            this.config = trace != null ? null
+                : getTraceConfigs().computeIfAbsent(configKey, key -> new TraceConfig());
+
+            int modifiers = method.getModifiers();
+            this.sentinelEntry = !Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers);
+            this.constrained = isValidator() && InnerValidator.isConstrained(targetClass, method);
+
+            this.sampler = samplers.computeIfAbsent(configKey, TraceSampler::new);
+            if (trace != null) {
+                configureSampler(trace.sampleRate(), trace.permitsPerSecond(), trace.sampleErrors(),
+                    trace.slowThreshold());
+            } else {
+                configureSampler(config.getSampleRate(), config.getPermitsPerSecond(), config.isSampleErrors(),
+                    config.getSlowThreshold());
+            }
+        }
+
+        /**
+         * @since 1.11 method config first, then global config
+         */
+        private void configureSampler(double sampleRate, long permitsPerSecond, boolean sampleErrors,
+                                      long slowThreshold) {
+            this.sampleRate = sampleRate;
+            this.permitsPerSecond = permitsPerSecond;
+            this.sampleErrors = sampleErrors;
+            this.slowThreshold = slowThreshold;
+
+            this.sampler.configure(
+                sampleRate >= 0 ? sampleRate : getSampleRate(),
+                permitsPerSecond >= 0 ? permitsPerSecond : getSamplePermitsPerSecond(),
+                sampleErrors && isSampleErrors(),
+                slowThreshold >= 0 ? slowThreshold : getSampleSlowThreshold());
+        }
+
+        /**
+         * 'TraceConfig' may be modified in place like 'threshold', reconfigure sampler when changed
+         */
+        private TraceSampler sampler() {
+            TraceConfig config = this.config;
+            if (config != null
+                && (config.getSampleRate() != sampleRate || config.getPermitsPerSecond() != permitsPerSecond
+                || config.isSampleErrors() != sampleErrors || config.getSlowThreshold() != slowThreshold)) {
+                configureSampler(config.getSampleRate(), config.getPermitsPerSecond(), config.isSampleErrors(),
+                    config.getSlowThreshold());
+            }
+            return sampler;
         }
 
-        return new Object[] {threshold, loggerName};
+        private long threshold() {
+            return config != null ? config.getThreshold() : trace.threshold();
+        }
+
+        private String loggerName() {
+            return config != null ? config.getLogger() : trace.value();
+        }
     }
 
     /*** *********************************************** ***/
     /***  validator arguments with Validator @since 1.3  ***/
     /*** *********************************************** ***/
     private static class InnerValidator {
+        private static final Validator beanValidator;
+
         private static final ExecutableValidator validator;
 
         static {
             ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-            validator = factory.getValidator().forExecutables();
+            beanValidator = factory.getValidator();
+            validator = beanValidator.forExecutables();
+        }
+
+        /**
+         * @since 1.9 skip validate when method has no parameter constraint/cascade.
+         */
+        private static boolean isConstrained(Class<?> targetClass, Method method) {
+            try {
+                MethodDescriptor descriptor = beanValidator.getConstraintsForClass(targetClass)
+                    .getConstraintsForMethod(method.getName(), method.getParameterTypes());
+                return descriptor != null && descriptor.hasConstrainedParameters();
+            } catch (RuntimeException e) {
+                // can not determine, always validate
+                return true;
+            }
         }
     }
 
@@ -217,15 +426,12 @@ public class TraceAspect extends AbstractTraceConfig {
     /*** ************************* ***/
     /***  add sentinel @since 1.4  ***/
     /*** ************************* ***/
-    private void entry(Method abstractMethod) throws TraceException {
+    private void entry(TraceMetadata metadata) throws TraceException {
         Entry entry = null;
         try {
-            if (!Modifier.isPrivate(abstractMethod.getModifiers()) && !Modifier.isProtected(
-                abstractMethod.getModifiers())) {
-                entry = SphU.entry(abstractMethod);
-            }
+            entry = SphU.entry(metadata.method);
         } catch (BlockException e) {
-            String msg = "method: [" + getSimplifiedMethodName(abstractMethod) + "] invoke was blocked by sentinel.";
+            String msg = "method: [" + metadata.simplifiedName + "] invoke was blocked by sentinel.";
 
             rootLogger.warn(msg, e);
             throw new TraceException(msg, e);
@@ -244,11 +450,11 @@ public class TraceAspect extends AbstractTraceConfig {
         return rt > threshold;
     }
 
-    private String buildLogContent(Method method, long costTime, Object[] args, Object resultObj) {
+    private String buildLogContent(TraceMetadata metadata, long costTime, Object[] args, Object resultObj) {
         StringBuilder logBuilder = new StringBuilder(120);
         logBuilder
             .append("method: [")
-            .append(getSimplifiedMethodName(method))
+            .append(metadata.simplifiedName)
             .append("] invoke rt [")
             .append(costTime)
             .append("]ms");
@@ -267,19 +473,22 @@ public class TraceAspect extends AbstractTraceConfig {
         return logBuilder.toString();
     }
 
-    private void logBiz(String logContent, String configKey, Method method, Object target, String loggerName) {
-        Class<?> clazz = method.getDeclaringClass();
-        Logger bizLogger = BIZ_LOGGERS.computeIfAbsent(configKey, key -> {
+    private void logBiz(String logContent, TraceMetadata metadata, Object target) {
+        Logger bizLogger = metadata.bizLogger;
+        if (bizLogger == null) {
+            Class<?> clazz = metadata.method.getDeclaringClass();
             try {
-                if (Strings.isNullOrEmpty(loggerName)) {
-                    return getDefaultBizLogger() != null ? getDefaultBizLogger() : getClassInnerLogger(clazz, target);
+                if (Strings.isNullOrEmpty(metadata.loggerName())) {
+                    bizLogger = getDefaultBizLogger() != null ? getDefaultBizLogger()
+                        : getClassInnerLogger(clazz, target);
                 } else {
-                    return getNamedBizLogger(loggerName, clazz, target);
+                    bizLogger = getNamedBizLogger(metadata.loggerName(), clazz, target);
                 }
             } catch (IllegalAccessException e) {
                 throw new TraceException(e);
             }
-        });
+            metadata.bizLogger = bizLogger;
+        }
 
         if (bizLogger != null) {
             bizLogger.warn(logContent);
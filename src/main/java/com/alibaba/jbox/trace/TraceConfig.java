@@ -6,7 +6,8 @@ import java.io.Serializable;
  * effect like as {@code com.alibaba.jbox.trace.Trace} when not use {@code Trace} annotation.
  *
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.0
+ * @version 1.1
+ *          - 1.1: add sampling config, see {@link TraceSampler}.
  * @since 2017/9/5 16:27:00.
  */
 public class TraceConfig implements Serializable {
@@ -24,6 +25,26 @@ public class TraceConfig implements Serializable {
      */
     private long threshold = -1;
 
+    /**
+     * fixed sample rate(0~1), negative use global 'sampleRate'.
+     */
+    private double sampleRate = -1;
+
+    /**
+     * max sampled invokes per second, 0 unlimited, negative use global 'samplePermitsPerSecond'.
+     */
+    private long permitsPerSecond = -1;
+
+    /**
+     * always sample invokes throws exception (also need global 'sampleErrors').
+     */
+    private boolean sampleErrors = true;
+
+    /**
+     * always sample invokes rt >= slowThreshold(ms), negative use global 'sampleSlowThreshold'.
+     */
+    private long slowThreshold = -1;
+
     public String getLogger() {
         return logger;
     }
@@ -39,4 +60,36 @@ public class TraceConfig implements Serializable {
     public void setThreshold(long threshold) {
         this.threshold = threshold;
     }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(long permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public boolean isSampleErrors() {
+        return sampleErrors;
+    }
+
+    public void setSampleErrors(boolean sampleErrors) {
+        this.sampleErrors = sampleErrors;
+    }
+
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(long slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
 }
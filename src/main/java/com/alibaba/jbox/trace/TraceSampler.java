@@ -0,0 +1,148 @@
+package com.alibaba.jbox.trace;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 方法级的trace采样: 决定一次调用是否输出elapsed日志/TLog, 在任何序列化({@code Arrays.toString(args)}、
+ * {@code JSONObject.toJSONString(result)}、LogEvent构建)之前判断, 依次:
+ * - sampleErrors: 抛出异常的调用总是采样;
+ * - slowThreshold: rt >= slowThreshold(ms)的慢调用总是采样(>= 0时生效);
+ * - sampleRate: 按固定比例随机采样(0~1, 1为全部采样);
+ * - permitsPerSecond: 随机采样命中后, 每秒最多采样的调用数(> 0时生效), 每秒重新填满, 不累积;
+ * 策略可在运行时重新配置, 采样/丢弃计数不随之重置.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/06 10:00:00.
+ */
+public class TraceSampler implements Serializable {
+
+    private static final long serialVersionUID = 3209461958274536301L;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final String configKey;
+
+    private volatile double sampleRate = 1.0;
+
+    private volatile long permitsPerSecond = 0;
+
+    private volatile boolean sampleErrors = true;
+
+    private volatile long slowThreshold = -1;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    /**
+     * 高32位: 当前秒(取低32位), 低32位: 当前秒已采样数; 放在同一个word中CAS, 换秒与计数不会互相覆盖
+     */
+    private final AtomicLong window = new AtomicLong();
+
+    private final LongAdder sampled = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public TraceSampler(String configKey) {
+        this.configKey = configKey;
+    }
+
+    void configure(double sampleRate, long permitsPerSecond, boolean sampleErrors, long slowThreshold) {
+        this.sampleRate = sampleRate;
+        this.permitsPerSecond = permitsPerSecond;
+        this.sampleErrors = sampleErrors;
+        this.slowThreshold = slowThreshold;
+    }
+
+    /**
+     * @param rt        : 方法耗时(ms)
+     * @param exception : 方法抛出的异常, nullable
+     */
+    public boolean sample(long rt, Throwable exception) {
+        boolean sample = isSample(rt, exception);
+        if (sample) {
+            sampled.increment();
+        } else {
+            dropped.increment();
+        }
+        return sample;
+    }
+
+    private boolean isSample(long rt, Throwable exception) {
+        if (exception != null && sampleErrors) {
+            return true;
+        }
+
+        long slowThreshold = this.slowThreshold;
+        if (slowThreshold >= 0 && rt >= slowThreshold) {
+            return true;
+        }
+
+        double sampleRate = this.sampleRate;
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+
+        long permitsPerSecond = this.permitsPerSecond;
+        return permitsPerSecond <= 0 || acquire(permitsPerSecond);
+    }
+
+    private boolean acquire(long permitsPerSecond) {
+        long second = (System.nanoTime() / NANOS_PER_SECOND) & COUNT_MASK;
+        long limit = Math.min(permitsPerSecond, COUNT_MASK);
+        while (true) {
+            long current = window.get();
+            long used = (current >>> 32) == second ? current & COUNT_MASK : 0;
+            if (used >= limit) {
+                return false;
+            }
+            if (window.compareAndSet(current, (second << 32) | (used + 1))) {
+                return true;
+            }
+        }
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public boolean isSampleErrors() {
+        return sampleErrors;
+    }
+
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public long getSampledCount() {
+        return sampled.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TraceSampler{" +
+            "configKey='" + configKey + '\'' +
+            ", sampleRate=" + sampleRate +
+            ", permitsPerSecond=" + permitsPerSecond +
+            ", sampleErrors=" + sampleErrors +
+            ", slowThreshold=" + slowThreshold +
+            ", sampled=" + sampled.sum() +
+            ", dropped=" + dropped.sum() +
+            '}';
+    }
+}
@@ -42,7 +42,7 @@ import static com.alibaba.jbox.trace.tlog.TLogConstants.XML_FILE_SUFFIX;
  * TLogManager统一配置
  *
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.2
+ * @version 1.3
  * @since 2017/9/26 14:09:00.
  */
 public abstract class AbstractTLogConfig implements Serializable {
@@ -80,6 +80,13 @@ public abstract class AbstractTLogConfig implements Serializable {
 
     private long totalSizeCapKb = 0;
 
+    /**
+     * 没有配置ELConfig的方法是否也输出TLog(只包含TraceAspect采集的MetaData), 默认不输出
+     *
+     * @since 1.3
+     */
+    private boolean logUnconfigured = false;
+
     /**
      * 将方法入参序列化时(JSONObject::toJSONString)排除的属性
      */
@@ -300,6 +307,14 @@ public abstract class AbstractTLogConfig implements Serializable {
         this.totalSizeCapKb = totalSizeCapKb;
     }
 
+    public boolean isLogUnconfigured() {
+        return logUnconfigured;
+    }
+
+    public void setLogUnconfigured(boolean logUnconfigured) {
+        this.logUnconfigured = logUnconfigured;
+    }
+
     public void setExcludeArgs(Set<String> excludeArgs) {
         if (excludeArgs != null && !excludeArgs.isEmpty()) {
             this.excludeArgs.addAll(excludeArgs);
@@ -9,8 +9,12 @@ import com.taobao.hsf.util.RequestCtxUtil;
 import lombok.Data;
 
 /**
+ * 只在{@link TLogManager}配置了该方法的ELConfig时由TraceAspect创建,
+ * 请求线程中只采集绑定在线程上的上下文(traceId、client、thread), serverIp在TLog线程中按需读取.
+ *
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.0
+ * @version 1.1
+ *          - 1.1: lazy read 'serverIp', only capture thread bound context in {@code init()}.
  * @since 2017/9/22 15:57:00.
  */
 @Data
@@ -46,14 +50,26 @@ public class LogEvent {
 
     private Throwable exception;
 
+    /**
+     * must be invoked in request thread.
+     */
     public void init() {
-        this.serverIp = JboxUtils.getServerIp();
         this.traceId = EagleEye.getTraceId();
         this.clientName = RequestCtxUtil.getAppNameOfClient();
         this.clientIp = RequestCtxUtil.getClientIp();
         this.invokeThread = Thread.currentThread().getName();
     }
 
+    /**
+     * @since 1.1 process level constant, resolve when needed
+     */
+    public String getServerIp() {
+        if (serverIp == null) {
+            serverIp = JboxUtils.getServerIp();
+        }
+        return serverIp;
+    }
+
     /**
      * don't need record
      */
@@ -30,7 +30,8 @@ import static java.util.stream.Collectors.toList;
 
 /**
  * @author jifang.zjf@alibaba-inc.com
- * @version 1.2
+ * @version 1.3
+ *          - 1.3: add {@code isLoggable()}, method without ELConfig not build & post LogEvent.
  * @since 2017/9/22 15:50:00.
  */
 public class TLogManager extends AbstractTLogConfig implements InitializingBean {
@@ -66,6 +67,15 @@ public class TLogManager extends AbstractTLogConfig implements InitializingBean
         }
     }
 
+    /**
+     * @param configKey : ${className:methodName}
+     * @return method has ELConfig or 'logUnconfigured' enabled
+     * @since 1.3
+     */
+    public boolean isLoggable(String configKey) {
+        return isLogUnconfigured() || getMethodELMap().containsKey(configKey);
+    }
+
     public void postLogEvent(LogEvent event) {
         executor.submit(new LogEventParser(event));
     }
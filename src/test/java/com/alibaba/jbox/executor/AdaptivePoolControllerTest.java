@@ -0,0 +1,108 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/11 15:00:00.
+ */
+public class AdaptivePoolControllerTest {
+
+    private static final String GROUP = "adaptive-controller-test";
+
+    private ThreadPoolExecutor executor;
+
+    private BlockingQueue<Runnable> queue;
+
+    @Before
+    public void setUp() {
+        AdaptivePoolPolicy policy = new AdaptivePoolPolicy(2, 8);
+        policy.setGrowAfterPeriods(2);
+        policy.setShrinkAfterPeriods(3);
+        // never hold because of the real cpu load of the test jvm
+        policy.setMaxCpuLoad(2.0);
+
+        // no worker is ever started: the backlog is exactly what the test puts into the queue
+        queue = new ArrayBlockingQueue<>(10);
+        executor = new ThreadPoolExecutor(2, 8, 1, TimeUnit.MINUTES, queue, r -> null);
+        AdaptivePoolController.register(GROUP, executor, policy);
+    }
+
+    @After
+    public void tearDown() {
+        AdaptivePoolController.unregister(GROUP);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGrowUnderSustainedBacklog() throws Exception {
+        backlog(8);
+        AdaptivePoolController.INSTANCE.invoke();
+        Assert.assertEquals(2, executor.getCorePoolSize());
+        AdaptivePoolController.INSTANCE.invoke();
+        Assert.assertEquals(3, executor.getCorePoolSize());
+
+        for (int i = 0; i < 20; ++i) {
+            AdaptivePoolController.INSTANCE.invoke();
+            Assert.assertTrue(executor.getCorePoolSize() <= 8);
+        }
+        Assert.assertEquals(8, executor.getCorePoolSize());
+    }
+
+    @Test
+    public void testShrinkWhenIdle() throws Exception {
+        executor.setCorePoolSize(8);
+        AdaptivePoolController.INSTANCE.invoke();
+        AdaptivePoolController.INSTANCE.invoke();
+        Assert.assertEquals(8, executor.getCorePoolSize());
+        AdaptivePoolController.INSTANCE.invoke();
+        Assert.assertEquals(6, executor.getCorePoolSize());
+
+        for (int i = 0; i < 30; ++i) {
+            AdaptivePoolController.INSTANCE.invoke();
+            Assert.assertTrue(executor.getCorePoolSize() >= 2);
+        }
+        Assert.assertEquals(2, executor.getCorePoolSize());
+    }
+
+    @Test
+    public void testNoFlapOnSingleSample() throws Exception {
+        for (int i = 0; i < 10; ++i) {
+            // one overloaded period followed by a normal one never reaches the grow votes
+            backlog(8);
+            AdaptivePoolController.INSTANCE.invoke();
+            queue.clear();
+            backlog(1);
+            AdaptivePoolController.INSTANCE.invoke();
+            queue.clear();
+        }
+        Assert.assertEquals(2, executor.getCorePoolSize());
+
+        executor.setCorePoolSize(4);
+        for (int i = 0; i < 10; ++i) {
+            // a single busy period resets the shrink votes
+            AdaptivePoolController.INSTANCE.invoke();
+            AdaptivePoolController.INSTANCE.invoke();
+            backlog(1);
+            AdaptivePoolController.INSTANCE.invoke();
+            queue.clear();
+        }
+        Assert.assertEquals(4, executor.getCorePoolSize());
+    }
+
+    private void backlog(int size) {
+        for (int i = 0; i < size; ++i) {
+            Assert.assertTrue(queue.offer(() -> {
+            }));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/01 14:00:00.
+ */
+public class AdmissionControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testShedAndRecover() {
+        AdmissionController controller = new AdmissionController("admission-unit", 10, 0, 100);
+        long base = System.nanoTime();
+
+        // a burst: only one task waited longer than target
+        controller.onWait(50 * MS);
+        controller.onWait(2 * MS);
+        controller.admit(base + 101 * MS);
+        Assert.assertFalse(controller.isShedding());
+
+        // standing queue: every task waited longer than target
+        controller.onWait(20 * MS);
+        controller.onWait(15 * MS);
+        assertShed(controller, base + 202 * MS);
+        assertShed(controller, base + 250 * MS);
+        Assert.assertEquals(2, controller.getShedCount());
+
+        controller.onWait(5 * MS);
+        controller.admit(base + 303 * MS);
+        Assert.assertFalse(controller.isShedding());
+
+        // no task started in the interval
+        controller.admit(base + 404 * MS);
+        Assert.assertFalse(controller.isShedding());
+    }
+
+    @Test
+    public void testShedOnExecLatency() {
+        AdmissionController controller = new AdmissionController("admission-exec", 10, 100, 100);
+        long base = System.nanoTime();
+
+        controller.onWait(1 * MS);
+        controller.onExec(200 * MS);
+        controller.onExec(150 * MS);
+        assertShed(controller, base + 101 * MS);
+    }
+
+    @Test
+    public void testManagedExecutor() throws Exception {
+        ExecutorService executor = ExecutorManager.newFixedThreadPool("admission-test", 1);
+        ExecutorManager.setAdmissionControl("admission-test", 10, 0, 1);
+        try {
+            AdmissionController controller = ExecutorManager.recorders.get("admission-test").getAdmission();
+            controller.onWait(20 * MS);
+            Thread.sleep(2);
+            try {
+                executor.execute(() -> { });
+                Assert.fail();
+            } catch (LoadSheddingException e) {
+                Assert.assertEquals("admission-test", e.getGroup());
+            }
+
+            Thread.sleep(2);
+            Assert.assertEquals(1, executor.submit(() -> 1).get(5, TimeUnit.SECONDS).intValue());
+        } finally {
+            ExecutorManager.removeAdmissionControl("admission-test");
+            executor.shutdown();
+        }
+    }
+
+    private static void assertShed(AdmissionController controller, long nowNanos) {
+        try {
+            controller.admit(nowNanos);
+            Assert.fail();
+        } catch (LoadSheddingException e) {
+            Assert.assertTrue(controller.isShedding());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.alibaba.jbox.executor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/21 15:00:00.
+ */
+public class BatchingExecutorTest {
+
+    @Test
+    public void testSizeTriggered() throws InterruptedException {
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1000);
+        BatchingExecutor<Integer> executor = ExecutorManager.newBatchingExecutor("batching-size-test", 100,
+            60_000, batch -> {
+                sizes.add(batch.size());
+                batch.forEach(item -> latch.countDown());
+            });
+
+        for (int i = 0; i < 1000; ++i) {
+            executor.add(i);
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(sizes.stream().allMatch(size -> size == 100));
+        Assert.assertEquals(10, executor.getBatchCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLingerTriggered() throws InterruptedException {
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(3);
+        BatchingExecutor<Runnable> executor = ExecutorManager.newBatchingExecutor("batching-linger-test", 100, 20);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; ++i) {
+            executor.add(() -> {
+                executed.incrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        Assert.assertEquals(3, executor.getItemCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReentrantAddOnFullBuffer() throws InterruptedException {
+        // buffer capacity is maxBatch * 16 = 32
+        CountDownLatch latch = new CountDownLatch(100);
+        BatchingExecutor<Runnable> executor = ExecutorManager.newBatchingExecutor("batching-reentrant-test", 2, 20);
+
+        executor.add(() -> {
+            // re-adds more than the buffer holds from the group's only flush thread
+            for (int i = 0; i < 100; ++i) {
+                executor.add(latch::countDown);
+            }
+        });
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(101, executor.getItemCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testShutdownFlushesBuffered() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        BatchingExecutor<Integer> executor = ExecutorManager.newBatchingExecutor("batching-shutdown-test", 100,
+            60_000, batch -> handled.addAndGet(batch.size()));
+
+        for (int i = 0; i < 42; ++i) {
+            executor.add(i);
+        }
+        executor.shutdown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.get() < 42 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(42, handled.get());
+    }
+}
@@ -0,0 +1,155 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.context.ContextPropagator;
+import com.alibaba.jbox.executor.context.ContextPropagators;
+
+import com.google.common.base.Strings;
+import com.taobao.eagleeye.EagleEye;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.MDC;
+
+import static com.alibaba.jbox.executor.ExecutorLoggerInner.TRACE_ID;
+
+/**
+ * 每个task的封装+上下文透传开销: {@code decorate()}后在当前线程直接{@code run()}一个空task.
+ * - legacy: 原实现, 每个task读写RpcContext、创建{@code AsyncContext}、查询traceId;
+ * - noContext: 提交线程没有任何上下文, 不分配快照数组;
+ * - withContext: 一个自定义{@link ContextPropagator}有值;
+ * - disabled: 分组关闭了上下文透传.
+ * 可加{@code -prof gc}查看每个task的分配字节数.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/23 15:00:00.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextPropagationBenchmark {
+
+    private static final String GROUP = "propagation-benchmark";
+
+    private static final String DISABLED_GROUP = "propagation-benchmark-disabled";
+
+    private static final ThreadLocal<Object> LOCAL = new ThreadLocal<>();
+
+    private final ContextPropagator threadLocalPropagator = new ContextPropagator() {
+        @Override
+        public Object capture() {
+            return LOCAL.get();
+        }
+
+        @Override
+        public void replay(Object captured) {
+            LOCAL.set(captured);
+        }
+
+        @Override
+        public void clear(Object captured) {
+            LOCAL.remove();
+        }
+    };
+
+    private RunnableDecoratorInterceptor interceptor;
+
+    private RunnableDecoratorInterceptor disabledInterceptor;
+
+    private ExecutorManager.FlightRecorder recorder;
+
+    private Runnable runnable;
+
+    @Setup
+    public void setUp() {
+        ContextPropagators.register(threadLocalPropagator);
+        ContextPropagators.setEnabled(DISABLED_GROUP, false);
+
+        interceptor = new RunnableDecoratorInterceptor(GROUP);
+        disabledInterceptor = new RunnableDecoratorInterceptor(DISABLED_GROUP);
+        recorder = ExecutorManager.recorders.get(GROUP);
+        runnable = () -> {
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        ContextPropagators.unregister(threadLocalPropagator);
+        ContextPropagators.setEnabled(DISABLED_GROUP, true);
+        LOCAL.remove();
+    }
+
+    @Benchmark
+    public void legacy() {
+        Object rpcContext = EagleEye.getRpcContext();
+        AsyncContext context = new AsyncContext(Thread.currentThread(), GROUP);
+        long submitNanos = System.nanoTime();
+
+        EagleEye.setRpcContext(rpcContext);
+        String traceId = EagleEye.getTraceId();
+        if (!Strings.isNullOrEmpty(traceId)) {
+            MDC.put(TRACE_ID, traceId);
+        }
+        long start = System.nanoTime();
+        recorder.recordWait(start - submitNanos);
+        try {
+            if (context.getParent() != null) {
+                runnable.run();
+            }
+            recorder.recordSuccess(System.nanoTime() - start);
+        } finally {
+            if (!Strings.isNullOrEmpty(traceId)) {
+                MDC.remove(TRACE_ID);
+            }
+            EagleEye.clearRpcContext();
+        }
+    }
+
+    @Benchmark
+    public void noContext() {
+        interceptor.decorate(runnable).run();
+    }
+
+    @Benchmark
+    public void withContext() {
+        LOCAL.set(GROUP);
+        try {
+            interceptor.decorate(runnable).run();
+        } finally {
+            LOCAL.remove();
+        }
+    }
+
+    @Benchmark
+    public void disabled() {
+        LOCAL.set(GROUP);
+        try {
+            disabledInterceptor.decorate(runnable).run();
+        } finally {
+            LOCAL.remove();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(ContextPropagationBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,233 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import com.google.common.base.Strings;
+import com.taobao.eagleeye.EagleEye;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.MDC;
+
+import static com.alibaba.jbox.executor.ExecutorLoggerInner.TRACE_ID;
+import static com.alibaba.jbox.executor.ExecutorLoggerInner.monitor;
+
+/**
+ * 对比JDK动态代理与{@link ManagedExecutorService}两种方式提交task的开销,
+ * target为在提交线程内同步执行的{@link SyncInvokeExecutorService}, 因此结果只包含派发+封装+执行空task的耗时.
+ * 动态代理一侧为{@link LegacyInterceptor}, 按原实现每次提交都反射匹配方法名、{@code computeIfAbsent}查找{@code FlightRecorder}、
+ * 创建{@code AsyncContext}并透传EagleEye/MDC.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/02 14:30:00.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorDispatchBenchmark {
+
+    private static final String GROUP = "dispatch-benchmark";
+
+    private ExecutorService proxy;
+
+    private ExecutorService managed;
+
+    private Runnable runnable;
+
+    @Setup
+    public void setUp() {
+        ExecutorService target = new SyncInvokeExecutorService();
+
+        proxy = (ExecutorService)Proxy.newProxyInstance(
+            ExecutorService.class.getClassLoader(),
+            new Class[] {ExecutorService.class},
+            new LegacyInterceptor(GROUP, target));
+
+        managed = new ManagedExecutorService(GROUP, target);
+
+        runnable = () -> {
+        };
+    }
+
+    @Benchmark
+    public void proxyExecute() {
+        proxy.execute(runnable);
+    }
+
+    @Benchmark
+    public void managedExecute() {
+        managed.execute(runnable);
+    }
+
+    @Benchmark
+    public void proxySubmit(Blackhole blackhole) {
+        blackhole.consume(proxy.submit(runnable));
+    }
+
+    @Benchmark
+    public void managedSubmit(Blackhole blackhole) {
+        blackhole.consume(managed.submit(runnable));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(ExecutorDispatchBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 改为{@link ManagedExecutorService}之前的{@code RunnableDecoratorInterceptor}, 仅作为benchmark的基线.
+     */
+    static class LegacyInterceptor implements InvocationHandler {
+
+        private static final Set<String> NEED_PROXY_METHODS = new HashSet<>(Arrays.asList(
+            "execute",
+            "submit",
+            "schedule",
+            "scheduleAtFixedRate",
+            "scheduleWithFixedDelay"
+        ));
+
+        private final String group;
+
+        private final ExecutorService target;
+
+        LegacyInterceptor(String group, ExecutorService target) {
+            this.group = group;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (NEED_PROXY_METHODS.contains(method.getName())) {
+                Object rpcContext = EagleEye.getRpcContext();
+                Object firstArg = args[0];
+                FlightRecorder recorder = ExecutorManager.recorders.computeIfAbsent(group,
+                    (k) -> new FlightRecorder());
+                AsyncContext context = new AsyncContext(Thread.currentThread(), group);
+                if (firstArg instanceof Runnable) {
+                    args[0] = new LegacyRunnableDecorator(context, recorder, (Runnable)firstArg, rpcContext);
+                } else if (firstArg instanceof Callable) {
+                    args[0] = new LegacyCallableDecorator(context, recorder, (Callable<?>)firstArg, rpcContext);
+                }
+            }
+
+            return method.invoke(target, args);
+        }
+    }
+
+    private static class LegacyRunnableDecorator implements Runnable {
+
+        private final AsyncContext context;
+
+        private final FlightRecorder recorder;
+
+        private final Runnable runnable;
+
+        private final Object rpcContext;
+
+        LegacyRunnableDecorator(AsyncContext context, FlightRecorder recorder, Runnable runnable,
+                                Object rpcContext) {
+            this.context = context;
+            this.recorder = recorder;
+            this.runnable = runnable;
+            this.rpcContext = rpcContext;
+        }
+
+        @Override
+        public void run() {
+            EagleEye.setRpcContext(rpcContext);
+            String traceId = EagleEye.getTraceId();
+            if (!Strings.isNullOrEmpty(traceId)) {
+                MDC.put(TRACE_ID, traceId);
+            }
+            try {
+                long start = System.currentTimeMillis();
+                if (context.getParent() != null) {
+                    runnable.run();
+                }
+                recorder.getTotalRt().add(System.currentTimeMillis() - start);
+                recorder.getSuccess().increment();
+            } catch (Throwable e) {
+                monitor.error("task: '{}' execute failed:", runnable.getClass().getName(), e);
+                recorder.getFailure().increment();
+                throw e;
+            } finally {
+                if (!Strings.isNullOrEmpty(traceId)) {
+                    MDC.remove(TRACE_ID);
+                }
+                EagleEye.clearRpcContext();
+            }
+        }
+    }
+
+    private static class LegacyCallableDecorator implements Callable<Object> {
+
+        private final AsyncContext context;
+
+        private final FlightRecorder recorder;
+
+        private final Callable<?> callable;
+
+        private final Object rpcContext;
+
+        LegacyCallableDecorator(AsyncContext context, FlightRecorder recorder, Callable<?> callable,
+                                Object rpcContext) {
+            this.context = context;
+            this.recorder = recorder;
+            this.callable = callable;
+            this.rpcContext = rpcContext;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            EagleEye.setRpcContext(rpcContext);
+            String traceId = EagleEye.getTraceId();
+            if (!Strings.isNullOrEmpty(traceId)) {
+                MDC.put(TRACE_ID, traceId);
+            }
+            try {
+                long start = System.currentTimeMillis();
+                Object result = context.getParent() != null ? callable.call() : null;
+                recorder.getTotalRt().add(System.currentTimeMillis() - start);
+                recorder.getSuccess().increment();
+                return result;
+            } catch (Throwable e) {
+                monitor.error("task: '{}' execute failed:", callable.getClass().getName(), e);
+                recorder.getFailure().increment();
+                throw e;
+            } finally {
+                if (!Strings.isNullOrEmpty(traceId)) {
+                    MDC.remove(TRACE_ID);
+                }
+                EagleEye.clearRpcContext();
+            }
+        }
+    }
+}
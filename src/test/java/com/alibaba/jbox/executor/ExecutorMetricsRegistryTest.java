@@ -0,0 +1,66 @@
+package com.alibaba.jbox.executor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/11 16:00:00.
+ */
+public class ExecutorMetricsRegistryTest {
+
+    private static final String GROUP = "metrics-registry-test";
+
+    @Test
+    public void testRenderAndRegister() throws Exception {
+        ExecutorService executor = ExecutorManager.newFixedThreadPool(GROUP, 1);
+        for (int i = 0; i < 3; ++i) {
+            executor.execute(() -> {
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ExecutorMetricsRegistry registry = ExecutorMetricsRegistry.INSTANCE;
+        registry.collect(1.0, 10);
+        try {
+            String text = registry.renderPrometheus();
+
+            Assert.assertTrue(text.contains("# TYPE jbox_executor_pool_size gauge\n"));
+            Assert.assertTrue(text.contains("# TYPE jbox_executor_tasks_total counter\n"));
+            Assert.assertTrue(text.contains("jbox_executor_tasks_total{group=\"" + GROUP + "\",result=\"success\"} 3\n"));
+
+            // period percentiles are plain gauges, the max is a gauge of its own
+            Assert.assertTrue(text.contains("# TYPE jbox_executor_wait_ms gauge\n"));
+            Assert.assertTrue(text.contains("jbox_executor_wait_ms{group=\"" + GROUP + "\",percentile=\"p50\"} "));
+            Assert.assertTrue(text.contains("jbox_executor_exec_ms{group=\"" + GROUP + "\",percentile=\"p999\"} "));
+            Assert.assertTrue(text.contains("# TYPE jbox_executor_exec_ms_max gauge\n"));
+            Assert.assertTrue(text.contains("jbox_executor_exec_ms_max{group=\"" + GROUP + "\"} "));
+            Assert.assertFalse(text.contains("quantile="));
+
+            for (String line : text.split("\n")) {
+                Assert.assertTrue(line, line.startsWith("# HELP ") || line.startsWith("# TYPE ")
+                    || line.matches("jbox_executor_\\w+\\{group=\"[^\"]*\"(,\\w+=\"[^\"]*\")?} \\S+"));
+            }
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(String.format(ExecutorMetricsRegistry.OBJECT_NAME_PATTERN,
+                ObjectName.quote(GROUP)));
+            Assert.assertEquals("com.alibaba.jbox.executor", objectName.getDomain());
+            Assert.assertEquals("ExecutorGroup", objectName.getKeyProperty("type"));
+            Assert.assertTrue(server.isRegistered(objectName));
+            Assert.assertEquals(GROUP, server.getAttribute(objectName, "Group"));
+            Assert.assertEquals(3L, server.getAttribute(objectName, "Success"));
+        } finally {
+            registry.unregisterMBeans();
+        }
+    }
+}
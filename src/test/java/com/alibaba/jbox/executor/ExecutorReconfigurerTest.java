@@ -0,0 +1,150 @@
+package com.alibaba.jbox.executor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.policy.BulkheadPolicy;
+import com.alibaba.jbox.executor.policy.DiscardPolicy;
+import com.alibaba.jbox.executor.queue.ResizableBlockingQueue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/28 15:00:00.
+ */
+public class ExecutorReconfigurerTest {
+
+    @Test
+    public void testReconfigure() {
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newFixedMinMaxThreadPool(
+            "reconfigure-test", 2, 4, 10, RunnableQueueType.RESIZABLE);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)executor.getTarget();
+
+        Map<String, String> config = new HashMap<>();
+        config.put("jbox.executor.reconfigure-test.corePoolSize", "6");
+        config.put("jbox.executor.reconfigure-test.maxPoolSize", "8");
+        config.put("jbox.executor.reconfigure-test.keepAliveSeconds", "30");
+        config.put("jbox.executor.reconfigure-test.queueCapacity", "20");
+        config.put("jbox.executor.reconfigure-test.rejectPolicy", "discard");
+        config.put("unrelated.key", "1");
+        ExecutorReconfigurer.reconfigure(config);
+
+        Assert.assertEquals(6, pool.getCorePoolSize());
+        Assert.assertEquals(8, pool.getMaximumPoolSize());
+        Assert.assertEquals(30, pool.getKeepAliveTime(TimeUnit.SECONDS));
+        Assert.assertEquals(20, ((ResizableBlockingQueue<Runnable>)pool.getQueue()).capacity());
+        Assert.assertTrue(pool.getRejectedExecutionHandler() instanceof DiscardPolicy);
+
+        // shrink below the current core size
+        config.clear();
+        config.put("jbox.executor.reconfigure-test.corePoolSize", "1");
+        config.put("jbox.executor.reconfigure-test.maxPoolSize", "2");
+        ExecutorReconfigurer.reconfigure(config);
+        Assert.assertEquals(1, pool.getCorePoolSize());
+        Assert.assertEquals(2, pool.getMaximumPoolSize());
+
+        // core > max is rejected as a whole
+        config.put("jbox.executor.reconfigure-test.corePoolSize", "3");
+        ExecutorReconfigurer.reconfigure(config);
+        Assert.assertEquals(1, pool.getCorePoolSize());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAdaptiveMaxCapsController() throws Exception {
+        AdaptivePoolPolicy policy = new AdaptivePoolPolicy(1, 8);
+        policy.setGrowAfterPeriods(1);
+        policy.setMaxCpuLoad(1.1);
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newAdaptiveThreadPool(
+            "reconfigure-adaptive", policy, 2);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)executor.getTarget();
+
+        Map<String, String> config = new HashMap<>();
+        config.put("jbox.executor.reconfigure-adaptive.maxPoolSize", "2");
+        ExecutorReconfigurer.reconfigure(config);
+        Assert.assertEquals(2, pool.getMaximumPoolSize());
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // one running and a full RunnableQueue
+            for (int i = 0; i < 3; ++i) {
+                executor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                });
+            }
+
+            for (int i = 0; i < 5; ++i) {
+                AdaptivePoolController.INSTANCE.invoke();
+            }
+            Assert.assertEquals(2, pool.getCorePoolSize());
+        } finally {
+            release.countDown();
+            AdaptivePoolController.unregister("reconfigure-adaptive");
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectPolicyReplacedOnlyWhenChanged() {
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newFixedMinMaxThreadPool(
+            "reconfigure-policy", 1, 2, 10);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)executor.getTarget();
+
+        Map<String, String> config = new HashMap<>();
+        config.put("jbox.executor.reconfigure-policy.rejectPolicy", "bulkhead:100");
+        ExecutorReconfigurer.reconfigure(config);
+        RejectedExecutionHandler bulkhead = pool.getRejectedExecutionHandler();
+        Assert.assertTrue(bulkhead instanceof BulkheadPolicy);
+
+        // the same full config pushed again keeps the instance
+        ExecutorReconfigurer.reconfigure(config);
+        Assert.assertSame(bulkhead, pool.getRejectedExecutionHandler());
+
+        config.put("jbox.executor.reconfigure-policy.rejectPolicy", "bulkhead:200");
+        ExecutorReconfigurer.reconfigure(config);
+        Assert.assertNotSame(bulkhead, pool.getRejectedExecutionHandler());
+        Assert.assertEquals(200, ((BulkheadPolicy)pool.getRejectedExecutionHandler()).getTimeoutMillis());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testApplyOnCreated() {
+        Map<String, String> config = new HashMap<>();
+        config.put("jbox.executor.reconfigure-later.maxPoolSize", "5");
+        ExecutorReconfigurer.reconfigure(config);
+
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newFixedMinMaxThreadPool(
+            "reconfigure-later", 1, 2, 10);
+        Assert.assertEquals(5, ((ThreadPoolExecutor)executor.getTarget()).getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResizableQueue() throws Exception {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(2);
+        Assert.assertTrue(queue.offer(1));
+        Assert.assertTrue(queue.offer(2));
+        Assert.assertFalse(queue.offer(3));
+
+        queue.setCapacity(1);
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertEquals(Integer.valueOf(1), queue.poll());
+        // still at the new capacity
+        Assert.assertFalse(queue.offer(3));
+
+        queue.setCapacity(3);
+        Assert.assertTrue(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(queue.remove(3));
+        Assert.assertEquals(1, queue.size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 对比AtomicLong(旧实现)与LongAdder(当前{@link FlightRecorder})在1~64个线程并发更新
+ * success/failure/totalRt时的吞吐.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/06 10:45:00.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightRecorderBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    @State(Scope.Benchmark)
+    public static class AtomicRecorder {
+
+        final AtomicLong success = new AtomicLong(0L);
+
+        final AtomicLong failure = new AtomicLong(0L);
+
+        final AtomicLong totalRt = new AtomicLong(0L);
+    }
+
+    @State(Scope.Benchmark)
+    public static class AdderRecorder {
+
+        final FlightRecorder recorder = new FlightRecorder();
+    }
+
+    /**
+     * 模拟每64个task中有1个失败
+     */
+    @State(Scope.Thread)
+    public static class TaskCounter {
+
+        long count;
+
+        boolean nextFailed() {
+            return (++count & 63) == 0;
+        }
+    }
+
+    @Benchmark
+    public void atomicLong(AtomicRecorder recorder, TaskCounter counter) {
+        if (counter.nextFailed()) {
+            recorder.failure.incrementAndGet();
+        } else {
+            recorder.totalRt.addAndGet(1L);
+            recorder.success.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public void longAdder(AdderRecorder adder, TaskCounter counter) {
+        if (counter.nextFailed()) {
+            adder.recorder.getFailure().increment();
+        } else {
+            adder.recorder.getTotalRt().add(1L);
+            adder.recorder.getSuccess().increment();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                .include(FlightRecorderBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.alibaba.jbox.executor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/22 14:00:00.
+ */
+public class KeyedSerialExecutorTest {
+
+    @Test
+    public void testFifoPerKey() throws Exception {
+        KeyedSerialExecutor executor = ExecutorManager.newKeyedSerialExecutor("keyed-fifo-test", 8, 10_000);
+
+        int keys = 32, perKey = 500;
+        Map<Integer, List<Integer>> executed = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(keys * perKey);
+        for (int i = 0; i < perKey; ++i) {
+            for (int key = 0; key < keys; ++key) {
+                int seq = i;
+                int k = key;
+                executor.execute(key, () -> {
+                    executed.computeIfAbsent(k, (x) -> new CopyOnWriteArrayList<>()).add(seq);
+                    latch.countDown();
+                });
+            }
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> sequence : executed.values()) {
+            for (int i = 0; i < perKey; ++i) {
+                Assert.assertEquals(i, (int)sequence.get(i));
+            }
+        }
+
+        Future<String> future = executor.submit("k", () -> "done");
+        Assert.assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        waitUntilIdle(executor);
+        Assert.assertEquals(0, executor.getActiveKeys());
+        Assert.assertEquals(0, executor.getBacklog());
+    }
+
+    @Test
+    public void testBoundedPerKeyAndHotKeys() throws InterruptedException {
+        KeyedSerialExecutor executor = ExecutorManager.newKeyedSerialExecutor("keyed-bound-test", 2, 3);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute("hot", () -> await(blocker));
+        // wait until the first task is running
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        for (int i = 0; i < 3; ++i) {
+            executor.execute("hot", () -> {
+            });
+        }
+        executor.execute("cold", () -> await(blocker));
+
+        try {
+            executor.execute("hot", () -> {
+            });
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+        }
+
+        List<Map.Entry<String, Integer>> hotKeys = executor.hotKeys(1, 100);
+        Assert.assertEquals("hot", hotKeys.get(0).getKey());
+        Assert.assertEquals(3, (int)hotKeys.get(0).getValue());
+
+        blocker.countDown();
+        waitUntilIdle(executor);
+        Assert.assertEquals(0, executor.getBacklog());
+    }
+
+    @Test
+    public void testRejectedBySchedulingPool() {
+        KeyedSerialExecutor executor = ExecutorManager.newKeyedSerialExecutor("keyed-shutdown-test", 1, 10);
+        ExecutorManager.executors.get("keyed-shutdown-test").shutdown();
+
+        try {
+            executor.submit("k", () -> "never");
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+        }
+        Assert.assertEquals(0, executor.getActiveKeys());
+        Assert.assertEquals(0, executor.getBacklog());
+
+        // keyed rejections are not mixed into the bulkhead rejected count
+        ExecutorManager.FlightRecorder recorder = ExecutorManager.recorders.get("keyed-shutdown-test");
+        Assert.assertTrue(recorder == null || recorder.getRejected().sum() == 0);
+    }
+
+    private static void waitUntilIdle(KeyedSerialExecutor executor) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getActiveKeys() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.alibaba.jbox.executor;
+
+import com.alibaba.jbox.executor.LatencyHistogram.Snapshot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/03 15:20:00.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueOf(index);
+            Assert.assertTrue(value <= highest);
+            // relative error less than 1/16
+            Assert.assertTrue(highest - value <= Math.max(0, value / 16));
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i);
+        }
+
+        Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1000, snapshot.getTotalCount());
+        Assert.assertEquals(1000, snapshot.getMax());
+        Assert.assertEquals(500, snapshot.valueAtPercentile(50), 500 / 16);
+        Assert.assertEquals(990, snapshot.valueAtPercentile(99), 990 / 16);
+        Assert.assertEquals(1000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    public void testPeriodDelta() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        Snapshot before = histogram.snapshot();
+
+        histogram.record(3);
+        histogram.record(3);
+        Snapshot period = histogram.snapshot().minus(before);
+
+        Assert.assertEquals(2, period.getTotalCount());
+        Assert.assertEquals(3, period.getMax());
+        Assert.assertEquals(3, period.valueAtPercentile(99.9));
+    }
+}
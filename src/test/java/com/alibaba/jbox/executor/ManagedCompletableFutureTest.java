@@ -0,0 +1,93 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/24 15:00:00.
+ */
+public class ManagedCompletableFutureTest {
+
+    @Test
+    public void testStagesRunOnGroup() throws Exception {
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newFixedThreadPool(
+            "completable-test", 2);
+
+        CompletableFuture<String> future = executor.supplyAsync(() -> Thread.currentThread().getName())
+            .thenApplyAsync(name -> name + "," + Thread.currentThread().getName())
+            .thenCompose(names -> CompletableFuture.completedFuture(names))
+            .thenApplyAsync(names -> names + "," + Thread.currentThread().getName());
+
+        Assert.assertTrue(future instanceof ManagedCompletableFuture);
+        for (String name : future.get(5, TimeUnit.SECONDS).split(",")) {
+            Assert.assertTrue(name, name.startsWith("completable-test-"));
+        }
+
+        CompletableFuture<Void> failed = executor.runAsync(() -> {
+            throw new IllegalStateException("expected");
+        });
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testAllOfWithTimeout() throws Exception {
+        ManagedExecutorService executor = (ManagedExecutorService)ExecutorManager.newFixedThreadPool(
+            "completable-fan-test", 1);
+
+        List<Integer> results = executor.allOfWithTimeout(Arrays.asList(
+            executor.supplyAsync(() -> 1),
+            executor.supplyAsync(() -> 2),
+            executor.supplyAsync(() -> 3)), 5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), results);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicBoolean stragglerRan = new AtomicBoolean(false);
+        CompletableFuture<Integer> slow = executor.supplyAsync(() -> {
+            await(blocker);
+            return 1;
+        });
+        // queued behind the slow one on a single thread
+        CompletableFuture<Integer> straggler = executor.supplyAsync(() -> {
+            stragglerRan.set(true);
+            return 2;
+        });
+
+        try {
+            executor.allOfWithTimeout(Arrays.asList(slow, straggler), 50, TimeUnit.MILLISECONDS)
+                .get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue(straggler.isCancelled());
+
+        blocker.countDown();
+        // the cancelled straggler is skipped once dequeued
+        executor.supplyAsync(() -> 0).get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(stragglerRan.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+}
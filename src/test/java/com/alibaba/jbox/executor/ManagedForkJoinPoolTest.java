@@ -0,0 +1,118 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/12 10:00:00.
+ */
+public class ManagedForkJoinPoolTest {
+
+    private static class SumTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+
+        private final long to;
+
+        private final Set<String> threads;
+
+        SumTask(long from, long to, Set<String> threads) {
+            this.from = from;
+            this.to = to;
+            this.threads = threads;
+        }
+
+        @Override
+        protected Long compute() {
+            threads.add(Thread.currentThread().getName());
+            if (to - from <= 100) {
+                long sum = 0;
+                for (long i = from; i < to; ++i) {
+                    sum += i;
+                }
+                return sum;
+            }
+
+            long middle = (from + to) >>> 1;
+            SumTask left = new SumTask(from, middle, threads);
+            left.fork();
+            return new SumTask(middle, to, threads).compute() + left.join();
+        }
+    }
+
+    @Test
+    public void testSubmitReturnsWrapper() throws Exception {
+        ManagedForkJoinPool pool = newPool("fork-join-submit");
+        SumTask task = new SumTask(0, 1000, ConcurrentHashMap.newKeySet());
+
+        ForkJoinTask<Long> submitted = pool.submit(task);
+        Assert.assertNotSame(task, submitted);
+        Assert.assertEquals(499500L, submitted.get(5, TimeUnit.SECONDS).longValue());
+        Assert.assertTrue(task.isDone());
+        Assert.assertEquals(499500L, task.join().longValue());
+
+        pool.shutdown();
+    }
+
+    @Test
+    public void testRecorderCountsTopLevelTask() throws Exception {
+        ManagedForkJoinPool pool = newPool("fork-join-recorder");
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        Assert.assertEquals(49995000L, pool.invoke(new SumTask(0, 10000, threads)).longValue());
+        for (String thread : threads) {
+            Assert.assertTrue(thread, thread.startsWith("fork-join-recorder-"));
+        }
+
+        // forked sub tasks are run by the workers directly, only the top level task is counted
+        FlightRecorder recorder = ExecutorManager.recorders.get("fork-join-recorder");
+        Assert.assertEquals(1, recorder.getSuccess().sum());
+        Assert.assertEquals(0, recorder.getFailure().sum());
+
+        try {
+            pool.invoke(new RecursiveTask<Long>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected Long compute() {
+                    throw new IllegalStateException("expected");
+                }
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(1, recorder.getFailure().sum());
+
+        pool.shutdown();
+    }
+
+    @Test
+    public void testUncaughtExceptionHandler() {
+        ManagedForkJoinPool pool = newPool("fork-join-handler");
+        Assert.assertSame(NamedThreadFactory.exceptionHandler,
+            pool.getForkJoinTarget().getUncaughtExceptionHandler());
+        Assert.assertFalse(pool.getForkJoinTarget().getAsyncMode());
+        Assert.assertEquals(2, pool.getParallelism());
+        pool.shutdown();
+    }
+
+    private static ManagedForkJoinPool newPool(String group) {
+        ExecutorService executor = ExecutorManager.newWorkStealingPool(group, 2);
+        Assert.assertTrue(executor instanceof ManagedForkJoinPool);
+        return (ManagedForkJoinPool)executor;
+    }
+}
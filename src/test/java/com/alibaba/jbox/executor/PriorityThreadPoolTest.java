@@ -0,0 +1,76 @@
+package com.alibaba.jbox.executor;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/15 16:30:00.
+ */
+public class PriorityThreadPoolTest {
+
+    @Test
+    public void testPriorityAndDeadline() throws Exception {
+        String group = "priority-test";
+        ExecutorService executor = ExecutorManager.newPriorityThreadPool(group, 1, 1, 16);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+                // exit
+            }
+        });
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+        executor.execute(task(executed, "low", PriorityTask.MIN_PRIORITY, PriorityTask.NO_DEADLINE));
+        executor.execute(task(executed, "norm", PriorityTask.NORM_PRIORITY, PriorityTask.NO_DEADLINE));
+        executor.execute(task(executed, "norm-deadline", PriorityTask.NORM_PRIORITY,
+            System.currentTimeMillis() + 60_000));
+        executor.execute(task(executed, "high", PriorityTask.MAX_PRIORITY, PriorityTask.NO_DEADLINE));
+        Future<?> expired = executor.submit(task(executed, "expired", PriorityTask.MAX_PRIORITY,
+            System.currentTimeMillis() - 1));
+
+        blocker.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertArrayEquals(new String[] {"high", "norm-deadline", "norm", "low"}, executed.toArray());
+        try {
+            expired.get();
+            Assert.fail();
+        } catch (CancellationException ignored) {
+            // expected
+        }
+        Assert.assertEquals(1, ExecutorManager.recorders.get(group).getExpired().sum());
+    }
+
+    private static PriorityRunnable task(List<String> executed, String name, int priority, long deadline) {
+        return new PriorityRunnable() {
+            @Override
+            public void execute() {
+                executed.add(name);
+            }
+
+            @Override
+            public int priority() {
+                return priority;
+            }
+
+            @Override
+            public long deadline() {
+                return deadline;
+            }
+        };
+    }
+}
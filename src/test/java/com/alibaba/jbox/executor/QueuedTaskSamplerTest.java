@@ -0,0 +1,104 @@
+package com.alibaba.jbox.executor;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.alibaba.jbox.executor.QueuedTaskSampler.Sample;
+import com.alibaba.jbox.executor.queue.BoundedPriorityBlockingQueue;
+import com.alibaba.jbox.executor.queue.MpmcArrayBlockingQueue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/16 15:00:00.
+ */
+public class QueuedTaskSamplerTest {
+
+    @Test
+    public void testSample() {
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1024);
+        RunnableDecoratorInterceptor interceptor = new RunnableDecoratorInterceptor("sampler-test");
+        for (int i = 0; i < 600; ++i) {
+            queue.offer(interceptor.decorate(new TaskA()));
+        }
+        for (int i = 0; i < 300; ++i) {
+            queue.offer(new ManagedFutureTask<>(interceptor.decorate(() -> 1)));
+        }
+
+        Sample sample = QueuedTaskSampler.sample(queue, 700);
+        Assert.assertEquals(900, sample.getQueued());
+        Assert.assertEquals(700, sample.getSampled());
+        Assert.assertTrue(sample.getOldestNanos() > 0);
+
+        List<Map.Entry<String, Integer>> top = sample.top(5);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(TaskA.class.getName(), top.get(0).getKey());
+        Assert.assertEquals(600, top.get(0).getValue().intValue());
+        Assert.assertEquals(100, top.get(1).getValue().intValue());
+    }
+
+    @Test
+    public void testTypesBounded() {
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1024);
+        for (int i = 0; i < 1000; ++i) {
+            String info = "task-" + i;
+            queue.offer(new AsyncRunnable() {
+                @Override
+                public void execute() {
+                }
+
+                @Override
+                public String taskInfo() {
+                    return info;
+                }
+            });
+        }
+
+        Sample sample = QueuedTaskSampler.sample(queue, 1000);
+        Map.Entry<String, Integer> others = sample.top(1).get(0);
+        Assert.assertEquals(QueuedTaskSampler.OTHERS, others.getKey());
+        Assert.assertEquals(1000 - 64, others.getValue().intValue());
+    }
+
+    @Test
+    public void testSampleWithoutCopyingQueue() {
+        // iterator() of these queues copies the whole backlog, the sampler must not touch it
+        BlockingQueue<Runnable> lockFree = new MpmcArrayBlockingQueue<Runnable>(1024) {
+            @Override
+            public Iterator<Runnable> iterator() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        BlockingQueue<Runnable> priority = new BoundedPriorityBlockingQueue<Runnable>(1024,
+            (r1, r2) -> 0) {
+            @Override
+            public Iterator<Runnable> iterator() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        for (BlockingQueue<Runnable> queue : Arrays.asList(lockFree, priority)) {
+            for (int i = 0; i < 900; ++i) {
+                queue.offer(new TaskA());
+            }
+            Sample sample = QueuedTaskSampler.sample(queue, 100);
+            Assert.assertEquals(900, sample.getQueued());
+            Assert.assertEquals(100, sample.getSampled());
+            Assert.assertEquals(100, sample.top(1).get(0).getValue().intValue());
+        }
+    }
+
+    private static class TaskA implements AsyncRunnable {
+
+        @Override
+        public void execute() {
+        }
+    }
+}
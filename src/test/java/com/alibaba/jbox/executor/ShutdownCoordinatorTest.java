@@ -0,0 +1,153 @@
+package com.alibaba.jbox.executor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/27 14:00:00.
+ */
+public class ShutdownCoordinatorTest {
+
+    private static final AtomicInteger REPLAYED = new AtomicInteger();
+
+    private static final AtomicBoolean GADGET_READ = new AtomicBoolean(false);
+
+    @Test
+    public void testDrainInOrder() {
+        ExecutorService first = ExecutorManager.newFixedThreadPool("shutdown-first", 1);
+        ExecutorService second = ExecutorManager.newFixedThreadPool("shutdown-second", 1);
+        ExecutorManager.setShutdownOrder("shutdown-first", -1);
+        ExecutorManager.setShutdownOrder("shutdown-second", 1);
+
+        for (int i = 0; i < 10; ++i) {
+            first.execute(() -> sleep(5));
+            second.execute(() -> sleep(5));
+        }
+
+        Map<String, ExecutorService> executors = new LinkedHashMap<>();
+        executors.put("shutdown-second", second);
+        executors.put("shutdown-first", first);
+        List<DrainReport> reports = new ShutdownCoordinator(5000, null).shutdown(executors);
+
+        Assert.assertEquals(2, reports.size());
+        Assert.assertEquals("shutdown-first", reports.get(0).getGroup());
+        Assert.assertEquals("shutdown-second", reports.get(1).getGroup());
+        for (DrainReport report : reports) {
+            Assert.assertTrue(report.isTerminated());
+            Assert.assertEquals(10, report.getCompleted());
+            Assert.assertEquals(0, report.getDropped());
+        }
+    }
+
+    @Test
+    public void testDeadlineDropAndPersist() throws Exception {
+        ExecutorService executor = ExecutorManager.newFixedThreadPool("shutdown-deadline", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new AsyncRunnable() {
+            @Override
+            public void execute() {
+                started.countDown();
+                sleep(60_000);
+            }
+
+            @Override
+            public String taskInfo() {
+                return "blocker";
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        Future<?> dropped = executor.submit(() -> sleep(1));
+        executor.execute(new ReplayTask());
+        executor.execute(new ReplayTask());
+
+        File file = File.createTempFile("undrained", ".bin");
+        Map<String, ExecutorService> executors = new LinkedHashMap<>();
+        executors.put("shutdown-deadline", executor);
+        DrainReport report = new ShutdownCoordinator(50, file.getPath()).shutdown(executors).get(0);
+
+        Assert.assertFalse(report.isTerminated());
+        Assert.assertEquals(1, report.getRunning());
+        Assert.assertEquals("blocker", report.getRunningTasks().get(0));
+        Assert.assertEquals(1, report.getDropped());
+        Assert.assertEquals(2, report.getPersisted());
+        Assert.assertTrue(dropped.isCancelled());
+
+        ExecutorService replay = ExecutorManager.newFixedThreadPool("shutdown-deadline-replay", 1);
+        ExecutorManager.executors.put("shutdown-deadline", replay);
+        try {
+            Assert.assertEquals(2, ShutdownCoordinator.replay(file.getPath()));
+            Assert.assertFalse(file.exists());
+            replay.shutdown();
+            Assert.assertTrue(replay.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, REPLAYED.get());
+        } finally {
+            ExecutorManager.executors.remove("shutdown-deadline");
+        }
+    }
+
+    @Test
+    public void testReplayRejectsUnknownClass() throws Exception {
+        File file = File.createTempFile("undrained", ".bin");
+        try (ObjectOutputStream os = new ObjectOutputStream(new FileOutputStream(file))) {
+            os.writeObject(new ArrayList<>(Collections.singletonList(new Gadget())));
+        }
+
+        Assert.assertEquals(0, ShutdownCoordinator.replay(file.getPath()));
+        // rejected before an instance is created
+        Assert.assertFalse(GADGET_READ.get());
+        Assert.assertTrue(file.exists());
+        Assert.assertTrue(file.delete());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+
+    static final class ReplayTask implements AsyncRunnable, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void execute() {
+            REPLAYED.incrementAndGet();
+        }
+    }
+
+    /**
+     * not a task, must never be deserialized by replay()
+     */
+    static final class Gadget implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            GADGET_READ.set(true);
+        }
+    }
+}
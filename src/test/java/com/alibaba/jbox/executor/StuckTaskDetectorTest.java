@@ -0,0 +1,114 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/30 14:00:00.
+ */
+public class StuckTaskDetectorTest {
+
+    @Test
+    public void testReportOnceThenInterrupt() throws Exception {
+        ExecutorService reportOnly = ExecutorManager.newFixedThreadPool("stuck-report", 1);
+        ExecutorService interrupting = ExecutorManager.newFixedThreadPool("stuck-interrupt", 1);
+        ExecutorManager.setStuckThreshold("stuck-report", 20, false);
+        ExecutorManager.setStuckThreshold("stuck-interrupt", 20, true);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        reportOnly.execute(() -> await(release));
+        interrupting.execute(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        Thread.sleep(100);
+
+        StuckTaskDetector.INSTANCE.invoke();
+        StuckTaskDetector.INSTANCE.invoke();
+
+        FlightRecorder recorder = ExecutorManager.recorders.get("stuck-report");
+        Assert.assertEquals(1, StuckTaskDetector.stuckCount("stuck-report"));
+        // reported once per execution
+        Assert.assertEquals(1, recorder.getStuck().sum());
+        Assert.assertEquals(0, recorder.getInterrupted().sum());
+
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, ExecutorManager.recorders.get("stuck-interrupt").getInterrupted().sum());
+
+        release.countDown();
+        reportOnly.shutdown();
+        interrupting.shutdown();
+        Assert.assertTrue(reportOnly.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue(interrupting.awaitTermination(5, TimeUnit.SECONDS));
+
+        StuckTaskDetector.INSTANCE.invoke();
+        Assert.assertEquals(0, StuckTaskDetector.stuckCount("stuck-report"));
+    }
+
+    @Test
+    public void testNoInterruptAfterTaskFinished() throws Exception {
+        ExecutorService executor = ExecutorManager.newFixedThreadPool("stuck-finished", 1);
+        FlightRecorder recorder = ExecutorManager.recorders.get("stuck-finished");
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        Thread.sleep(50);
+        Object[] stale = running(recorder);
+
+        // the same worker picks up the next task, the stale snapshot must not interrupt it
+        release.countDown();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        Thread.sleep(50);
+        Assert.assertFalse(recorder.interruptIfRunning((Thread)stale[0], stale[1], (Long)stale[2]));
+        Assert.assertFalse(interrupted.await(100, TimeUnit.MILLISECONDS));
+
+        Object[] current = running(recorder);
+        Assert.assertTrue(recorder.interruptIfRunning((Thread)current[0], current[1], (Long)current[2]));
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        // the interrupt is not carried over to the next task
+        Assert.assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * @return {thread, task, startNanos}
+     */
+    private static Object[] running(FlightRecorder recorder) {
+        Object[] running = new Object[3];
+        recorder.forEachRunning((thread, task, startNanos) -> {
+            running[0] = thread;
+            running[1] = task;
+            running[2] = startNanos;
+        });
+        Assert.assertNotNull(running[0]);
+        return running;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager.FlightRecorder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/29 14:00:00.
+ */
+public class ThreadResourceSamplerTest {
+
+    private static volatile Object sink;
+
+    @Test
+    public void testSampleEveryTask() throws Exception {
+        ExecutorManager.setResourceSampleInterval(1);
+        try {
+            ExecutorService executor = ExecutorManager.newFixedThreadPool("resource-test", 1);
+            for (int i = 0; i < 10; ++i) {
+                executor.execute(ThreadResourceSamplerTest::burn);
+            }
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            FlightRecorder recorder = ExecutorManager.recorders.get("resource-test");
+            Assert.assertEquals(10, recorder.getResourceSampled().sum());
+            Assert.assertTrue(recorder.getCpuTime().sum() > 0);
+            if (ThreadResourceSampler.currentThreadAllocatedBytes() >= 0) {
+                // each burn() allocates at least 1000 * 16 bytes
+                Assert.assertTrue(recorder.getAllocated().sum() >= 10 * 16_000);
+            }
+        } finally {
+            ExecutorManager.setResourceSampleInterval(ThreadResourceSampler.DEFAULT_INTERVAL);
+        }
+    }
+
+    @Test
+    public void testSampleThreadPerTask() throws Exception {
+        ExecutorManager.setResourceSampleInterval(4);
+        try {
+            // every task runs on a fresh thread, a per-thread counter would never sample
+            ExecutorService executor = ExecutorManager.newVirtualThreadExecutor("resource-virtual-test");
+            for (int i = 0; i < 2000; ++i) {
+                executor.execute(ThreadResourceSamplerTest::burn);
+            }
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+            long sampled = ExecutorManager.recorders.get("resource-virtual-test").getResourceSampled().sum();
+            Assert.assertTrue(String.valueOf(sampled), sampled > 300 && sampled < 700);
+        } finally {
+            ExecutorManager.setResourceSampleInterval(ThreadResourceSampler.DEFAULT_INTERVAL);
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        ExecutorManager.setResourceSampleInterval(0);
+        try {
+            FlightRecorder recorder = new FlightRecorder();
+            for (int i = 0; i < 100; ++i) {
+                Object outer = recorder.recordStart("task", System.nanoTime());
+                recorder.recordEnd(outer);
+            }
+            Assert.assertEquals(0, recorder.getResourceSampled().sum());
+        } finally {
+            ExecutorManager.setResourceSampleInterval(ThreadResourceSampler.DEFAULT_INTERVAL);
+        }
+    }
+
+    private static void burn() {
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            objects.add(new Object());
+        }
+        sink = objects;
+    }
+}
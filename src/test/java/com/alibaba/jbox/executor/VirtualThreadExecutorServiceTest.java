@@ -0,0 +1,97 @@
+package com.alibaba.jbox.executor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/11 14:00:00.
+ */
+public class VirtualThreadExecutorServiceTest {
+
+    private static final int TASKS = 20;
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        // virtual threads when supported by current jvm, platform threads otherwise
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService("virtual-limit", 2);
+        assertConcurrencyLimit(executor, 2);
+    }
+
+    @Test
+    public void testPlatformFallbackConcurrencyLimit() throws Exception {
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService("platform-limit", 2, false);
+        Assert.assertFalse(executor.isVirtual());
+        assertConcurrencyLimit(executor, 2);
+    }
+
+    @Test
+    public void testPlatformFallbackThreadCount() throws Exception {
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService("platform-threads", 2, false);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < TASKS; ++i) {
+            executor.execute(() -> await(release));
+        }
+        Thread.sleep(100);
+
+        // queued tasks wait in the queue, not each in its own thread
+        Assert.assertEquals(2, countThreads("platform-threads-"));
+        Assert.assertEquals(TASKS, executor.getInFlightCount());
+        Assert.assertEquals(2, executor.getRunningCount());
+
+        release.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getInFlightCount());
+    }
+
+    private static void assertConcurrencyLimit(VirtualThreadExecutorService executor, int limit) throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; ++i) {
+            executor.execute(() -> {
+                int current = concurrent.incrementAndGet();
+                maxConcurrent.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                    // exit
+                } finally {
+                    concurrent.decrementAndGet();
+                    finished.countDown();
+                }
+            });
+        }
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(String.valueOf(maxConcurrent.get()), maxConcurrent.get() <= limit);
+        Assert.assertEquals(limit, executor.getMaxConcurrency());
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static int countThreads(String prefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(prefix)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+}
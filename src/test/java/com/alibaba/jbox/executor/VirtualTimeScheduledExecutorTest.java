@@ -0,0 +1,125 @@
+package com.alibaba.jbox.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.jbox.scheduler.ScheduleTask;
+import com.alibaba.jbox.scheduler.TaskScheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/04 14:00:00.
+ */
+public class VirtualTimeScheduledExecutorTest {
+
+    @Test
+    public void testReplayHours() {
+        VirtualTimeScheduledExecutorService executor = new VirtualTimeScheduledExecutorService();
+        AtomicInteger rate = new AtomicInteger();
+        AtomicInteger delay = new AtomicInteger();
+        List<Long> delayTimes = new ArrayList<>();
+
+        executor.scheduleAtFixedRate(rate::incrementAndGet, 0, 1, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(() -> {
+            delay.incrementAndGet();
+            delayTimes.add(executor.now(TimeUnit.SECONDS));
+        }, 10, 60, TimeUnit.SECONDS);
+        ScheduledFuture<Integer> once = executor.schedule(() -> 42, 2, TimeUnit.HOURS);
+
+        long start = System.nanoTime();
+        executor.advance(3, TimeUnit.HOURS);
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        Assert.assertEquals(3 * 3600 + 1, rate.get());
+        Assert.assertEquals(180, delay.get());
+        Assert.assertEquals(Long.valueOf(10), delayTimes.get(0));
+        Assert.assertEquals(Long.valueOf(70), delayTimes.get(1));
+        Assert.assertTrue(once.isDone());
+        Assert.assertEquals(3 * 3600, executor.now(TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getPendingCount());
+    }
+
+    @Test
+    public void testOrderCancelAndFailure() throws Exception {
+        VirtualTimeScheduledExecutorService executor = new VirtualTimeScheduledExecutorService();
+        List<String> trace = new ArrayList<>();
+
+        executor.schedule(() -> trace.add("b"), 20, TimeUnit.MILLISECONDS);
+        executor.schedule(() -> trace.add("a"), 10, TimeUnit.MILLISECONDS);
+        executor.schedule(() -> trace.add("c"), 20, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> cancelled = executor.schedule(() -> trace.add("x"), 15, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(cancelled.cancel(false));
+
+        AtomicInteger failing = new AtomicInteger();
+        ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(() -> {
+            if (failing.incrementAndGet() == 2) {
+                throw new IllegalStateException();
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(1, executor.runDue());
+        executor.advance(100, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals("[a, b, c]", trace.toString());
+        Assert.assertEquals(2, failing.get());
+        Assert.assertTrue(periodic.isDone());
+        Assert.assertEquals(0, executor.getPendingCount());
+    }
+
+    @Test
+    public void testSyncInvokeMode() {
+        ExecutorManager.setSyncInvoke("virtual-time-test", true);
+        try {
+            ScheduledExecutorService executor = ExecutorManager.newScheduledThreadPool("virtual-time-test", 1);
+            Assert.assertTrue(executor instanceof VirtualTimeScheduledExecutorService);
+
+            AtomicInteger counter = new AtomicInteger();
+            executor.scheduleAtFixedRate(counter::incrementAndGet, 1, 1, TimeUnit.MINUTES);
+            ((VirtualTimeScheduledExecutorService)executor).advance(1, TimeUnit.DAYS);
+            Assert.assertEquals(24 * 60, counter.get());
+        } finally {
+            ExecutorManager.setSyncInvoke("virtual-time-test", false);
+        }
+    }
+
+    @Test
+    public void testSyncAllKeepsRealClock() throws Exception {
+        System.setProperty("sync-all", "true");
+        try {
+            ScheduledExecutorService executor = ExecutorManager.newScheduledThreadPool("sync-all-scheduled-test", 1);
+            Assert.assertFalse(executor instanceof VirtualTimeScheduledExecutorService);
+
+            CountDownLatch scheduled = new CountDownLatch(1);
+            executor.schedule(scheduled::countDown, 10, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(scheduled.await(5, TimeUnit.SECONDS));
+
+            // jbox内部的TaskScheduler在sync-all下仍需按真实时钟触发ScheduleTask
+            CountDownLatch triggered = new CountDownLatch(1);
+            TaskScheduler scheduler = new TaskScheduler();
+            scheduler.register(new ScheduleTask() {
+                @Override
+                public void invoke() {
+                    triggered.countDown();
+                }
+
+                @Override
+                public long period() {
+                    return 100;
+                }
+            });
+            scheduler.start();
+            Assert.assertTrue(triggered.await(5, TimeUnit.SECONDS));
+        } finally {
+            System.clearProperty("sync-all");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.alibaba.jbox.executor.context;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/23 16:00:00.
+ */
+public class ContextPropagatorsTest {
+
+    private static final ThreadLocal<String> LOCAL = new ThreadLocal<>();
+
+    private static final ContextPropagator PROPAGATOR = new ContextPropagator() {
+        @Override
+        public Object capture() {
+            return LOCAL.get();
+        }
+
+        @Override
+        public void replay(Object captured) {
+            LOCAL.set((String)captured);
+        }
+
+        @Override
+        public void clear(Object captured) {
+            LOCAL.remove();
+        }
+    };
+
+    @Test
+    public void testCaptureNothing() {
+        ContextPropagator[] propagators = {PROPAGATOR};
+        Assert.assertNull(ContextPropagators.capture(propagators));
+        // no-op
+        ContextPropagators.replay(propagators, null);
+        ContextPropagators.clear(propagators, null);
+    }
+
+    @Test
+    public void testAlwaysClear() throws Exception {
+        ContextPropagator alwaysClear = new ContextPropagator() {
+            @Override
+            public Object capture() {
+                return LOCAL.get();
+            }
+
+            @Override
+            public void replay(Object captured) {
+                LOCAL.set((String)captured);
+            }
+
+            @Override
+            public void clear(Object captured) {
+                LOCAL.remove();
+            }
+
+            @Override
+            public boolean alwaysClear() {
+                return true;
+            }
+        };
+        ContextPropagators.register(alwaysClear);
+        try {
+            ExecutorService executor = ExecutorManager.newFixedThreadPool("always-clear-test", 1);
+
+            // submitted without context, the task starts its own context on the worker
+            executor.submit(() -> LOCAL.set("worker")).get(5, TimeUnit.SECONDS);
+            Assert.assertNull(executor.submit(LOCAL::get).get(5, TimeUnit.SECONDS));
+            executor.shutdown();
+        } finally {
+            ContextPropagators.unregister(alwaysClear);
+        }
+    }
+
+    @Test
+    public void testPropagateAndDisable() throws Exception {
+        ContextPropagators.register(PROPAGATOR);
+        try {
+            ExecutorService executor = ExecutorManager.newFixedThreadPool("propagator-test", 1);
+
+            LOCAL.set("parent");
+            Assert.assertEquals("parent", executor.submit(LOCAL::get).get(5, TimeUnit.SECONDS));
+            // worker cleared after execute
+            LOCAL.remove();
+            Assert.assertNull(executor.submit(LOCAL::get).get(5, TimeUnit.SECONDS));
+            LOCAL.set("parent");
+
+            ExecutorManager.setContextPropagation("propagator-test", false);
+            Assert.assertNull(executor.submit(LOCAL::get).get(5, TimeUnit.SECONDS));
+
+            ExecutorManager.setContextPropagation("propagator-test", true);
+            Assert.assertEquals("parent", executor.submit(LOCAL::get).get(5, TimeUnit.SECONDS));
+            executor.shutdown();
+        } finally {
+            LOCAL.remove();
+            ContextPropagators.unregister(PROPAGATOR);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.alibaba.jbox.executor.policy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.jbox.executor.ExecutorManager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/20 14:30:00.
+ */
+public class BulkheadPolicyTest {
+
+    @Test
+    public void testBlockThenReject() throws InterruptedException {
+        String group = "bulkhead-test";
+        ExecutorService executor = ExecutorManager.newFixedMinMaxThreadPool(group, 1, 1, 1,
+            new BulkheadPolicy(group, 50));
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> await(blocker));
+        // fill the queue
+        executor.execute(() -> {
+        });
+
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+            });
+            Assert.fail();
+        } catch (BulkheadRejectedException e) {
+            Assert.assertEquals(group, e.getGroup());
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        }
+
+        // space freed while waiting
+        new Thread(() -> {
+            sleep(20);
+            blocker.countDown();
+        }).start();
+        executor.execute(() -> {
+        });
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {
+            // exit
+        }
+    }
+}
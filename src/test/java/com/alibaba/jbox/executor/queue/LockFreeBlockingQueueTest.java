@@ -0,0 +1,108 @@
+package com.alibaba.jbox.executor.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/11/14 16:00:00.
+ */
+public class LockFreeBlockingQueueTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    public void testCapacity() {
+        for (BlockingQueue<Integer> queue : queues(3)) {
+            Assert.assertEquals(3, queue.remainingCapacity());
+            Assert.assertTrue(queue.offer(1));
+            Assert.assertTrue(queue.offer(2));
+            Assert.assertTrue(queue.offer(3));
+            Assert.assertFalse(queue.offer(4));
+            Assert.assertEquals(3, queue.size());
+            Assert.assertEquals(0, queue.remainingCapacity());
+
+            List<Integer> drained = new ArrayList<>();
+            Assert.assertEquals(1, queue.poll().intValue());
+            queue.drainTo(drained);
+            Assert.assertEquals(2, drained.size());
+            Assert.assertEquals(3, drained.get(1).intValue());
+            Assert.assertNull(queue.poll());
+            Assert.assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testTimedOfferAndPoll() throws InterruptedException {
+        for (BlockingQueue<Integer> queue : queues(1)) {
+            Assert.assertTrue(queue.offer(1, 10, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, queue.poll(10, TimeUnit.MILLISECONDS).intValue());
+            Assert.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testMpmc() throws InterruptedException {
+        checkConcurrent(new MpmcArrayBlockingQueue<>(64), 4);
+    }
+
+    @Test
+    public void testMpsc() throws InterruptedException {
+        checkConcurrent(new MpscArrayBlockingQueue<>(64), 1);
+    }
+
+    private void checkConcurrent(BlockingQueue<Integer> queue, int consumers) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS + consumers);
+        LongAdder sum = new LongAdder();
+        CountDownLatch consumed = new CountDownLatch(PRODUCERS * PER_PRODUCER);
+
+        for (int i = 0; i < consumers; ++i) {
+            executor.execute(() -> {
+                try {
+                    while (true) {
+                        sum.add(queue.take());
+                        consumed.countDown();
+                    }
+                } catch (InterruptedException ignored) {
+                    // exit
+                }
+            });
+        }
+        for (int i = 0; i < PRODUCERS; ++i) {
+            executor.execute(() -> {
+                try {
+                    for (int value = 1; value <= PER_PRODUCER; ++value) {
+                        queue.put(value);
+                    }
+                } catch (InterruptedException ignored) {
+                    // exit
+                }
+            });
+        }
+
+        Assert.assertTrue(consumed.await(30, TimeUnit.SECONDS));
+        executor.shutdownNow();
+        Assert.assertEquals(PRODUCERS * (long)PER_PRODUCER * (PER_PRODUCER + 1) / 2, sum.sum());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    private static List<BlockingQueue<Integer>> queues(int capacity) {
+        List<BlockingQueue<Integer>> queues = new ArrayList<>();
+        queues.add(new MpmcArrayBlockingQueue<>(capacity));
+        queues.add(new MpscArrayBlockingQueue<>(capacity));
+        return queues;
+    }
+}
@@ -0,0 +1,131 @@
+package com.alibaba.jbox.trace;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.alibaba.jbox.trace.tlog.AbstractTLogConfig.ELConfig;
+import com.alibaba.jbox.trace.tlog.LogEvent;
+import com.alibaba.jbox.trace.tlog.TLogManager;
+import com.alibaba.jbox.utils.JboxUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/08 14:00:00.
+ */
+public class TLogLoggableTest {
+
+    private static final String CONFIGURED_KEY = ServiceImpl.class.getName() + ":configured";
+
+    private static final String UNCONFIGURED_KEY = ServiceImpl.class.getName() + ":unconfigured";
+
+    public interface Service {
+
+        int configured(int value);
+
+        int unconfigured(int value);
+    }
+
+    public static class ServiceImpl implements Service {
+
+        @Trace
+        @Override
+        public int configured(int value) {
+            return value;
+        }
+
+        @Trace
+        @Override
+        public int unconfigured(int value) {
+            return value;
+        }
+    }
+
+    /**
+     * record posted events instead of writing TLog
+     */
+    private static class RecordingTLogManager extends TLogManager {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<LogEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void postLogEvent(LogEvent event) {
+            events.add(event);
+        }
+    }
+
+    @Test
+    public void testIsLoggable() {
+        RecordingTLogManager tLogManager = newTLogManager();
+        Assert.assertTrue(tLogManager.isLoggable(CONFIGURED_KEY));
+        Assert.assertFalse(tLogManager.isLoggable(UNCONFIGURED_KEY));
+
+        tLogManager.setLogUnconfigured(true);
+        Assert.assertTrue(tLogManager.isLoggable(CONFIGURED_KEY));
+        Assert.assertTrue(tLogManager.isLoggable(UNCONFIGURED_KEY));
+    }
+
+    @Test
+    public void testOnlyConfiguredMethodPosted() {
+        RecordingTLogManager tLogManager = newTLogManager();
+        Service service = newProxy(tLogManager);
+
+        service.configured(1);
+        service.unconfigured(2);
+
+        Assert.assertEquals(1, tLogManager.events.size());
+        LogEvent event = tLogManager.events.get(0);
+        Assert.assertEquals(ServiceImpl.class.getName(), event.getClassName());
+        Assert.assertEquals("configured", event.getMethodName());
+        Assert.assertEquals(1, event.getResult());
+        Assert.assertEquals(Thread.currentThread().getName(), event.getInvokeThread());
+    }
+
+    @Test
+    public void testLogUnconfigured() {
+        RecordingTLogManager tLogManager = newTLogManager();
+        tLogManager.setLogUnconfigured(true);
+        Service service = newProxy(tLogManager);
+
+        service.configured(1);
+        service.unconfigured(2);
+
+        Assert.assertEquals(2, tLogManager.events.size());
+        Assert.assertEquals("unconfigured", tLogManager.events.get(1).getMethodName());
+    }
+
+    @Test
+    public void testLazyServerIp() {
+        LogEvent event = new LogEvent();
+        event.init();
+        Assert.assertEquals(JboxUtils.getServerIp(), event.getServerIp());
+
+        // an explicitly set ip is not replaced
+        LogEvent specified = new LogEvent();
+        specified.setServerIp("10.0.0.1");
+        Assert.assertEquals("10.0.0.1", specified.getServerIp());
+    }
+
+    private static RecordingTLogManager newTLogManager() {
+        RecordingTLogManager tLogManager = new RecordingTLogManager();
+        tLogManager.setMethodELMap(Collections.singletonMap(CONFIGURED_KEY,
+            Collections.singletonList(new ELConfig("args[0]", null))));
+        return tLogManager;
+    }
+
+    private static Service newProxy(TLogManager tLogManager) {
+        TraceAspect aspect = new TraceAspect();
+        aspect.settLogManager(tLogManager);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ServiceImpl());
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
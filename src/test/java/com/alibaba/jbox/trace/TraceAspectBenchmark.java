@@ -0,0 +1,87 @@
+package com.alibaba.jbox.trace;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * {@link TraceAspect}包裹一个空方法时的单次调用开销: 对比直接调用与经过aspect(elapsed开启但未超过threshold)的调用.
+ *
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/05 10:30:00.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceAspectBenchmark {
+
+    public interface Service {
+
+        int noop(int value);
+    }
+
+    public static class ServiceImpl implements Service {
+
+        @Trace(threshold = Long.MAX_VALUE)
+        @Override
+        public int noop(int value) {
+            return value;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Services {
+
+        Service direct;
+
+        Service traced;
+
+        int value;
+
+        @Setup
+        public void setup() {
+            TraceAspect aspect = new TraceAspect();
+            aspect.setElapsed(true);
+            aspect.setEnableTLogManger(false);
+
+            AspectJProxyFactory factory = new AspectJProxyFactory(new ServiceImpl());
+            factory.addAspect(aspect);
+
+            this.direct = new ServiceImpl();
+            this.traced = factory.getProxy();
+        }
+    }
+
+    @Benchmark
+    public int direct(Services services) {
+        return services.direct.noop(++services.value);
+    }
+
+    @Benchmark
+    public int traced(Services services) {
+        return services.traced.noop(++services.value);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TraceAspectBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,188 @@
+package com.alibaba.jbox.trace;
+
+import javax.validation.ValidationException;
+import javax.validation.constraints.NotNull;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.aspectj.AspectJAroundAdvice;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.aspectj.SingletonAspectInstanceFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/08 15:00:00.
+ */
+public class TraceMetadataTest {
+
+    public interface Service {
+
+        int constrained(@NotNull Integer value);
+
+        int unconstrained(Integer value);
+    }
+
+    public static class ServiceImpl implements Service {
+
+        @Trace
+        @Override
+        public int constrained(Integer value) {
+            return value;
+        }
+
+        @Trace
+        @Override
+        public int unconstrained(Integer value) {
+            return value == null ? -1 : value;
+        }
+    }
+
+    public interface PlainService {
+
+        int plain(int value);
+    }
+
+    /**
+     * without '@Trace', configured by {@link TraceConfig}
+     */
+    public static class PlainServiceImpl implements PlainService {
+
+        @Override
+        public int plain(int value) {
+            return value;
+        }
+    }
+
+    @Test
+    public void testValidateConstrainedMethod() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setValidator(true);
+        aspect.setEnableTLogManger(false);
+        Service service = newProxy(aspect);
+
+        // repeated invokes hit the cached metadata, validation must keep firing
+        for (int i = 0; i < 3; ++i) {
+            try {
+                service.constrained(null);
+                Assert.fail();
+            } catch (ValidationException e) {
+                Assert.assertTrue(e.getMessage().contains("constrained"));
+            }
+        }
+        Assert.assertEquals(1, service.constrained(1));
+        Assert.assertEquals(-1, service.unconstrained(null));
+    }
+
+    @Test
+    public void testValidatorEnabledAfterFirstInvoke() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setEnableTLogManger(false);
+        Service service = newProxy(aspect);
+
+        Assert.assertEquals(-1, service.unconstrained(null));
+        service.constrained(1);
+
+        aspect.setValidator(true);
+        try {
+            service.constrained(null);
+            Assert.fail();
+        } catch (ValidationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAddTraceConfigRebuild() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setEnableTLogManger(false);
+        aspect.setElapsed(true);
+        String configKey = PlainServiceImpl.class.getName() + ":plain";
+
+        PlainService service = newPlainProxy(aspect);
+        service.plain(1);
+        TraceSampler sampler = aspect.getSamplers().get(configKey);
+        Assert.assertEquals(1.0, sampler.getSampleRate(), 0.0);
+
+        TraceConfig config = new TraceConfig();
+        config.setSampleRate(0);
+        aspect.addTraceConfig(configKey, config);
+
+        service.plain(2);
+        Assert.assertEquals(0.0, sampler.getSampleRate(), 0.0);
+        Assert.assertEquals(1, sampler.getDroppedCount());
+    }
+
+    @Test
+    public void testTraceConfigModifiedInPlace() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setEnableTLogManger(false);
+        aspect.setElapsed(true);
+        String configKey = PlainServiceImpl.class.getName() + ":plain";
+        TraceConfig config = new TraceConfig();
+        aspect.addTraceConfig(configKey, config);
+
+        PlainService service = newPlainProxy(aspect);
+        service.plain(1);
+        TraceSampler sampler = aspect.getSamplers().get(configKey);
+        Assert.assertEquals(1, sampler.getSampledCount());
+
+        // no setter on the aspect is called, the cached metadata must still see it
+        config.setSampleRate(0);
+        service.plain(2);
+        Assert.assertEquals(0.0, sampler.getSampleRate(), 0.0);
+        Assert.assertEquals(1, sampler.getDroppedCount());
+
+        config.setSampleRate(-1);
+        service.plain(3);
+        Assert.assertEquals(2, sampler.getSampledCount());
+    }
+
+    @Test
+    public void testUseAbstractMethodRebuild() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setEnableTLogManger(false);
+        aspect.setElapsed(true);
+        Service service = newProxy(aspect);
+
+        service.unconstrained(1);
+        Assert.assertTrue(aspect.getSamplers().containsKey(ServiceImpl.class.getName() + ":unconstrained"));
+        Assert.assertFalse(aspect.getSamplers().containsKey(Service.class.getName() + ":unconstrained"));
+
+        aspect.setUseAbstractMethod(true);
+        service.unconstrained(1);
+        Assert.assertTrue(aspect.getSamplers().containsKey(Service.class.getName() + ":unconstrained"));
+    }
+
+    private static Service newProxy(TraceAspect aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ServiceImpl());
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    /**
+     * same as {@code <aop:around method="invoke" pointcut="execution(...)"/>}
+     */
+    private static PlainService newPlainProxy(TraceAspect aspect) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("execution(* " + PlainService.class.getName() + ".*(..))");
+
+        AspectJAroundAdvice advice;
+        try {
+            advice = new AspectJAroundAdvice(TraceAspect.class.getMethod("invoke", ProceedingJoinPoint.class),
+                pointcut, new SingletonAspectInstanceFactory(aspect));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ProxyFactory factory = new ProxyFactory(new PlainServiceImpl());
+        factory.addAdvisor(ExposeInvocationInterceptor.ADVISOR);
+        factory.addAdvisor(new DefaultPointcutAdvisor(pointcut, advice));
+        return (PlainService)factory.getProxy();
+    }
+}
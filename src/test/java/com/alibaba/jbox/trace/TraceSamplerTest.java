@@ -0,0 +1,114 @@
+package com.alibaba.jbox.trace;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * @author jifang.zjf@alibaba-inc.com
+ * @version 1.0
+ * @since 2017/12/06 14:00:00.
+ */
+public class TraceSamplerTest {
+
+    @Test
+    public void testPolicies() {
+        TraceSampler sampler = new TraceSampler("A:b");
+        sampler.configure(0, 0, true, 100);
+
+        Assert.assertFalse(sampler.sample(10, null));
+        Assert.assertTrue(sampler.sample(10, new RuntimeException()));
+        Assert.assertTrue(sampler.sample(100, null));
+        Assert.assertEquals(2, sampler.getSampledCount());
+        Assert.assertEquals(1, sampler.getDroppedCount());
+
+        sampler.configure(1.0, 5, false, -1);
+        int sampled = 0;
+        for (int i = 0; i < 100; ++i) {
+            if (sampler.sample(1, new RuntimeException())) {
+                ++sampled;
+            }
+        }
+        // a second boundary may refill permits once
+        Assert.assertTrue(sampled >= 5 && sampled <= 10);
+    }
+
+    @Test
+    public void testPermitsUnderContention() throws InterruptedException {
+        TraceSampler sampler = new TraceSampler("A:c");
+        sampler.configure(1.0, 100, false, -1);
+
+        long startSecond = System.nanoTime() / TimeUnit.SECONDS.toNanos(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 20_000; ++j) {
+                    sampler.sample(1, null);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long seconds = System.nanoTime() / TimeUnit.SECONDS.toNanos(1) - startSecond + 1;
+
+        Assert.assertTrue(sampler.getSampledCount() <= 100 * seconds);
+        Assert.assertEquals(8 * 20_000, sampler.getSampledCount() + sampler.getDroppedCount());
+    }
+
+    public interface Service {
+
+        int traced(int value);
+
+        int configured(int value);
+    }
+
+    public static class ServiceImpl implements Service {
+
+        @Trace(threshold = -1, sampleRate = 0)
+        @Override
+        public int traced(int value) {
+            return value;
+        }
+
+        @Trace(threshold = -1)
+        @Override
+        public int configured(int value) {
+            return value;
+        }
+    }
+
+    @Test
+    public void testAspect() {
+        TraceAspect aspect = new TraceAspect();
+        aspect.setElapsed(true);
+        aspect.setEnableTLogManger(false);
+        aspect.setSamplePermitsPerSecond(1_000_000);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ServiceImpl());
+        factory.addAspect(aspect);
+        Service service = factory.getProxy();
+        for (int i = 0; i < 10; ++i) {
+            service.traced(i);
+            service.configured(i);
+        }
+
+        TraceSampler traced = aspect.getSamplers().get(ServiceImpl.class.getName() + ":traced");
+        Assert.assertEquals(0, traced.getSampledCount());
+        Assert.assertEquals(10, traced.getDroppedCount());
+
+        TraceSampler configured = aspect.getSamplers().get(ServiceImpl.class.getName() + ":configured");
+        Assert.assertEquals(1_000_000, configured.getPermitsPerSecond());
+        Assert.assertEquals(10, configured.getSampledCount());
+
+        // global config modified, counts are kept
+        aspect.setSampleRate(0);
+        service.configured(0);
+        Assert.assertEquals(0.0, configured.getSampleRate(), 0.0);
+        Assert.assertEquals(10, configured.getSampledCount());
+        Assert.assertEquals(1, configured.getDroppedCount());
+    }
+}